@@ -20,6 +20,11 @@ public class AStarProgram {
         double h(Types.Node a, Types.Node b);
     }
 
+    // Heuristic on dense CsrGraph indices
+    public interface IndexHeuristic {
+        double h(CsrGraph graph, int a, int b);
+    }
+
     // Main A* algorithm function
     public static Types.PathResult astar(Types.Graph graph, int startNode, int targetNode, Heuristic heuristic) {
         long startTime = System.nanoTime();
@@ -52,27 +57,36 @@ public class AStarProgram {
         int totalPushes = 1;
         int nodesExpanded = 0;
         int maxQueueSize = Math.max(1, openList.size());
+        int heuristicEvaluations = 1;
+        int stalePops = 0;
 
         // Check if start and target nodes exist
         if (!graph.nodes.containsKey(startNode) || !graph.nodes.containsKey(targetNode)) {
             double executionTime = (System.nanoTime() - startTime) / 1e9;
-            return new Types.PathResult(false, 0.0, Collections.emptyList(), 
-                                      nodesExpanded, totalPushes, maxQueueSize, executionTime);
+            long now = SearchMetrics.now();
+            return SearchMetrics.finish("astar", new Types.PathResult(false, 0.0, Collections.emptyList(),
+                                      nodesExpanded, totalPushes, maxQueueSize, executionTime),
+                                      startTime, now, now, heuristicEvaluations, stalePops);
         }
 
+        long searchStart = SearchMetrics.now();
+
         // Main search loop
         while (!openList.isEmpty()) {
             PriorityNode currentNode = openList.poll();
 
             // Skip if this node was already expanded with better g-cost
             double currentBestG = gCosts.getOrDefault(currentNode.nodeId, Double.POSITIVE_INFINITY);
-            if (currentNode.gValue > currentBestG) continue;
+            if (currentNode.gValue > currentBestG) {
+                stalePops++;
+                continue;
+            }
 
             nodesExpanded++;
 
             // Check if we reached the target
             if (currentNode.nodeId == targetNode) {
-                double executionTime = (System.nanoTime() - startTime) / 1e9;
+                long pathStart = SearchMetrics.now();
                 // Reconstruct path backwards
                 List<Integer> finalPath = new ArrayList<>();
                 int pathNode = targetNode;
@@ -82,8 +96,10 @@ public class AStarProgram {
                 }
                 finalPath.add(startNode);
                 Collections.reverse(finalPath);
-                return new Types.PathResult(true, gCosts.get(targetNode), finalPath, 
-                                          nodesExpanded, totalPushes, maxQueueSize, executionTime);
+                double executionTime = (System.nanoTime() - startTime) / 1e9;
+                return SearchMetrics.finish("astar", new Types.PathResult(true, gCosts.get(targetNode), finalPath,
+                                          nodesExpanded, totalPushes, maxQueueSize, executionTime),
+                                          startTime, searchStart, pathStart, heuristicEvaluations, stalePops);
             }
 
             // Examine neighbor nodes
@@ -100,6 +116,7 @@ public class AStarProgram {
                         double newF = newG + heuristic.h(graph.nodes.get(edge.to), graph.nodes.get(targetNode));
                         openList.add(new PriorityNode(edge.to, newF, newG));
                         totalPushes++;
+                        heuristicEvaluations++;
                     }
                 }
             }
@@ -109,9 +126,87 @@ public class AStarProgram {
         }
 
         // Path not found
+        long pathStart = SearchMetrics.now();
         double executionTime = (System.nanoTime() - startTime) / 1e9;
-        return new Types.PathResult(false, 0.0, Collections.emptyList(), 
-                                  nodesExpanded, totalPushes, maxQueueSize, executionTime);
+        return SearchMetrics.finish("astar", new Types.PathResult(false, 0.0, Collections.emptyList(),
+                                  nodesExpanded, totalPushes, maxQueueSize, executionTime),
+                                  startTime, searchStart, pathStart, heuristicEvaluations, stalePops);
+    }
+
+    // A* on the compressed sparse row layout; node ids in and out are the original ids
+    public static Types.PathResult astar(CsrGraph graph, int startNode, int targetNode, IndexHeuristic heuristic) {
+        return astar(graph, startNode, targetNode, heuristic, new SearchWorkspace(graph.nodeCount));
+    }
+
+    // Same search, reusing the caller's workspace so repeated queries produce no garbage besides the result
+    public static Types.PathResult astar(CsrGraph graph, int startNode, int targetNode, IndexHeuristic heuristic,
+                                         SearchWorkspace workspace) {
+        long startTime = System.nanoTime();
+
+        if (workspace.capacity() < graph.nodeCount) {
+            throw new IllegalArgumentException("Workspace is smaller than the graph");
+        }
+
+        int start = graph.indexOf(startNode);
+        int target = graph.indexOf(targetNode);
+        if (start < 0 || target < 0) {
+            double executionTime = (System.nanoTime() - startTime) / 1e9;
+            long now = SearchMetrics.now();
+            return SearchMetrics.finish("astar-csr", new Types.PathResult(false, 0.0, Collections.emptyList(),
+                                      0, 1, 1, executionTime), startTime, now, now, 0, 0);
+        }
+
+        workspace.reset();
+        IndexedHeap openList = workspace.open;
+        workspace.set(start, 0.0, -1);
+        openList.push(start, heuristic.h(graph, start, target));
+
+        int totalPushes = 1;
+        int nodesExpanded = 0;
+        int maxQueueSize = 1;
+        int heuristicEvaluations = 1;
+
+        int[] offsets = graph.offsets;
+        int[] targets = graph.targets;
+        double[] weights = graph.weights;
+
+        long searchStart = SearchMetrics.now();
+
+        // Each node is in the heap at most once, so every pop is a real expansion (no stale pops)
+        while (!openList.isEmpty()) {
+            int current = openList.pop();
+            double currentG = workspace.g(current);
+
+            nodesExpanded++;
+
+            if (current == target) {
+                long pathStart = SearchMetrics.now();
+                List<Integer> path = workspace.path(graph, target);
+                double executionTime = (System.nanoTime() - startTime) / 1e9;
+                return SearchMetrics.finish("astar-csr", new Types.PathResult(true, currentG, path,
+                                          nodesExpanded, totalPushes, maxQueueSize, executionTime),
+                                          startTime, searchStart, pathStart, heuristicEvaluations, 0);
+            }
+
+            for (int e = offsets[current], end = offsets[current + 1]; e < end; e++) {
+                int next = targets[e];
+                double newG = currentG + weights[e];
+                if (newG < workspace.g(next)) {
+                    workspace.set(next, newG, current);
+                    openList.push(next, newG + heuristic.h(graph, next, target));
+                    totalPushes++;
+                    heuristicEvaluations++;
+                }
+            }
+
+            if (openList.size() > maxQueueSize) maxQueueSize = openList.size();
+        }
+
+        long pathStart = SearchMetrics.now();
+        double executionTime = (System.nanoTime() - startTime) / 1e9;
+        return SearchMetrics.finish("astar-csr", new Types.PathResult(false, 0.0, Collections.emptyList(),
+                                  nodesExpanded, totalPushes, maxQueueSize, executionTime),
+                                  startTime, searchStart, pathStart, heuristicEvaluations, 0);
     }
 
     // Helper function to print results
@@ -136,8 +231,17 @@ public class AStarProgram {
         }
         
         System.out.println("Expanded: " + result.expanded);
+        if (result.expandedBackward > 0) {
+            System.out.println("Expanded (forward/backward): " + result.expandedForward + "/" + result.expandedBackward);
+        }
         System.out.println("Pushes: " + result.pushes);
         System.out.println("Max frontier: " + result.maxFrontier);
+        if (SearchMetrics.ENABLED) {
+            System.out.printf(Locale.ROOT, "Phases (s): init %.6f, search %.6f, path %.6f%n",
+                    result.init_s, result.search_s, result.path_s);
+            System.out.println("Heuristic evaluations: " + result.heuristicEvaluations);
+            System.out.println("Stale pops: " + result.stalePops);
+        }
         System.out.printf(Locale.ROOT, "Runtime (s): %.6f%n%n", result.runtime_s);
     }
 
@@ -176,5 +280,9 @@ public class AStarProgram {
 
         Types.PathResult result3 = astar(graph, graph.source, graph.destination, manhattanHeuristic);
         printResult("A* with Manhattan Distance", result3);
+
+        if (SearchMetrics.ENABLED) {
+            System.out.println("Metrics: " + SearchMetrics.json());
+        }
     }
 }
\ No newline at end of file
@@ -0,0 +1,215 @@
+import java.util.*;
+import java.util.function.Consumer;
+
+/**
+ * Anytime Repairing A* (ARA*) on a CsrGraph
+ * The first iteration runs weighted A* with f = g + epsilon*h, which finds a path quickly whose
+ * cost is at most epsilon times optimal. Each further iteration lowers epsilon and only
+ * re-expands nodes whose g-cost improved since they were expanded, keeping all previous work.
+ * The search stops at epsilon 1 (optimal), or when the time or expansion budget runs out, and
+ * returns the best path so far with its proven bound in PathResult.suboptimality.
+ * The bounds require a consistent heuristic, which all heuristics in Heuristics are when
+ * weights are at least the coordinate distance.
+ */
+public final class AnytimeAStar {
+
+    public static final double DEFAULT_EPSILON = 3.0;
+    public static final double DEFAULT_EPSILON_STEP = 0.5;
+
+    // Expansions between two clock reads
+    private static final int CLOCK_INTERVAL = 64;
+
+    private final CsrGraph graph;
+    private final SearchWorkspace workspace;
+    private final int[] closedStamps;
+    private final int[] inconsistentStamps;
+    private int closedGeneration;
+    private int inconsistentGeneration;
+    private int[] inconsistent = new int[16];
+    private int inconsistentCount;
+    private int[] drained = new int[16];
+    private int drainedCount;
+
+    // State of the running search
+    private AStarProgram.IndexHeuristic heuristic;
+    private int target;
+    private boolean timed;
+    private long deadline;
+    private long maxExpansions;
+    private int expanded;
+    private int pushes;
+    private int maxFrontier;
+
+    public AnytimeAStar(CsrGraph graph) {
+        this.graph = graph;
+        this.workspace = new SearchWorkspace(graph.nodeCount);
+        this.closedStamps = new int[graph.nodeCount];
+        this.inconsistentStamps = new int[graph.nodeCount];
+    }
+
+    /**
+     * Anytime search with the default epsilon schedule (3.0, 2.5, ..., 1.0)
+     * @param budgetSeconds Wall-clock budget for the whole query
+     */
+    public Types.PathResult search(int startNode, int targetNode, AStarProgram.IndexHeuristic heuristic,
+                                   double budgetSeconds) {
+        return search(startNode, targetNode, heuristic, DEFAULT_EPSILON, DEFAULT_EPSILON_STEP,
+                budgetSeconds, Long.MAX_VALUE, null);
+    }
+
+    /**
+     * @param epsilon        Heuristic weight of the first iteration, at least 1
+     * @param epsilonStep    How much epsilon drops per iteration
+     * @param budgetSeconds  Wall-clock budget, Double.POSITIVE_INFINITY for none
+     * @param maxExpansions  Expansion budget over all iterations, Long.MAX_VALUE for none
+     * @param onSolution     Called with the result of every completed iteration, may be null
+     * @return The best path found; not found only if the budget ran out before any path was
+     *         found or the target is unreachable
+     */
+    public synchronized Types.PathResult search(int startNode, int targetNode, AStarProgram.IndexHeuristic heuristic,
+                                                double epsilon, double epsilonStep, double budgetSeconds,
+                                                long maxExpansions, Consumer<Types.PathResult> onSolution) {
+        long startTime = System.nanoTime();
+        if (!(epsilon >= 1.0) || !(epsilonStep > 0)) {
+            throw new IllegalArgumentException("Epsilon must be at least 1 and the step positive");
+        }
+        int start = graph.indexOf(startNode);
+        target = graph.indexOf(targetNode);
+        if (start < 0 || target < 0) {
+            double executionTime = (System.nanoTime() - startTime) / 1e9;
+            return new Types.PathResult(false, 0.0, Collections.emptyList(), 0, 1, 1, executionTime);
+        }
+
+        this.heuristic = heuristic;
+        this.timed = budgetSeconds < Long.MAX_VALUE / 1e9;
+        this.deadline = timed ? startTime + (long) (budgetSeconds * 1e9) : 0;
+        this.maxExpansions = maxExpansions;
+        expanded = 0;
+        pushes = 1;
+        maxFrontier = 1;
+
+        workspace.reset();
+        newIteration();
+        workspace.set(start, 0.0, -1);
+        workspace.open.push(start, epsilon * heuristic.h(graph, start, target));
+
+        Types.PathResult best = null;
+        double provenEpsilon = Double.POSITIVE_INFINITY;
+        while (true) {
+            boolean completed = improvePath(epsilon);
+            if (completed) provenEpsilon = epsilon;
+
+            double lowerBound = drainOpen();
+            double cost = workspace.g(target);
+            if (cost < Double.POSITIVE_INFINITY) {
+                List<Integer> path = workspace.path(graph, target);
+                double bound = Math.min(provenEpsilon, lowerBound > 0 ? cost / lowerBound : Double.POSITIVE_INFINITY);
+                if (lowerBound >= cost) bound = 1.0;
+                best = new Types.PathResult(true, cost, path, expanded, pushes, maxFrontier,
+                        (System.nanoTime() - startTime) / 1e9);
+                best.suboptimality = Math.max(1.0, bound);
+                if (completed && onSolution != null) onSolution.accept(best);
+            } else if (completed) {
+                break; // open list ran empty: the target is unreachable
+            }
+
+            if (!completed || best == null || best.suboptimality <= 1.0) break;
+
+            epsilon = Math.max(1.0, epsilon - epsilonStep);
+            refillOpen(epsilon);
+        }
+
+        if (best == null) {
+            double executionTime = (System.nanoTime() - startTime) / 1e9;
+            Types.PathResult failure = new Types.PathResult(false, 0.0, Collections.emptyList(),
+                    expanded, pushes, maxFrontier, executionTime);
+            failure.suboptimality = Double.POSITIVE_INFINITY;
+            return failure;
+        }
+        best.runtime_s = (System.nanoTime() - startTime) / 1e9;
+        return best;
+    }
+
+    // Weighted A* until the target's g is no larger than the smallest f; false if the budget ran out
+    private boolean improvePath(double epsilon) {
+        IndexedHeap open = workspace.open;
+        int[] offsets = graph.offsets;
+        int[] targets = graph.targets;
+        double[] weights = graph.weights;
+
+        while (!open.isEmpty() && workspace.g(target) > open.peekKey()) {
+            if (expanded >= maxExpansions) return false;
+            if (timed && expanded % CLOCK_INTERVAL == 0 && System.nanoTime() - deadline > 0) return false;
+
+            int current = open.pop();
+            closedStamps[current] = closedGeneration;
+            expanded++;
+            double currentG = workspace.g(current);
+
+            for (int e = offsets[current], end = offsets[current + 1]; e < end; e++) {
+                int next = targets[e];
+                double newG = currentG + weights[e];
+                if (newG < workspace.g(next)) {
+                    workspace.set(next, newG, current);
+                    if (closedStamps[next] != closedGeneration) {
+                        open.push(next, newG + epsilon * heuristic.h(graph, next, target));
+                        pushes++;
+                    } else if (inconsistentStamps[next] != inconsistentGeneration) {
+                        inconsistentStamps[next] = inconsistentGeneration;
+                        if (inconsistentCount == inconsistent.length) inconsistent = Arrays.copyOf(inconsistent, inconsistentCount * 2);
+                        inconsistent[inconsistentCount++] = next;
+                    }
+                }
+            }
+            if (open.size() > maxFrontier) maxFrontier = open.size();
+        }
+        return true;
+    }
+
+    // Empties the open list into drained[] and returns min g + h over OPEN and INCONS
+    private double drainOpen() {
+        IndexedHeap open = workspace.open;
+        double lowerBound = Double.POSITIVE_INFINITY;
+        int count = 0;
+        if (drained.length < open.size()) drained = new int[Math.max(open.size(), drained.length * 2)];
+        while (!open.isEmpty()) {
+            int node = open.pop();
+            drained[count++] = node;
+            lowerBound = Math.min(lowerBound, workspace.g(node) + heuristic.h(graph, node, target));
+        }
+        drainedCount = count;
+        for (int i = 0; i < inconsistentCount; i++) {
+            int node = inconsistent[i];
+            lowerBound = Math.min(lowerBound, workspace.g(node) + heuristic.h(graph, node, target));
+        }
+        return lowerBound;
+    }
+
+    // Next iteration: OPEN = OPEN + INCONS with keys for the new epsilon, CLOSED and INCONS emptied
+    private void refillOpen(double epsilon) {
+        IndexedHeap open = workspace.open;
+        for (int i = 0; i < drainedCount; i++) {
+            int node = drained[i];
+            open.push(node, workspace.g(node) + epsilon * heuristic.h(graph, node, target));
+        }
+        for (int i = 0; i < inconsistentCount; i++) {
+            int node = inconsistent[i];
+            open.push(node, workspace.g(node) + epsilon * heuristic.h(graph, node, target));
+            pushes++;
+        }
+        newIteration();
+        if (open.size() > maxFrontier) maxFrontier = open.size();
+    }
+
+    private void newIteration() {
+        inconsistentCount = 0;
+        if (++closedGeneration == Integer.MAX_VALUE) {
+            Arrays.fill(closedStamps, 0);
+            closedGeneration = 1;
+        }
+        if (++inconsistentGeneration == Integer.MAX_VALUE) {
+            Arrays.fill(inconsistentStamps, 0);
+            inconsistentGeneration = 1;
+        }
+    }
+}
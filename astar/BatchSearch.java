@@ -0,0 +1,147 @@
+import java.util.*;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+
+/**
+ * Parallel batch of A* queries against one shared, read-only CsrGraph
+ * Queries are split over a work-stealing ForkJoinPool; every worker thread keeps its own
+ * SearchWorkspace, so the searches share nothing mutable. Results come back in input order.
+ * An instance keeps those workspaces for later batches on the same graph and pool.
+ */
+public final class BatchSearch {
+
+    // Queries per leaf task; small enough for stealing to balance long and short queries
+    private static final int LEAF_SIZE = 8;
+
+    private final CsrGraph graph;
+    private final ForkJoinPool pool;
+    // Only leaf tasks use a workspace and they never join, so concurrent batches can share these
+    private final ThreadLocal<SearchWorkspace> workspaces;
+
+    /**
+     * Batches on the caller's pool, which stays owned by the caller
+     */
+    public BatchSearch(CsrGraph graph, ForkJoinPool pool) {
+        this.graph = graph;
+        this.pool = pool;
+        this.workspaces = ThreadLocal.withInitial(() -> new SearchWorkspace(graph.nodeCount));
+    }
+
+    /**
+     * One (source, target, heuristic) request, node ids are the original ids
+     */
+    public static class Query {
+        public int source;
+        public int target;
+        public AStarProgram.IndexHeuristic heuristic;
+
+        public Query(int source, int target, AStarProgram.IndexHeuristic heuristic) {
+            this.source = source;
+            this.target = target;
+            this.heuristic = heuristic;
+        }
+    }
+
+    /**
+     * Results of a batch, in the same order as the queries, with aggregate figures
+     */
+    public static class BatchResult {
+        public List<Types.PathResult> results;
+        public long totalExpanded;
+        public long totalPushes;
+        public int threads;
+        public double runtime_s;
+
+        public BatchResult(List<Types.PathResult> results, long totalExpanded, long totalPushes,
+                           int threads, double runtime_s) {
+            this.results = results;
+            this.totalExpanded = totalExpanded;
+            this.totalPushes = totalPushes;
+            this.threads = threads;
+            this.runtime_s = runtime_s;
+        }
+
+        public double queriesPerSecond() {
+            return runtime_s > 0 ? results.size() / runtime_s : 0.0;
+        }
+
+        @Override
+        public String toString() {
+            return String.format(Locale.ROOT,
+                    "BatchResult{queries=%d, threads=%d, expanded=%d, pushes=%d, runtime_s=%.6f, queries/s=%.1f}",
+                    results.size(), threads, totalExpanded, totalPushes, runtime_s, queriesPerSecond());
+        }
+    }
+
+    public static BatchResult run(Types.Graph graph, List<Query> queries) {
+        return run(CsrGraph.fromGraph(graph), queries);
+    }
+
+    /**
+     * Runs the batch on a temporary pool with one worker per available core
+     */
+    public static BatchResult run(CsrGraph graph, List<Query> queries) {
+        ForkJoinPool pool = new ForkJoinPool(Runtime.getRuntime().availableProcessors());
+        try {
+            return new BatchSearch(graph, pool).run(queries);
+        } finally {
+            pool.shutdown();
+        }
+    }
+
+    /**
+     * Runs the batch on this instance's pool, reusing the workspaces of earlier batches
+     */
+    public BatchResult run(List<Query> queries) {
+        long startTime = System.nanoTime();
+
+        Types.PathResult[] results = new Types.PathResult[queries.size()];
+        pool.invoke(new QueryTask(graph, queries, results, workspaces, 0, results.length));
+
+        long totalExpanded = 0;
+        long totalPushes = 0;
+        for (Types.PathResult result : results) {
+            totalExpanded += result.expanded;
+            totalPushes += result.pushes;
+        }
+        double executionTime = (System.nanoTime() - startTime) / 1e9;
+        return new BatchResult(Arrays.asList(results), totalExpanded, totalPushes,
+                pool.getParallelism(), executionTime);
+    }
+
+    private static final class QueryTask extends RecursiveAction {
+        private static final long serialVersionUID = 1L;
+
+        private final CsrGraph graph;
+        private final List<Query> queries;
+        private final Types.PathResult[] results;
+        private final ThreadLocal<SearchWorkspace> workspaces;
+        private final int from;
+        private final int to;
+
+        QueryTask(CsrGraph graph, List<Query> queries, Types.PathResult[] results,
+                  ThreadLocal<SearchWorkspace> workspaces, int from, int to) {
+            this.graph = graph;
+            this.queries = queries;
+            this.results = results;
+            this.workspaces = workspaces;
+            this.from = from;
+            this.to = to;
+        }
+
+        @Override
+        protected void compute() {
+            if (to - from <= LEAF_SIZE) {
+                SearchWorkspace workspace = workspaces.get();
+                for (int i = from; i < to; i++) {
+                    Query query = queries.get(i);
+                    results[i] = AStarProgram.astar(graph, query.source, query.target, query.heuristic, workspace);
+                }
+                return;
+            }
+            int middle = (from + to) >>> 1;
+            invokeAll(new QueryTask(graph, queries, results, workspaces, from, middle),
+                      new QueryTask(graph, queries, results, workspaces, middle, to));
+        }
+    }
+}
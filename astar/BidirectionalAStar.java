@@ -0,0 +1,129 @@
+import java.util.*;
+
+/**
+ * Bidirectional A* on a CsrGraph
+ * Runs a forward search from the start and a backward search from the target over the
+ * same (undirected) adjacency, using the symmetric average potentials
+ *   pf(v) = (h(v, target) - h(v, start)) / 2,   pb(v) = -pf(v)
+ * which keep reduced edge costs non-negative for consistent heuristics. With these
+ * potentials the search may stop as soon as topKey(forward) + topKey(backward) >= best path.
+ */
+public final class BidirectionalAStar {
+
+    private BidirectionalAStar() {}
+
+    public static Types.PathResult search(CsrGraph graph, int startNode, int targetNode,
+                                          AStarProgram.IndexHeuristic heuristic) {
+        return search(graph, startNode, targetNode, heuristic,
+                new SearchWorkspace(graph.nodeCount), new SearchWorkspace(graph.nodeCount));
+    }
+
+    /**
+     * @param forward Workspace for the forward frontier
+     * @param backward Workspace for the backward frontier, must be a different instance
+     */
+    public static Types.PathResult search(CsrGraph graph, int startNode, int targetNode,
+                                          AStarProgram.IndexHeuristic heuristic,
+                                          SearchWorkspace forward, SearchWorkspace backward) {
+        long startTime = System.nanoTime();
+
+        if (forward == backward) {
+            throw new IllegalArgumentException("Forward and backward workspaces must differ");
+        }
+        if (forward.capacity() < graph.nodeCount || backward.capacity() < graph.nodeCount) {
+            throw new IllegalArgumentException("Workspace is smaller than the graph");
+        }
+
+        int start = graph.indexOf(startNode);
+        int target = graph.indexOf(targetNode);
+        if (start < 0 || target < 0) {
+            double executionTime = (System.nanoTime() - startTime) / 1e9;
+            return new Types.PathResult(false, 0.0, Collections.emptyList(), 0, 1, 1, executionTime);
+        }
+
+        forward.reset();
+        backward.reset();
+        IndexedHeap openForward = forward.open;
+        IndexedHeap openBackward = backward.open;
+
+        forward.set(start, 0.0, -1);
+        openForward.push(start, potential(graph, heuristic, start, start, target));
+        backward.set(target, 0.0, -1);
+        openBackward.push(target, -potential(graph, heuristic, target, start, target));
+
+        int totalPushes = 2;
+        int expandedForward = 0;
+        int expandedBackward = 0;
+        int maxQueueSize = 2;
+
+        // Best complete path found so far and the edge where the two halves meet
+        double best = start == target ? 0.0 : Double.POSITIVE_INFINITY;
+        int meetForward = start == target ? start : -1;
+        int meetBackward = start == target ? target : -1;
+
+        int[] offsets = graph.offsets;
+        int[] targets = graph.targets;
+        double[] weights = graph.weights;
+
+        while (!openForward.isEmpty() && !openBackward.isEmpty()) {
+            if (openForward.peekKey() + openBackward.peekKey() >= best) break;
+
+            // Expand the side with the smaller frontier
+            boolean expandForward = openForward.size() <= openBackward.size();
+            SearchWorkspace self = expandForward ? forward : backward;
+            SearchWorkspace other = expandForward ? backward : forward;
+            IndexedHeap open = self.open;
+
+            int current = open.pop();
+            double currentG = self.g(current);
+            if (expandForward) expandedForward++; else expandedBackward++;
+
+            for (int e = offsets[current], end = offsets[current + 1]; e < end; e++) {
+                int next = targets[e];
+                double newG = currentG + weights[e];
+                if (newG < self.g(next)) {
+                    self.set(next, newG, current);
+                    double p = potential(graph, heuristic, next, start, target);
+                    open.push(next, newG + (expandForward ? p : -p));
+                    totalPushes++;
+                }
+                if (other.reached(next)) {
+                    double through = currentG + weights[e] + other.g(next);
+                    if (through < best) {
+                        best = through;
+                        meetForward = expandForward ? current : next;
+                        meetBackward = expandForward ? next : current;
+                    }
+                }
+            }
+
+            int frontier = openForward.size() + openBackward.size();
+            if (frontier > maxQueueSize) maxQueueSize = frontier;
+        }
+
+        double executionTime = (System.nanoTime() - startTime) / 1e9;
+        Types.PathResult result;
+        if (meetForward < 0) {
+            result = new Types.PathResult(false, 0.0, Collections.emptyList(),
+                    expandedForward + expandedBackward, totalPushes, maxQueueSize, executionTime);
+        } else {
+            List<Integer> path = forward.path(graph, meetForward);
+            if (meetBackward != meetForward) {
+                for (int node = meetBackward; node != -1; node = backward.parent(node)) {
+                    path.add(graph.idOf(node));
+                }
+            }
+            result = new Types.PathResult(true, best, path,
+                    expandedForward + expandedBackward, totalPushes, maxQueueSize, executionTime);
+        }
+        result.expandedForward = expandedForward;
+        result.expandedBackward = expandedBackward;
+        return result;
+    }
+
+    // Forward potential pf(v); the backward potential is its negation
+    private static double potential(CsrGraph graph, AStarProgram.IndexHeuristic heuristic,
+                                    int node, int start, int target) {
+        return 0.5 * (heuristic.h(graph, node, target) - heuristic.h(graph, node, start));
+    }
+}
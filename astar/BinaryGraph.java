@@ -0,0 +1,144 @@
+import java.io.IOException;
+import java.nio.*;
+import java.nio.channels.FileChannel;
+import java.nio.file.*;
+
+/**
+ * Compact binary on-disk format for CsrGraph
+ * Little-endian layout:
+ *   header   int magic "CSRG", int version, int nodeCount, int edgeCount, int sourceId, int destinationId
+ *   int[]    ids (nodeCount), offsets (nodeCount + 1), targets (edgeCount)
+ *   padding  to an 8-byte boundary
+ *   double[] weights (edgeCount)
+ *   int[]    x (nodeCount), y (nodeCount)
+ * The loader maps the file with FileChannel.map and bulk-copies each section straight into the
+ * CsrGraph arrays, so there is no parsing at all and the page cache holding the file is shared
+ * between processes. A single mapping limits files to 2 GB.
+ */
+public final class BinaryGraph {
+
+    private static final int FILE_MAGIC = 0x47525343; // "CSRG" read little-endian
+    private static final int VERSION = 1;
+    private static final int HEADER_BYTES = 6 * Integer.BYTES;
+
+    private BinaryGraph() {}
+
+    /**
+     * Parses a text graph file and writes it in the binary format
+     */
+    public static void convert(String textFile, String binaryFile) throws IOException {
+        write(CsrGraph.fromGraph(Graph.parseGraph(textFile)), binaryFile);
+    }
+
+    public static void write(CsrGraph graph, String filename) throws IOException {
+        int n = graph.nodeCount;
+        int m = graph.edgeCount;
+        long size = fileSize(n, m);
+        if (size > Integer.MAX_VALUE) {
+            throw new IOException("Graph is too large for a single mapped file: " + graph);
+        }
+
+        try (FileChannel channel = FileChannel.open(Paths.get(filename), StandardOpenOption.CREATE,
+                StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.READ, StandardOpenOption.WRITE)) {
+            MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_WRITE, 0, size);
+            buffer.order(ByteOrder.LITTLE_ENDIAN);
+            buffer.putInt(FILE_MAGIC).putInt(VERSION).putInt(n).putInt(m)
+                  .putInt(graph.sourceId).putInt(graph.destinationId);
+            slice(buffer, HEADER_BYTES).asIntBuffer().put(graph.ids).put(graph.offsets).put(graph.targets);
+            slice(buffer, weightsPosition(n, m)).asDoubleBuffer().put(graph.weights);
+            slice(buffer, weightsPosition(n, m) + (long) Double.BYTES * m).asIntBuffer().put(graph.x).put(graph.y);
+            buffer.force();
+        }
+    }
+
+    /**
+     * Memory-maps a binary graph file and builds the CsrGraph from it
+     * @throws IOException If the file is missing, truncated or not in this format
+     */
+    public static CsrGraph load(String filename) throws IOException {
+        try (FileChannel channel = FileChannel.open(Paths.get(filename), StandardOpenOption.READ)) {
+            long size = channel.size();
+            if (size < HEADER_BYTES) {
+                throw new IOException("Not a binary graph file: " + filename);
+            }
+            MappedByteBuffer mapped = channel.map(FileChannel.MapMode.READ_ONLY, 0, size);
+            mapped.order(ByteOrder.LITTLE_ENDIAN);
+
+            if (mapped.getInt(0) != FILE_MAGIC) {
+                throw new IOException("Not a binary graph file: " + filename);
+            }
+            if (mapped.getInt(4) != VERSION) {
+                throw new IOException("Unsupported binary graph version " + mapped.getInt(4) + ": " + filename);
+            }
+            int n = mapped.getInt(8);
+            int m = mapped.getInt(12);
+            int sourceId = mapped.getInt(16);
+            int destinationId = mapped.getInt(20);
+            if (n < 0 || m < 0 || size != fileSize(n, m) || size > Integer.MAX_VALUE) {
+                throw new IOException("Truncated or corrupt binary graph file: " + filename);
+            }
+
+            int[] ids = new int[n];
+            int[] offsets = new int[n + 1];
+            int[] targets = new int[m];
+            double[] weights = new double[m];
+            int[] x = new int[n];
+            int[] y = new int[n];
+
+            IntBuffer ints = slice(mapped, HEADER_BYTES).asIntBuffer();
+            ints.get(ids).get(offsets).get(targets);
+            slice(mapped, weightsPosition(n, m)).asDoubleBuffer().get(weights);
+            slice(mapped, weightsPosition(n, m) + (long) Double.BYTES * m).asIntBuffer().get(x).get(y);
+
+            // One linear pass so a damaged file fails here rather than inside a search
+            if (offsets[0] != 0) throw new IOException("Corrupt binary graph file: " + filename);
+            for (int i = 0; i < n; i++) {
+                if (offsets[i] > offsets[i + 1] || (i > 0 && ids[i - 1] >= ids[i])) {
+                    throw new IOException("Corrupt binary graph file: " + filename);
+                }
+            }
+            for (int target : targets) {
+                if (target < 0 || target >= n) throw new IOException("Corrupt binary graph file: " + filename);
+            }
+            // The searches need weights that are not negative; NaN fails this too
+            for (double weight : weights) {
+                if (!(weight >= 0.0)) throw new IOException("Corrupt binary graph file: " + filename);
+            }
+
+            try {
+                return new CsrGraph(ids, offsets, targets, weights, x, y, sourceId, destinationId);
+            } catch (IllegalArgumentException e) {
+                throw new IOException("Corrupt binary graph file " + filename + ": " + e.getMessage());
+            }
+        }
+    }
+
+    private static ByteBuffer slice(MappedByteBuffer mapped, long position) {
+        return mapped.duplicate().position((int) position).slice().order(ByteOrder.LITTLE_ENDIAN);
+    }
+
+    private static long weightsPosition(int n, int m) {
+        long end = HEADER_BYTES + (long) Integer.BYTES * (2L * n + 1 + m);
+        return (end + 7) & ~7L;
+    }
+
+    private static long fileSize(int n, int m) {
+        return weightsPosition(n, m) + (long) Double.BYTES * m + (long) Integer.BYTES * 2 * n;
+    }
+
+    public static void main(String[] args) {
+        if (args.length != 2) {
+            System.out.println("Usage: java BinaryGraph <text graph file> <binary output file>");
+            return;
+        }
+        try {
+            long startTime = System.nanoTime();
+            convert(args[0], args[1]);
+            CsrGraph graph = load(args[1]);
+            System.out.printf(java.util.Locale.ROOT, "Wrote %s (%s) in %.3f s%n",
+                    args[1], graph, (System.nanoTime() - startTime) / 1e9);
+        } catch (IOException e) {
+            System.err.println("Failed to convert graph file: " + e.getMessage());
+        }
+    }
+}
@@ -0,0 +1,412 @@
+import java.io.*;
+import java.util.*;
+
+/**
+ * Contraction Hierarchies for static undirected graphs
+ * build() contracts nodes one by one in edge-difference order and inserts a shortcut u-w
+ * whenever the path u-v-w through the contracted node v has no shorter witness. The result
+ * keeps, for every node, only the edges to higher-ranked nodes (the upward graph); a query is
+ * a bidirectional Dijkstra that only walks upward from both ends. Shortcuts remember the node
+ * they bypass, so the found path is unpacked back into original graph nodes.
+ */
+public final class ContractionHierarchy {
+
+    private static final int FILE_MAGIC = 0x43483031; // "CH01"
+
+    // Witness searches give up after settling this many nodes; a missed witness only adds a redundant shortcut.
+    // Priority estimates run far more often than contractions, so they use a cheaper limit.
+    private static final int WITNESS_SETTLE_LIMIT = 500;
+    private static final int ESTIMATE_SETTLE_LIMIT = 20;
+
+    public final int nodeCount;
+    private final int[] ids;
+    private final int[] ranks;
+    // Upward graph in CSR form; middles[e] is the bypassed node of a shortcut, -1 for original edges
+    private final int[] offsets;
+    private final int[] targets;
+    private final double[] weights;
+    private final int[] middles;
+
+    private ContractionHierarchy(int[] ids, int[] ranks, int[] offsets, int[] targets,
+                                 double[] weights, int[] middles) {
+        this.nodeCount = ids.length;
+        this.ids = ids;
+        this.ranks = ranks;
+        this.offsets = offsets;
+        this.targets = targets;
+        this.weights = weights;
+        this.middles = middles;
+    }
+
+    public static ContractionHierarchy build(Types.Graph graph) {
+        return build(CsrGraph.fromGraph(graph));
+    }
+
+    /**
+     * Contracts every node of the graph; this is the slow offline step, run once per graph
+     */
+    public static ContractionHierarchy build(CsrGraph graph) {
+        return new Builder(graph).contractAll();
+    }
+
+    public int shortcutCount() {
+        int count = 0;
+        for (int middle : middles) if (middle >= 0) count++;
+        return count;
+    }
+
+    public Types.PathResult query(int startNode, int targetNode) {
+        return query(startNode, targetNode, new SearchWorkspace(nodeCount), new SearchWorkspace(nodeCount));
+    }
+
+    /**
+     * Shortest path between two original node ids
+     * @param forward Workspace for the upward search from the start
+     * @param backward Workspace for the upward search from the target, must be a different instance
+     */
+    public Types.PathResult query(int startNode, int targetNode, SearchWorkspace forward, SearchWorkspace backward) {
+        long startTime = System.nanoTime();
+
+        if (forward == backward) {
+            throw new IllegalArgumentException("Forward and backward workspaces must differ");
+        }
+        if (forward.capacity() < nodeCount || backward.capacity() < nodeCount) {
+            throw new IllegalArgumentException("Workspace is smaller than the graph");
+        }
+
+        int start = indexOf(startNode);
+        int target = indexOf(targetNode);
+        if (start < 0 || target < 0) {
+            double executionTime = (System.nanoTime() - startTime) / 1e9;
+            return new Types.PathResult(false, 0.0, Collections.emptyList(), 0, 1, 1, executionTime);
+        }
+
+        forward.reset();
+        backward.reset();
+        forward.set(start, 0.0, -1);
+        forward.open.push(start, 0.0);
+        backward.set(target, 0.0, -1);
+        backward.open.push(target, 0.0);
+
+        int totalPushes = 2;
+        int expandedForward = 0;
+        int expandedBackward = 0;
+        int maxQueueSize = 2;
+        double best = Double.POSITIVE_INFINITY;
+        int meeting = -1;
+
+        while (true) {
+            // A direction is finished once its smallest key cannot improve the best path
+            boolean forwardDone = forward.open.isEmpty() || forward.open.peekKey() >= best;
+            boolean backwardDone = backward.open.isEmpty() || backward.open.peekKey() >= best;
+            if (forwardDone && backwardDone) break;
+
+            boolean expandForward = backwardDone
+                    || (!forwardDone && forward.open.peekKey() <= backward.open.peekKey());
+            SearchWorkspace self = expandForward ? forward : backward;
+            SearchWorkspace other = expandForward ? backward : forward;
+
+            int current = self.open.pop();
+            double currentG = self.g(current);
+            if (expandForward) expandedForward++; else expandedBackward++;
+
+            if (other.reached(current) && currentG + other.g(current) < best) {
+                best = currentG + other.g(current);
+                meeting = current;
+            }
+
+            for (int e = offsets[current], end = offsets[current + 1]; e < end; e++) {
+                int next = targets[e];
+                double newG = currentG + weights[e];
+                if (newG < self.g(next)) {
+                    self.set(next, newG, current);
+                    self.open.push(next, newG);
+                    totalPushes++;
+                }
+            }
+
+            int frontier = forward.open.size() + backward.open.size();
+            if (frontier > maxQueueSize) maxQueueSize = frontier;
+        }
+
+        Types.PathResult result;
+        if (meeting < 0) {
+            double executionTime = (System.nanoTime() - startTime) / 1e9;
+            result = new Types.PathResult(false, 0.0, Collections.emptyList(),
+                    expandedForward + expandedBackward, totalPushes, maxQueueSize, executionTime);
+        } else {
+            // Upward node sequence start..meeting..target, then every shortcut is unpacked
+            List<Integer> upward = new ArrayList<>();
+            for (int node = meeting; node != -1; node = forward.parent(node)) upward.add(node);
+            Collections.reverse(upward);
+            for (int node = backward.parent(meeting); node != -1; node = backward.parent(node)) upward.add(node);
+
+            List<Integer> path = new ArrayList<>();
+            path.add(ids[upward.get(0)]);
+            for (int i = 0; i + 1 < upward.size(); i++) {
+                unpack(upward.get(i), upward.get(i + 1), path);
+            }
+            double executionTime = (System.nanoTime() - startTime) / 1e9;
+            result = new Types.PathResult(true, best, path,
+                    expandedForward + expandedBackward, totalPushes, maxQueueSize, executionTime);
+        }
+        result.expandedForward = expandedForward;
+        result.expandedBackward = expandedBackward;
+        return result;
+    }
+
+    // Appends the original nodes after a (exclusive) up to b (inclusive) for the edge a-b
+    private void unpack(int a, int b, List<Integer> path) {
+        Deque<int[]> stack = new ArrayDeque<>();
+        stack.push(new int[]{a, b});
+        while (!stack.isEmpty()) {
+            int[] edge = stack.pop();
+            int middle = middle(edge[0], edge[1]);
+            if (middle < 0) {
+                path.add(ids[edge[1]]);
+            } else {
+                // Second half is pushed first so the first half is unpacked first
+                stack.push(new int[]{middle, edge[1]});
+                stack.push(new int[]{edge[0], middle});
+            }
+        }
+    }
+
+    // Every edge is stored once, at its lower-ranked endpoint
+    private int middle(int a, int b) {
+        int low = ranks[a] < ranks[b] ? a : b;
+        int high = low == a ? b : a;
+        for (int e = offsets[low], end = offsets[low + 1]; e < end; e++) {
+            if (targets[e] == high) return middles[e];
+        }
+        throw new IllegalStateException("Missing hierarchy edge " + ids[a] + "-" + ids[b]);
+    }
+
+    private int indexOf(int id) {
+        int index = Arrays.binarySearch(ids, id);
+        return index >= 0 ? index : -1;
+    }
+
+    public void save(String filename) throws IOException {
+        try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(filename)))) {
+            out.writeInt(FILE_MAGIC);
+            out.writeInt(nodeCount);
+            out.writeInt(targets.length);
+            for (int i = 0; i < nodeCount; i++) {
+                out.writeInt(ids[i]);
+                out.writeInt(ranks[i]);
+                out.writeInt(offsets[i + 1]);
+            }
+            for (int e = 0; e < targets.length; e++) {
+                out.writeInt(targets[e]);
+                out.writeDouble(weights[e]);
+                out.writeInt(middles[e]);
+            }
+        }
+    }
+
+    public static ContractionHierarchy load(String filename) throws IOException {
+        try (DataInputStream in = new DataInputStream(new BufferedInputStream(new FileInputStream(filename)))) {
+            if (in.readInt() != FILE_MAGIC) {
+                throw new IOException("Not a contraction hierarchy file: " + filename);
+            }
+            int n = in.readInt();
+            int m = in.readInt();
+            int[] ids = new int[n];
+            int[] ranks = new int[n];
+            int[] offsets = new int[n + 1];
+            for (int i = 0; i < n; i++) {
+                ids[i] = in.readInt();
+                ranks[i] = in.readInt();
+                offsets[i + 1] = in.readInt();
+            }
+            int[] targets = new int[m];
+            double[] weights = new double[m];
+            int[] middles = new int[m];
+            for (int e = 0; e < m; e++) {
+                targets[e] = in.readInt();
+                weights[e] = in.readDouble();
+                middles[e] = in.readInt();
+            }
+            return new ContractionHierarchy(ids, ranks, offsets, targets, weights, middles);
+        }
+    }
+
+    /**
+     * Contraction state: a mutable undirected adjacency that receives shortcuts
+     */
+    private static final class Builder {
+        private final CsrGraph graph;
+        private final int n;
+        private final int[][] adjTo;
+        private final double[][] adjWeight;
+        private final int[][] adjMiddle;
+        private final int[] adjSize;
+        private final int[] contractedNeighbors;
+        private final SearchWorkspace witness;
+
+        Builder(CsrGraph graph) {
+            this.graph = graph;
+            this.n = graph.nodeCount;
+            this.adjTo = new int[n][];
+            this.adjWeight = new double[n][];
+            this.adjMiddle = new int[n][];
+            this.adjSize = new int[n];
+            this.contractedNeighbors = new int[n];
+            this.witness = new SearchWorkspace(n);
+            for (int v = 0; v < n; v++) {
+                int degree = Math.max(1, graph.degree(v));
+                adjTo[v] = new int[degree];
+                adjWeight[v] = new double[degree];
+                adjMiddle[v] = new int[degree];
+            }
+            for (int v = 0; v < n; v++) {
+                for (int e = graph.offsets[v]; e < graph.offsets[v + 1]; e++) {
+                    if (graph.targets[e] != v) addEdge(v, graph.targets[e], graph.weights[e], -1);
+                }
+            }
+        }
+
+        ContractionHierarchy contractAll() {
+            IndexedHeap queue = new IndexedHeap(n);
+            for (int v = 0; v < n; v++) queue.push(v, priority(v));
+
+            int[] ranks = new int[n];
+            int rank = 0;
+            while (!queue.isEmpty()) {
+                // Lazy update: re-evaluate the top node and contract it only if it is still the minimum
+                int v = queue.peek();
+                queue.push(v, priority(v));
+                if (queue.peek() != v) continue;
+                queue.pop();
+                contract(v);
+                ranks[v] = rank++;
+                for (int i = 0; i < adjSize[v]; i++) {
+                    int u = adjTo[v][i];
+                    contractedNeighbors[u]++;
+                    queue.push(u, priority(u));
+                }
+            }
+            return upwardGraph(ranks);
+        }
+
+        // Edge difference plus the number of already contracted neighbors, for a more uniform order
+        private double priority(int v) {
+            return shortcuts(v, false) - adjSize[v] + contractedNeighbors[v];
+        }
+
+        // Removes v from its neighbors' lists; v keeps its own list, which then holds exactly its upward edges
+        private void contract(int v) {
+            shortcuts(v, true);
+            for (int i = 0; i < adjSize[v]; i++) removeEdge(adjTo[v][i], v);
+        }
+
+        // Counts (and with insert=true adds) the shortcuts needed to remove v from the remaining graph
+        private int shortcuts(int v, boolean insert) {
+            int count = 0;
+            int[] to = adjTo[v];
+            double[] weight = adjWeight[v];
+            int size = adjSize[v];
+            double maxWeight = 0.0;
+            for (int i = 0; i < size; i++) maxWeight = Math.max(maxWeight, weight[i]);
+            // Neighbor lists only hold uncontracted nodes (see contract), so no filtering is needed here
+            for (int i = 0; i + 1 < size; i++) {
+                int u = to[i];
+                witnessSearch(u, v, weight[i] + maxWeight, insert ? WITNESS_SETTLE_LIMIT : ESTIMATE_SETTLE_LIMIT);
+                for (int j = i + 1; j < size; j++) {
+                    int w = to[j];
+                    double via = weight[i] + weight[j];
+                    if (witness.g(w) <= via) continue;
+                    count++;
+                    if (insert) {
+                        addEdge(u, w, via, v);
+                        addEdge(w, u, via, v);
+                    }
+                }
+            }
+            return count;
+        }
+
+        // Bounded Dijkstra from source over the remaining graph, never passing through skip
+        private void witnessSearch(int source, int skip, double limit, int settleLimit) {
+            witness.reset();
+            witness.set(source, 0.0, -1);
+            witness.open.push(source, 0.0);
+            int settled = 0;
+            while (!witness.open.isEmpty() && settled < settleLimit) {
+                int current = witness.open.pop();
+                double currentG = witness.g(current);
+                if (currentG > limit) break;
+                settled++;
+                for (int i = 0; i < adjSize[current]; i++) {
+                    int next = adjTo[current][i];
+                    if (next == skip) continue;
+                    double newG = currentG + adjWeight[current][i];
+                    if (newG < witness.g(next)) {
+                        witness.set(next, newG, current);
+                        witness.open.push(next, newG);
+                    }
+                }
+            }
+        }
+
+        // Adds the directed half u->w, keeping only the lightest edge per node pair
+        private void addEdge(int u, int w, double weight, int middle) {
+            for (int i = 0; i < adjSize[u]; i++) {
+                if (adjTo[u][i] == w) {
+                    if (weight < adjWeight[u][i]) {
+                        adjWeight[u][i] = weight;
+                        adjMiddle[u][i] = middle;
+                    }
+                    return;
+                }
+            }
+            if (adjSize[u] == adjTo[u].length) {
+                int capacity = adjTo[u].length * 2;
+                adjTo[u] = Arrays.copyOf(adjTo[u], capacity);
+                adjWeight[u] = Arrays.copyOf(adjWeight[u], capacity);
+                adjMiddle[u] = Arrays.copyOf(adjMiddle[u], capacity);
+            }
+            adjTo[u][adjSize[u]] = w;
+            adjWeight[u][adjSize[u]] = weight;
+            adjMiddle[u][adjSize[u]] = middle;
+            adjSize[u]++;
+        }
+
+        private void removeEdge(int u, int w) {
+            for (int i = 0; i < adjSize[u]; i++) {
+                if (adjTo[u][i] == w) {
+                    int last = --adjSize[u];
+                    adjTo[u][i] = adjTo[u][last];
+                    adjWeight[u][i] = adjWeight[u][last];
+                    adjMiddle[u][i] = adjMiddle[u][last];
+                    return;
+                }
+            }
+        }
+
+        private ContractionHierarchy upwardGraph(int[] ranks) {
+            int[] offsets = new int[n + 1];
+            for (int v = 0; v < n; v++) {
+                int up = 0;
+                for (int i = 0; i < adjSize[v]; i++) if (ranks[adjTo[v][i]] > ranks[v]) up++;
+                offsets[v + 1] = offsets[v] + up;
+            }
+            int[] targets = new int[offsets[n]];
+            double[] weights = new double[offsets[n]];
+            int[] middles = new int[offsets[n]];
+            for (int v = 0; v < n; v++) {
+                int e = offsets[v];
+                for (int i = 0; i < adjSize[v]; i++) {
+                    if (ranks[adjTo[v][i]] > ranks[v]) {
+                        targets[e] = adjTo[v][i];
+                        weights[e] = adjWeight[v][i];
+                        middles[e] = adjMiddle[v][i];
+                        e++;
+                    }
+                }
+            }
+            return new ContractionHierarchy(graph.ids.clone(), ranks, offsets, targets, weights, middles);
+        }
+    }
+}
@@ -0,0 +1,128 @@
+import java.util.*;
+
+/**
+ * Compressed sparse row (CSR) graph representation
+ * Immutable array-backed copy of a parsed Types.Graph with dense node indices.
+ * Neighbors of index i are targets[offsets[i] .. offsets[i + 1] - 1].
+ */
+public final class CsrGraph {
+
+    public final int nodeCount;
+    public final int edgeCount;
+
+    /** Dense index -> original node id, sorted ascending */
+    public final int[] ids;
+    public final int[] offsets;
+    public final int[] targets;
+    public final double[] weights;
+    public final int[] x;
+    public final int[] y;
+
+    /** Dense indices of source and destination, -1 when missing */
+    public final int source;
+    public final int destination;
+
+    /** Original ids of source and destination, as read from the input */
+    public final int sourceId;
+    public final int destinationId;
+
+    /**
+     * Wraps already built CSR arrays. The arrays are taken as-is and must not be modified afterwards.
+     * @param ids Original node ids in ascending order
+     * @param offsets Row offsets, length ids.length + 1
+     */
+    public CsrGraph(int[] ids, int[] offsets, int[] targets, double[] weights,
+                    int[] x, int[] y, int sourceId, int destinationId) {
+        if (offsets.length != ids.length + 1 || x.length != ids.length || y.length != ids.length
+                || targets.length != weights.length || offsets[ids.length] != targets.length) {
+            throw new IllegalArgumentException("Inconsistent CSR array lengths");
+        }
+        this.nodeCount = ids.length;
+        this.edgeCount = targets.length;
+        this.ids = ids;
+        this.offsets = offsets;
+        this.targets = targets;
+        this.weights = weights;
+        this.x = x;
+        this.y = y;
+        this.sourceId = sourceId;
+        this.destinationId = destinationId;
+        this.source = indexOf(sourceId);
+        this.destination = indexOf(destinationId);
+    }
+
+    /**
+     * Builds a CSR graph from a parsed graph.
+     * Nodes referenced only by edges are kept, with coordinates (0, 0).
+     * Edge order inside each adjacency list is preserved.
+     */
+    public static CsrGraph fromGraph(Types.Graph graph) {
+        TreeSet<Integer> allIds = new TreeSet<>(graph.nodes.keySet());
+        for (Map.Entry<Integer, List<Types.Edge>> entry : graph.adj.entrySet()) {
+            allIds.add(entry.getKey());
+            for (Types.Edge edge : entry.getValue()) allIds.add(edge.to);
+        }
+
+        int n = allIds.size();
+        int[] ids = new int[n];
+        int[] x = new int[n];
+        int[] y = new int[n];
+        int i = 0;
+        for (int id : allIds) {
+            ids[i] = id;
+            Types.Node node = graph.nodes.get(id);
+            if (node != null) {
+                x[i] = node.x;
+                y[i] = node.y;
+            }
+            i++;
+        }
+
+        int[] offsets = new int[n + 1];
+        for (i = 0; i < n; i++) {
+            List<Types.Edge> edges = graph.adj.get(ids[i]);
+            offsets[i + 1] = offsets[i] + (edges == null ? 0 : edges.size());
+        }
+
+        int[] targets = new int[offsets[n]];
+        double[] weights = new double[offsets[n]];
+        for (i = 0; i < n; i++) {
+            List<Types.Edge> edges = graph.adj.get(ids[i]);
+            if (edges == null) continue;
+            int e = offsets[i];
+            for (Types.Edge edge : edges) {
+                targets[e] = Arrays.binarySearch(ids, edge.to);
+                weights[e] = edge.weight;
+                e++;
+            }
+        }
+
+        return new CsrGraph(ids, offsets, targets, weights, x, y, graph.source, graph.destination);
+    }
+
+    /**
+     * Maps an original node id to its dense index
+     * @return Dense index, or -1 if the id is not in the graph
+     */
+    public int indexOf(int id) {
+        int index = Arrays.binarySearch(ids, id);
+        return index >= 0 ? index : -1;
+    }
+
+    /**
+     * Maps a dense index back to the original node id
+     */
+    public int idOf(int index) {
+        return ids[index];
+    }
+
+    public int degree(int index) {
+        return offsets[index + 1] - offsets[index];
+    }
+
+    @Override
+    public String toString() {
+        return String.format("CsrGraph{nodes=%d, edges=%d, source=%d, destination=%d}",
+                nodeCount, edgeCount / 2, sourceId, destinationId);
+    }
+}
@@ -0,0 +1,330 @@
+import java.util.*;
+
+/**
+ * Incremental replanning with D* Lite on a CsrGraph whose edge weights can change
+ * The search runs backward from the goal and keeps its g/rhs values between queries. After
+ * updateEdgeWeight() only the nodes whose distance to the goal actually changed are
+ * re-expanded, instead of searching from scratch. moveStart() lets the start follow an agent
+ * along the route (with a fixed start this is Lifelong Planning A*).
+ * Weights are copied from the graph, which itself stays unchanged. The heuristic must stay
+ * admissible for the updated weights, so coordinate heuristics require that weights never drop
+ * below the coordinate distance; Heuristics::hZero is always safe.
+ */
+public final class DStarLite {
+
+    private final CsrGraph graph;
+    private final AStarProgram.IndexHeuristic heuristic;
+    private final double[] weights;
+    private final double[] g;
+    private final double[] rhs;
+    private final KeyHeap open;
+    // Path extraction scratch space, reused across calls
+    private final int[] visited;
+    private final int[] stack;
+    private final int[] cursor;
+    private int walkStamp;
+    private final int goal;
+    private int start;
+    // Heuristic distance the start has moved in total; added to new keys so that keys computed
+    // for an earlier start stay lower bounds and the queue order stays valid
+    private double km;
+    private long version;
+
+    // Counters of the current computePath() call
+    private int expanded;
+    private int pushes;
+    private int maxFrontier;
+
+    public DStarLite(CsrGraph graph, int startNode, int goalNode, AStarProgram.IndexHeuristic heuristic) {
+        this.graph = graph;
+        this.heuristic = heuristic;
+        this.start = graph.indexOf(startNode);
+        this.goal = graph.indexOf(goalNode);
+        if (start < 0 || goal < 0) {
+            throw new IllegalArgumentException("Start or goal node is not in the graph");
+        }
+        this.weights = graph.weights.clone();
+        this.g = new double[graph.nodeCount];
+        this.rhs = new double[graph.nodeCount];
+        Arrays.fill(g, Double.POSITIVE_INFINITY);
+        Arrays.fill(rhs, Double.POSITIVE_INFINITY);
+        this.open = new KeyHeap(graph.nodeCount);
+        this.visited = new int[graph.nodeCount];
+        this.stack = new int[graph.nodeCount];
+        this.cursor = new int[graph.nodeCount];
+        rhs[goal] = 0.0;
+        open.push(goal, heuristic.h(graph, start, goal), 0.0);
+    }
+
+    /**
+     * Changes the weight of every edge between two nodes, in both directions
+     * @return false if the nodes are not adjacent
+     */
+    public boolean updateEdgeWeight(int fromNode, int toNode, double weight) {
+        if (weight < 0) throw new IllegalArgumentException("Edge weights must be non-negative");
+        int u = graph.indexOf(fromNode);
+        int v = graph.indexOf(toNode);
+        if (u < 0 || v < 0) return false;
+        boolean changed = setWeight(u, v, weight) | setWeight(v, u, weight);
+        if (!changed) return false;
+        version++;
+        updateVertex(u);
+        updateVertex(v);
+        return true;
+    }
+
+    /**
+     * Moves the start, e.g. when the agent has advanced along the route
+     * Keys in the queue were computed with h from the old start; they can overestimate by at
+     * most h(old, new), which km adds to every key computed from now on.
+     */
+    public void moveStart(int startNode) {
+        int index = graph.indexOf(startNode);
+        if (index < 0) throw new IllegalArgumentException("Start node is not in the graph");
+        km += heuristic.h(graph, start, index);
+        start = index;
+    }
+
+    /**
+     * Number of weight changes applied so far, usable as PathCache graph version
+     */
+    public long version() {
+        return version;
+    }
+
+    public double weight(int fromNode, int toNode) {
+        int u = graph.indexOf(fromNode);
+        int v = graph.indexOf(toNode);
+        double best = Double.POSITIVE_INFINITY;
+        if (u < 0 || v < 0) return best;
+        for (int e = graph.offsets[u]; e < graph.offsets[u + 1]; e++) {
+            if (graph.targets[e] == v) best = Math.min(best, weights[e]);
+        }
+        return best;
+    }
+
+    /**
+     * Repairs the search tree after the changes since the last call and returns the current path.
+     * The first call does a full backward search; the counters only cover the work of this call.
+     */
+    public Types.PathResult computePath() {
+        long startTime = System.nanoTime();
+        expanded = 0;
+        pushes = 0;
+        maxFrontier = open.size();
+
+        while (!open.isEmpty()) {
+            double startK1 = Math.min(g[start], rhs[start]) + km;
+            double startK2 = Math.min(g[start], rhs[start]);
+            boolean topBelowStart = open.topK1() < startK1 || (open.topK1() == startK1 && open.topK2() < startK2);
+            if (!topBelowStart && rhs[start] == g[start]) break;
+
+            double oldK1 = open.topK1();
+            double oldK2 = open.topK2();
+            int u = open.pop();
+            double newK2 = Math.min(g[u], rhs[u]);
+            double newK1 = newK2 + heuristic.h(graph, start, u) + km;
+            if (oldK1 < newK1 || (oldK1 == newK1 && oldK2 < newK2)) {
+                push(u, newK1, newK2);
+                continue;
+            }
+
+            expanded++;
+            if (g[u] > rhs[u]) {
+                g[u] = rhs[u];
+                for (int e = graph.offsets[u]; e < graph.offsets[u + 1]; e++) updateVertex(graph.targets[e]);
+            } else {
+                g[u] = Double.POSITIVE_INFINITY;
+                updateVertex(u);
+                for (int e = graph.offsets[u]; e < graph.offsets[u + 1]; e++) updateVertex(graph.targets[e]);
+            }
+            if (open.size() > maxFrontier) maxFrontier = open.size();
+        }
+
+        double executionTime;
+        if (g[start] == Double.POSITIVE_INFINITY) {
+            executionTime = (System.nanoTime() - startTime) / 1e9;
+            return new Types.PathResult(false, 0.0, Collections.emptyList(), expanded, pushes, maxFrontier, executionTime);
+        }
+
+        List<Integer> path = extractPath();
+        if (path == null) {
+            executionTime = (System.nanoTime() - startTime) / 1e9;
+            return new Types.PathResult(false, 0.0, Collections.emptyList(), expanded, pushes, maxFrontier, executionTime);
+        }
+        executionTime = (System.nanoTime() - startTime) / 1e9;
+        return new Types.PathResult(true, g[start], path, expanded, pushes, maxFrontier, executionTime);
+    }
+
+    // Depth-first walk from the start along edges with weight + g(next) <= g(node). With positive
+    // weights this never backtracks; the visited marks only matter for zero-weight ties.
+    private List<Integer> extractPath() {
+        if (++walkStamp == Integer.MAX_VALUE) {
+            Arrays.fill(visited, 0);
+            walkStamp = 1;
+        }
+        int depth = 0;
+        stack[0] = start;
+        cursor[0] = graph.offsets[start];
+        visited[start] = walkStamp;
+        while (depth >= 0 && stack[depth] != goal) {
+            int node = stack[depth];
+            int next = -1;
+            while (cursor[depth] < graph.offsets[node + 1]) {
+                int e = cursor[depth]++;
+                int candidate = graph.targets[e];
+                if (visited[candidate] != walkStamp && weights[e] + g[candidate] <= g[node]) {
+                    next = candidate;
+                    break;
+                }
+            }
+            if (next < 0) {
+                depth--;
+                continue;
+            }
+            visited[next] = walkStamp;
+            stack[++depth] = next;
+            cursor[depth] = graph.offsets[next];
+        }
+        if (depth < 0) return null;
+        List<Integer> path = new ArrayList<>(depth + 1);
+        for (int i = 0; i <= depth; i++) path.add(graph.idOf(stack[i]));
+        return path;
+    }
+
+    private boolean setWeight(int u, int v, double weight) {
+        boolean changed = false;
+        for (int e = graph.offsets[u]; e < graph.offsets[u + 1]; e++) {
+            if (graph.targets[e] == v && weights[e] != weight) {
+                weights[e] = weight;
+                changed = true;
+            }
+        }
+        return changed;
+    }
+
+    private void updateVertex(int u) {
+        if (u != goal) {
+            double best = Double.POSITIVE_INFINITY;
+            for (int e = graph.offsets[u]; e < graph.offsets[u + 1]; e++) {
+                best = Math.min(best, weights[e] + g[graph.targets[e]]);
+            }
+            rhs[u] = best;
+        }
+        open.remove(u);
+        if (g[u] != rhs[u]) {
+            double k2 = Math.min(g[u], rhs[u]);
+            push(u, k2 + heuristic.h(graph, start, u) + km, k2);
+        }
+    }
+
+    private void push(int node, double k1, double k2) {
+        open.push(node, k1, k2);
+        pushes++;
+    }
+
+    /**
+     * Indexed binary min-heap ordered lexicographically by (k1, k2), as D* Lite requires
+     */
+    private static final class KeyHeap {
+        private final int[] nodes;
+        private final double[] k1;
+        private final double[] k2;
+        private final int[] positions;
+        private int size;
+
+        KeyHeap(int capacity) {
+            nodes = new int[capacity];
+            k1 = new double[capacity];
+            k2 = new double[capacity];
+            positions = new int[capacity];
+            Arrays.fill(positions, -1);
+        }
+
+        int size() {
+            return size;
+        }
+
+        boolean isEmpty() {
+            return size == 0;
+        }
+
+        double topK1() {
+            return k1[0];
+        }
+
+        double topK2() {
+            return k2[0];
+        }
+
+        void push(int node, double key1, double key2) {
+            remove(node);
+            int slot = size++;
+            nodes[slot] = node;
+            k1[slot] = key1;
+            k2[slot] = key2;
+            positions[node] = slot;
+            siftUp(slot);
+        }
+
+        int pop() {
+            int top = nodes[0];
+            remove(top);
+            return top;
+        }
+
+        void remove(int node) {
+            int slot = positions[node];
+            if (slot < 0) return;
+            positions[node] = -1;
+            size--;
+            if (slot == size) return;
+            int moved = nodes[size];
+            move(size, slot);
+            siftUp(slot);
+            siftDown(positions[moved]);
+        }
+
+        private boolean less(int a, int b) {
+            return k1[a] < k1[b] || (k1[a] == k1[b] && k2[a] < k2[b]);
+        }
+
+        private void siftUp(int slot) {
+            while (slot > 0) {
+                int parent = (slot - 1) >>> 1;
+                if (!less(slot, parent)) break;
+                swap(slot, parent);
+                slot = parent;
+            }
+        }
+
+        private void siftDown(int slot) {
+            while (true) {
+                int child = 2 * slot + 1;
+                if (child >= size) break;
+                if (child + 1 < size && less(child + 1, child)) child++;
+                if (!less(child, slot)) break;
+                swap(slot, child);
+                slot = child;
+            }
+        }
+
+        private void move(int from, int to) {
+            nodes[to] = nodes[from];
+            k1[to] = k1[from];
+            k2[to] = k2[from];
+            positions[nodes[to]] = to;
+        }
+
+        private void swap(int a, int b) {
+            int node = nodes[a];
+            double key1 = k1[a];
+            double key2 = k2[a];
+            move(b, a);
+            nodes[b] = node;
+            k1[b] = key1;
+            k2[b] = key2;
+            positions[node] = b;
+        }
+    }
+}
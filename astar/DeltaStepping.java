@@ -0,0 +1,360 @@
+import java.util.*;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.function.IntConsumer;
+
+/**
+ * Parallel one-to-all shortest paths with delta-stepping on a CsrGraph
+ * Nodes are kept in buckets of width delta by tentative distance. All nodes of the lowest
+ * bucket are processed at once: their light edges (weight <= delta) are relaxed in parallel
+ * until the bucket stays empty, then their heavy edges once. Each round first collects the
+ * relax requests, then lowers distances with an atomic minimum, then records the parent of
+ * every node whose new distance came from that round.
+ * Distances are non-negative, so their IEEE bit patterns order the same way as the values
+ * and the atomic minimum is a compare-and-set loop on longs.
+ */
+public final class DeltaStepping {
+
+    // Frontier nodes (or requests) per fork/join leaf
+    private static final int LEAF_SIZE = 512;
+
+    /**
+     * Distances and parents by dense node index; nodes beyond the bound stay unreached
+     * (distance +infinity, parent -1)
+     */
+    public static class Result {
+        public int root;
+        public double[] distances;
+        public int[] parents;
+        public int reached;
+        public int buckets;     // non-empty buckets processed
+        public int rounds;      // parallel relax rounds
+        public long relaxations;
+        public int threads;
+        public double runtime_s;
+
+        public Result(int root, double[] distances, int[] parents, int reached, int buckets, int rounds,
+                      long relaxations, int threads, double runtime_s) {
+            this.root = root;
+            this.distances = distances;
+            this.parents = parents;
+            this.reached = reached;
+            this.buckets = buckets;
+            this.rounds = rounds;
+            this.relaxations = relaxations;
+            this.threads = threads;
+            this.runtime_s = runtime_s;
+        }
+
+        @Override
+        public String toString() {
+            return String.format(Locale.ROOT,
+                    "DeltaStepping{reached=%d, buckets=%d, rounds=%d, relaxations=%d, threads=%d, runtime_s=%.6f}",
+                    reached, buckets, rounds, relaxations, threads, runtime_s);
+        }
+    }
+
+    private final CsrGraph graph;
+    private final double delta;
+    private final double bound;
+    private final ForkJoinPool pool;
+
+    private final AtomicLongArray distances;
+    private final int[] parents;
+    private final ArrayList<IntList> buckets = new ArrayList<>();
+    // Stamps that deduplicate the frontier of a round and the settled set of a bucket
+    private final int[] roundStamp;
+    private final int[] bucketStamp;
+    private int round;
+    private long relaxations;
+
+    // One request buffer per leaf, reused across rounds
+    private IntList[] requestNodes = new IntList[0];
+    private IntList[] requestParents = new IntList[0];
+    private DoubleList[] requestDistances = new DoubleList[0];
+    private IntList[] improved = new IntList[0];
+
+    private DeltaStepping(CsrGraph graph, double delta, double bound, ForkJoinPool pool) {
+        this.graph = graph;
+        this.delta = delta;
+        this.bound = bound;
+        this.pool = pool;
+        this.distances = new AtomicLongArray(graph.nodeCount);
+        this.parents = new int[graph.nodeCount];
+        this.roundStamp = new int[graph.nodeCount];
+        this.bucketStamp = new int[graph.nodeCount];
+    }
+
+    /**
+     * All distances from a dense node index, on a temporary pool with one worker per core
+     */
+    public static Result compute(CsrGraph graph, int root) {
+        return compute(graph, root, Double.POSITIVE_INFINITY);
+    }
+
+    /**
+     * Distances up to a bound, e.g. for an isochrone; nodes farther away are left unreached
+     */
+    public static Result compute(CsrGraph graph, int root, double bound) {
+        ForkJoinPool pool = new ForkJoinPool(Runtime.getRuntime().availableProcessors());
+        try {
+            return compute(graph, root, defaultDelta(graph), bound, pool);
+        } finally {
+            pool.shutdown();
+        }
+    }
+
+    /**
+     * @param delta Bucket width; small values approach Dijkstra (little parallelism), large values
+     *              approach Bellman-Ford (many re-relaxations)
+     */
+    public static Result compute(CsrGraph graph, int root, double delta, double bound, ForkJoinPool pool) {
+        if (root < 0 || root >= graph.nodeCount) {
+            throw new IllegalArgumentException("Root is not a node index of the graph: " + root);
+        }
+        if (!(delta > 0) || Double.isInfinite(delta)) {
+            throw new IllegalArgumentException("Delta must be positive and finite");
+        }
+        if (bound < 0 || Double.isNaN(bound)) {
+            throw new IllegalArgumentException("Bound must be non-negative");
+        }
+        return new DeltaStepping(graph, delta, bound, pool).run(root);
+    }
+
+    /**
+     * Mean edge weight, which gives about one hop per bucket on uniform weights
+     */
+    public static double defaultDelta(CsrGraph graph) {
+        double sum = 0.0;
+        for (double weight : graph.weights) sum += weight;
+        double mean = graph.edgeCount > 0 ? sum / graph.edgeCount : 0.0;
+        return mean > 0 && !Double.isInfinite(mean) ? mean : 1.0;
+    }
+
+    private Result run(int root) {
+        long startTime = System.nanoTime();
+        int n = graph.nodeCount;
+        for (int v = 0; v < n; v++) distances.set(v, Double.doubleToLongBits(Double.POSITIVE_INFINITY));
+        Arrays.fill(parents, -1);
+        distances.set(root, Double.doubleToLongBits(0.0));
+        bucket(0).add(root);
+
+        int processedBuckets = 0;
+        int rounds = 0;
+        IntList frontier = new IntList();
+        IntList settled = new IntList();
+
+        for (int i = 0; i < buckets.size(); i++) {
+            if (i * delta > bound) break;
+            IntList current = buckets.get(i);
+            if (current == null || current.size == 0) continue;
+            processedBuckets++;
+            settled.clear();
+
+            // Light edges can put nodes back into this bucket, so repeat until it stays empty
+            while (current.size > 0) {
+                round++;
+                frontier.clear();
+                for (int k = 0; k < current.size; k++) {
+                    int v = current.items[k];
+                    if (roundStamp[v] == round || bucketIndex(distance(v)) != i) continue;
+                    roundStamp[v] = round;
+                    frontier.add(v);
+                    if (bucketStamp[v] != i + 1) {
+                        bucketStamp[v] = i + 1;
+                        settled.add(v);
+                    }
+                }
+                current.clear();
+                if (frontier.size == 0) break;
+                relax(frontier, true);
+                rounds++;
+            }
+            round++;
+            relax(settled, false);
+            rounds++;
+            buckets.set(i, null);
+        }
+
+        double[] result = new double[n];
+        int reached = 0;
+        for (int v = 0; v < n; v++) {
+            result[v] = distance(v);
+            if (result[v] != Double.POSITIVE_INFINITY) reached++;
+        }
+        double executionTime = (System.nanoTime() - startTime) / 1e9;
+        return new Result(root, result, parents, reached, processedBuckets, rounds, relaxations,
+                pool.getParallelism(), executionTime);
+    }
+
+    // One round: collect requests over the light or heavy edges of the nodes, apply them, rebucket
+    private void relax(IntList nodes, boolean light) {
+        int leaves = (nodes.size + LEAF_SIZE - 1) / LEAF_SIZE;
+        if (leaves == 0) return;
+        ensureLeaves(leaves);
+
+        forEachLeaf(leaves, leaf -> {
+            IntList targets = requestNodes[leaf];
+            IntList sources = requestParents[leaf];
+            DoubleList values = requestDistances[leaf];
+            targets.clear();
+            sources.clear();
+            values.clear();
+            int end = Math.min(nodes.size, (leaf + 1) * LEAF_SIZE);
+            for (int k = leaf * LEAF_SIZE; k < end; k++) {
+                int u = nodes.items[k];
+                double base = distance(u);
+                for (int e = graph.offsets[u]; e < graph.offsets[u + 1]; e++) {
+                    double weight = graph.weights[e];
+                    if ((weight <= delta) != light) continue;
+                    double candidate = base + weight;
+                    int v = graph.targets[e];
+                    if (candidate <= bound && candidate < distance(v)) {
+                        targets.add(v);
+                        sources.add(u);
+                        values.add(candidate);
+                    }
+                }
+            }
+        });
+
+        forEachLeaf(leaves, leaf -> {
+            IntList targets = requestNodes[leaf];
+            DoubleList values = requestDistances[leaf];
+            for (int k = 0; k < targets.size; k++) lower(targets.items[k], values.items[k]);
+        });
+
+        // After the minimum is final, a request that matches it is the parent; equal ties are all valid
+        forEachLeaf(leaves, leaf -> {
+            IntList targets = requestNodes[leaf];
+            IntList sources = requestParents[leaf];
+            DoubleList values = requestDistances[leaf];
+            IntList changed = improved[leaf];
+            changed.clear();
+            for (int k = 0; k < targets.size; k++) {
+                int v = targets.items[k];
+                if (distances.get(v) == Double.doubleToLongBits(values.items[k])) {
+                    parents[v] = sources.items[k];
+                    changed.add(v);
+                }
+            }
+        });
+
+        for (int leaf = 0; leaf < leaves; leaf++) {
+            relaxations += requestNodes[leaf].size;
+            IntList changed = improved[leaf];
+            for (int k = 0; k < changed.size; k++) {
+                int v = changed.items[k];
+                bucket(bucketIndex(distance(v))).add(v);
+            }
+        }
+    }
+
+    private void lower(int v, double value) {
+        long bits = Double.doubleToLongBits(value);
+        while (true) {
+            long current = distances.get(v);
+            if (bits >= current || distances.compareAndSet(v, current, bits)) return;
+        }
+    }
+
+    private double distance(int v) {
+        return Double.longBitsToDouble(distances.get(v));
+    }
+
+    private int bucketIndex(double distance) {
+        double index = Math.floor(distance / delta);
+        if (index >= Integer.MAX_VALUE - 8) {
+            throw new IllegalArgumentException("Delta is too small for the distances in this graph");
+        }
+        return (int) index;
+    }
+
+    private IntList bucket(int index) {
+        while (buckets.size() <= index) buckets.add(null);
+        IntList bucket = buckets.get(index);
+        if (bucket == null) {
+            bucket = new IntList();
+            buckets.set(index, bucket);
+        }
+        return bucket;
+    }
+
+    private void ensureLeaves(int leaves) {
+        if (requestNodes.length >= leaves) return;
+        int size = Math.max(leaves, requestNodes.length * 2);
+        int old = requestNodes.length;
+        requestNodes = Arrays.copyOf(requestNodes, size);
+        requestParents = Arrays.copyOf(requestParents, size);
+        requestDistances = Arrays.copyOf(requestDistances, size);
+        improved = Arrays.copyOf(improved, size);
+        for (int i = old; i < size; i++) {
+            requestNodes[i] = new IntList();
+            requestParents[i] = new IntList();
+            requestDistances[i] = new DoubleList();
+            improved[i] = new IntList();
+        }
+    }
+
+    // Runs the action for every leaf, in the pool unless there is only one leaf
+    private void forEachLeaf(int leaves, IntConsumer action) {
+        if (leaves == 1) {
+            action.accept(0);
+        } else {
+            pool.invoke(new LeafTask(action, 0, leaves));
+        }
+    }
+
+    private static final class LeafTask extends RecursiveAction {
+        private static final long serialVersionUID = 1L;
+
+        private final IntConsumer action;
+        private final int from;
+        private final int to;
+
+        LeafTask(IntConsumer action, int from, int to) {
+            this.action = action;
+            this.from = from;
+            this.to = to;
+        }
+
+        @Override
+        protected void compute() {
+            if (to - from == 1) {
+                action.accept(from);
+                return;
+            }
+            int middle = (from + to) >>> 1;
+            invokeAll(new LeafTask(action, from, middle), new LeafTask(action, middle, to));
+        }
+    }
+
+    private static final class IntList {
+        int[] items = new int[16];
+        int size;
+
+        void add(int value) {
+            if (size == items.length) items = Arrays.copyOf(items, size * 2);
+            items[size++] = value;
+        }
+
+        void clear() {
+            size = 0;
+        }
+    }
+
+    private static final class DoubleList {
+        double[] items = new double[16];
+        int size;
+
+        void add(double value) {
+            if (size == items.length) items = Arrays.copyOf(items, size * 2);
+            items[size++] = value;
+        }
+
+        void clear() {
+            size = 0;
+        }
+    }
+}
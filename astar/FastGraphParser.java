@@ -0,0 +1,480 @@
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.*;
+import java.util.Arrays;
+import java.util.stream.IntStream;
+
+/**
+ * Streaming parser for the text graph format, building a CsrGraph directly
+ * Accepts exactly the lines Graph.parseGraph accepts ("Vertex:"/"Edge:"/"Source:"/"Destination:"
+ * labels, "S,"/"D," short forms, plain "id,cell" and "u,v,w") but scans the bytes of a mapped
+ * file without creating a String or array per line. Large files are cut into chunks at line
+ * boundaries and parsed in parallel; chunks are merged in file order, so duplicate vertices,
+ * edge order and the last Source/Destination line behave as in the sequential parser.
+ * Numbers are expected in ASCII.
+ */
+public final class FastGraphParser {
+
+    // Files smaller than this are parsed as a single chunk
+    private static final long MIN_PARALLEL_BYTES = 1 << 20;
+    // A single mapping cannot exceed 2 GB
+    private static final long MAX_CHUNK_BYTES = 1L << 30;
+
+    // Every power of ten up to 1e22 is exactly representable as a double
+    private static final double[] POWERS_OF_TEN = {
+        1e0, 1e1, 1e2, 1e3, 1e4, 1e5, 1e6, 1e7, 1e8, 1e9, 1e10, 1e11,
+        1e12, 1e13, 1e14, 1e15, 1e16, 1e17, 1e18, 1e19, 1e20, 1e21, 1e22
+    };
+
+    private FastGraphParser() {}
+
+    public static CsrGraph parse(String filename) throws IOException {
+        return parse(filename, Runtime.getRuntime().availableProcessors());
+    }
+
+    /**
+     * @param threads Number of chunks to parse in parallel; 1 parses sequentially
+     */
+    public static CsrGraph parse(String filename, int threads) throws IOException {
+        try (FileChannel channel = FileChannel.open(Paths.get(filename), StandardOpenOption.READ)) {
+            long size = channel.size();
+            int chunks = size < MIN_PARALLEL_BYTES ? 1 : Math.max(1, threads);
+            chunks = (int) Math.max(chunks, (size + MAX_CHUNK_BYTES - 1) / MAX_CHUNK_BYTES);
+
+            // Move every cut forward to the start of the next line
+            long[] bounds = new long[chunks + 1];
+            bounds[chunks] = size;
+            for (int i = 1; i < chunks; i++) {
+                bounds[i] = Math.max(bounds[i - 1], nextLineStart(channel, size * i / chunks, size));
+            }
+
+            Chunk[] parts = new Chunk[chunks];
+            IOException[] failure = new IOException[1];
+            IntStream.range(0, chunks).parallel().forEach(i -> {
+                try {
+                    MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY,
+                            bounds[i], bounds[i + 1] - bounds[i]);
+                    parts[i] = new Chunk();
+                    parts[i].parse(buffer);
+                } catch (IOException e) {
+                    synchronized (failure) {
+                        failure[0] = e;
+                    }
+                }
+            });
+            if (failure[0] != null) throw failure[0];
+            return build(parts);
+        }
+    }
+
+    private static long nextLineStart(FileChannel channel, long position, long size) throws IOException {
+        ByteBuffer window = ByteBuffer.allocate(4096);
+        while (position < size) {
+            window.clear();
+            int read = channel.read(window, position);
+            if (read <= 0) break;
+            for (int i = 0; i < read; i++) {
+                byte b = window.get(i);
+                if (b == '\n' || b == '\r') return position + i + 1;
+            }
+            position += read;
+        }
+        return size;
+    }
+
+    // Merges the chunks in file order into dense, id-sorted CSR arrays
+    private static CsrGraph build(Chunk[] parts) {
+        int vertexTotal = 0;
+        int edgeTotal = 0;
+        int source = -1;
+        int destination = -1;
+        for (Chunk part : parts) {
+            vertexTotal += part.vertexCount;
+            edgeTotal += part.edgeCount;
+            if (part.hasSource) source = part.source;
+            if (part.hasDestination) destination = part.destination;
+        }
+
+        long min = Long.MAX_VALUE;
+        long max = Long.MIN_VALUE;
+        for (Chunk part : parts) {
+            min = Math.min(min, part.minId);
+            max = Math.max(max, part.maxId);
+        }
+        long records = (long) vertexTotal + 2L * edgeTotal;
+        IdMap idMap = records > 0 && max - min < 4 * records + 1024
+                ? IdMap.dense(parts, (int) min, (int) (max - min + 1))
+                : IdMap.sorted(parts, (int) records);
+        int[] ids = idMap.ids;
+        int n = ids.length;
+
+        // Later vertex lines overwrite earlier ones, as with Map.put
+        int[] x = new int[n];
+        int[] y = new int[n];
+        for (Chunk part : parts) {
+            for (int i = 0; i < part.vertexCount; i++) {
+                int index = idMap.indexOf(part.vertexIds[i]);
+                x[index] = part.vertexCells[i] / 10;
+                y[index] = part.vertexCells[i] % 10;
+            }
+        }
+
+        // Counting sort keeps each adjacency list in file order: u gets v, then v gets u
+        int[] offsets = new int[n + 1];
+        for (Chunk part : parts) {
+            for (int i = 0; i < part.edgeCount; i++) {
+                part.edgeFrom[i] = idMap.indexOf(part.edgeFrom[i]);
+                part.edgeTo[i] = idMap.indexOf(part.edgeTo[i]);
+                offsets[part.edgeFrom[i] + 1]++;
+                offsets[part.edgeTo[i] + 1]++;
+            }
+        }
+        for (int i = 0; i < n; i++) offsets[i + 1] += offsets[i];
+        int[] fill = Arrays.copyOf(offsets, n);
+        int[] targets = new int[2 * edgeTotal];
+        double[] weights = new double[2 * edgeTotal];
+        for (Chunk part : parts) {
+            for (int i = 0; i < part.edgeCount; i++) {
+                int u = part.edgeFrom[i];
+                int v = part.edgeTo[i];
+                targets[fill[u]] = v;
+                weights[fill[u]++] = part.edgeWeights[i];
+                targets[fill[v]] = u;
+                weights[fill[v]++] = part.edgeWeights[i];
+            }
+        }
+
+        return new CsrGraph(ids, offsets, targets, weights, x, y, source, destination);
+    }
+
+    /**
+     * Sorted distinct node ids with an id -> dense index lookup. Ids that fill most of their
+     * range use a direct table; sparse ids fall back to sorting and binary search.
+     */
+    private static final class IdMap {
+        final int[] ids;
+        private final int base;
+        private final int[] table;
+
+        private IdMap(int[] ids, int base, int[] table) {
+            this.ids = ids;
+            this.base = base;
+            this.table = table;
+        }
+
+        static IdMap dense(Chunk[] parts, int base, int range) {
+            int[] table = new int[range];
+            for (Chunk part : parts) {
+                for (int i = 0; i < part.vertexCount; i++) table[part.vertexIds[i] - base] = 1;
+                for (int i = 0; i < part.edgeCount; i++) {
+                    table[part.edgeFrom[i] - base] = 1;
+                    table[part.edgeTo[i] - base] = 1;
+                }
+            }
+            int n = 0;
+            for (int i = 0; i < range; i++) if (table[i] != 0) n++;
+            int[] ids = new int[n];
+            n = 0;
+            for (int i = 0; i < range; i++) {
+                if (table[i] != 0) {
+                    ids[n] = base + i;
+                    table[i] = n++;
+                }
+            }
+            return new IdMap(ids, base, table);
+        }
+
+        static IdMap sorted(Chunk[] parts, int records) {
+            int[] all = new int[records];
+            int k = 0;
+            for (Chunk part : parts) {
+                System.arraycopy(part.vertexIds, 0, all, k, part.vertexCount);
+                k += part.vertexCount;
+                System.arraycopy(part.edgeFrom, 0, all, k, part.edgeCount);
+                k += part.edgeCount;
+                System.arraycopy(part.edgeTo, 0, all, k, part.edgeCount);
+                k += part.edgeCount;
+            }
+            Arrays.parallelSort(all);
+            int n = 0;
+            for (int i = 0; i < all.length; i++) {
+                if (i == 0 || all[i] != all[i - 1]) all[n++] = all[i];
+            }
+            return new IdMap(Arrays.copyOf(all, n), 0, null);
+        }
+
+        int indexOf(int id) {
+            return table != null ? table[id - base] : Arrays.binarySearch(ids, id);
+        }
+    }
+
+    /**
+     * Records parsed from one byte range, in growable primitive arrays
+     */
+    private static final class Chunk {
+        int[] vertexIds = new int[64];
+        int[] vertexCells = new int[64];
+        int vertexCount;
+        int[] edgeFrom = new int[64];
+        int[] edgeTo = new int[64];
+        double[] edgeWeights = new double[64];
+        int edgeCount;
+        boolean hasSource;
+        int source;
+        boolean hasDestination;
+        int destination;
+        long minId = Long.MAX_VALUE;
+        long maxId = Long.MIN_VALUE;
+
+        private ByteBuffer buffer;
+        // Result slots for the token parsers, so parsing a number allocates nothing
+        private int intValue;
+        private double doubleValue;
+
+        void parse(ByteBuffer buffer) {
+            this.buffer = buffer;
+            int limit = buffer.limit();
+            int lineStart = 0;
+            for (int i = 0; i < limit; i++) {
+                byte b = buffer.get(i);
+                if (b == '\n' || b == '\r') {
+                    parseLine(lineStart, i);
+                    lineStart = i + 1;
+                }
+            }
+            if (lineStart < limit) parseLine(lineStart, limit);
+            this.buffer = null;
+        }
+
+        private void parseLine(int start, int end) {
+            // Same trimming as String.trim()
+            while (start < end && (buffer.get(start) & 0xFF) <= ' ') start++;
+            while (end > start && (buffer.get(end - 1) & 0xFF) <= ' ') end--;
+            if (start == end || buffer.get(start) == '#') return;
+
+            if (startsWithIgnoreCase(start, end, "vertex")) {
+                parseVertex(labelContent(start, end, 6), end);
+            } else if (startsWithIgnoreCase(start, end, "edge")) {
+                parseEdge(labelContent(start, end, 4), end);
+            } else if (startsWithIgnoreCase(start, end, "source")) {
+                if (parseFirstId(labelContent(start, end, 6), end)) {
+                    source = intValue;
+                    hasSource = true;
+                }
+            } else if (startsWithIgnoreCase(start, end, "destination")) {
+                if (parseFirstId(labelContent(start, end, 11), end)) {
+                    destination = intValue;
+                    hasDestination = true;
+                }
+            } else if (end - start >= 2 && buffer.get(start + 1) == ','
+                    && (buffer.get(start) == 'S' || buffer.get(start) == 's')) {
+                int tokenEnd = indexOf(',', start + 2, end);
+                if (parseInt(start + 2, tokenEnd)) {
+                    source = intValue;
+                    hasSource = true;
+                }
+            } else if (end - start >= 2 && buffer.get(start + 1) == ','
+                    && (buffer.get(start) == 'D' || buffer.get(start) == 'd')) {
+                int tokenEnd = indexOf(',', start + 2, end);
+                if (parseInt(start + 2, tokenEnd)) {
+                    destination = intValue;
+                    hasDestination = true;
+                }
+            } else {
+                int commas = 0;
+                for (int i = start; i < end; i++) if (buffer.get(i) == ',') commas++;
+                if (commas == 1) parseVertex(start, end);
+                else if (commas >= 2) parseEdge(start, end);
+            }
+        }
+
+        // Text after the first ':' of the line, or after the label when there is none
+        private int labelContent(int start, int end, int labelLength) {
+            int colon = indexOf(':', start, end);
+            return colon < end ? colon + 1 : start + labelLength;
+        }
+
+        private void parseVertex(int start, int end) {
+            int comma = indexOf(',', start, end);
+            if (comma == end || !parseInt(start, comma)) return;
+            int id = intValue;
+            if (!parseInt(comma + 1, indexOf(',', comma + 1, end))) return;
+            if (vertexCount == vertexIds.length) {
+                vertexIds = Arrays.copyOf(vertexIds, vertexCount * 2);
+                vertexCells = Arrays.copyOf(vertexCells, vertexCount * 2);
+            }
+            track(id);
+            vertexIds[vertexCount] = id;
+            vertexCells[vertexCount] = intValue;
+            vertexCount++;
+        }
+
+        private void parseEdge(int start, int end) {
+            int first = indexOf(',', start, end);
+            if (first == end || !parseInt(start, first)) return;
+            int u = intValue;
+            int second = indexOf(',', first + 1, end);
+            if (second == end || !parseInt(first + 1, second)) return;
+            int v = intValue;
+            if (!parseDouble(second + 1, indexOf(',', second + 1, end))) return;
+            if (edgeCount == edgeFrom.length) {
+                edgeFrom = Arrays.copyOf(edgeFrom, edgeCount * 2);
+                edgeTo = Arrays.copyOf(edgeTo, edgeCount * 2);
+                edgeWeights = Arrays.copyOf(edgeWeights, edgeCount * 2);
+            }
+            track(u);
+            track(v);
+            edgeFrom[edgeCount] = u;
+            edgeTo[edgeCount] = v;
+            edgeWeights[edgeCount] = doubleValue;
+            edgeCount++;
+        }
+
+        private void track(int id) {
+            if (id < minId) minId = id;
+            if (id > maxId) maxId = id;
+        }
+
+        // Source/Destination label: the first comma-separated token that is an integer once
+        // every character other than digits and '-' is dropped
+        private boolean parseFirstId(int start, int end) {
+            while (start <= end) {
+                int tokenEnd = indexOf(',', start, end);
+                if (parseStrippedInt(start, tokenEnd)) return true;
+                start = tokenEnd + 1;
+            }
+            return false;
+        }
+
+        private boolean parseStrippedInt(int start, int end) {
+            boolean negative = false;
+            boolean digits = false;
+            long value = 0;
+            for (int i = start; i < end; i++) {
+                byte b = buffer.get(i);
+                if (b == '-') {
+                    if (negative || digits) return false;
+                    negative = true;
+                } else if (b >= '0' && b <= '9') {
+                    digits = true;
+                    value = value * 10 + (b - '0');
+                    if (value > (long) Integer.MAX_VALUE + 1) return false;
+                }
+            }
+            return digits && storeInt(negative ? -value : value);
+        }
+
+        // Integer.parseInt on the trimmed token
+        private boolean parseInt(int start, int end) {
+            while (start < end && (buffer.get(start) & 0xFF) <= ' ') start++;
+            while (end > start && (buffer.get(end - 1) & 0xFF) <= ' ') end--;
+            if (start == end) return false;
+            boolean negative = false;
+            byte first = buffer.get(start);
+            if (first == '-' || first == '+') {
+                negative = first == '-';
+                if (++start == end) return false;
+            }
+            long value = 0;
+            for (int i = start; i < end; i++) {
+                byte b = buffer.get(i);
+                if (b < '0' || b > '9') return false;
+                value = value * 10 + (b - '0');
+                if (value > (long) Integer.MAX_VALUE + 1) return false;
+            }
+            return storeInt(negative ? -value : value);
+        }
+
+        private boolean storeInt(long value) {
+            if (value < Integer.MIN_VALUE || value > Integer.MAX_VALUE) return false;
+            intValue = (int) value;
+            return true;
+        }
+
+        // Double.parseDouble on the trimmed token. Plain decimals with up to 18 significant digits
+        // and small exponents are converted exactly here; anything else goes to Double.parseDouble.
+        private boolean parseDouble(int start, int end) {
+            while (start < end && (buffer.get(start) & 0xFF) <= ' ') start++;
+            while (end > start && (buffer.get(end - 1) & 0xFF) <= ' ') end--;
+            if (start == end) return false;
+
+            int i = start;
+            boolean negative = false;
+            if (buffer.get(i) == '-' || buffer.get(i) == '+') negative = buffer.get(i++) == '-';
+            long mantissa = 0;
+            int digits = 0;
+            int scale = 0;
+            boolean seenDigit = false;
+            boolean seenPoint = false;
+            for (; i < end; i++) {
+                byte b = buffer.get(i);
+                if (b >= '0' && b <= '9') {
+                    seenDigit = true;
+                    if (mantissa == 0 && b == '0') {
+                        if (seenPoint) scale--;
+                        continue;
+                    }
+                    if (++digits > 18) return parseDoubleSlow(start, end);
+                    mantissa = mantissa * 10 + (b - '0');
+                    if (seenPoint) scale--;
+                } else if (b == '.' && !seenPoint) {
+                    seenPoint = true;
+                } else {
+                    break;
+                }
+            }
+            if (!seenDigit) return parseDoubleSlow(start, end);
+            if (i < end) {
+                byte b = buffer.get(i);
+                if (b != 'e' && b != 'E' || i + 1 == end || (buffer.get(i + 1) & 0xFF) <= ' ') {
+                    return parseDoubleSlow(start, end);
+                }
+                if (!parseInt(i + 1, end)) return parseDoubleSlow(start, end);
+                if (intValue < -400 || intValue > 400) return parseDoubleSlow(start, end);
+                scale += intValue;
+            }
+
+            // Exact when the mantissa fits in 53 bits and 10^|scale| is itself exact
+            double value;
+            if (mantissa == 0) {
+                value = 0.0;
+            } else if (mantissa < (1L << 53) && scale >= -22 && scale <= 22) {
+                value = scale >= 0 ? mantissa * POWERS_OF_TEN[scale] : mantissa / POWERS_OF_TEN[-scale];
+            } else {
+                return parseDoubleSlow(start, end);
+            }
+            doubleValue = negative ? -value : value;
+            return true;
+        }
+
+        private boolean parseDoubleSlow(int start, int end) {
+            byte[] bytes = new byte[end - start];
+            for (int i = start; i < end; i++) bytes[i - start] = buffer.get(i);
+            try {
+                doubleValue = Double.parseDouble(new String(bytes, StandardCharsets.ISO_8859_1));
+                return true;
+            } catch (NumberFormatException e) {
+                return false;
+            }
+        }
+
+        private boolean startsWithIgnoreCase(int start, int end, String prefix) {
+            if (end - start < prefix.length()) return false;
+            for (int i = 0; i < prefix.length(); i++) {
+                int c = buffer.get(start + i);
+                if (c >= 'A' && c <= 'Z') c += 'a' - 'A';
+                if (c != prefix.charAt(i)) return false;
+            }
+            return true;
+        }
+
+        // Position of c in [start, end), or end if absent
+        private int indexOf(char c, int start, int end) {
+            for (int i = start; i < end; i++) if (buffer.get(i) == c) return i;
+            return end;
+        }
+    }
+}
@@ -0,0 +1,175 @@
+import java.io.*;
+import java.util.*;
+
+/**
+ * Seeded synthetic graphs for benchmarks; the same arguments always give the same graph
+ * Edge weights are never below the straight-line distance of their end points, so the
+ * Euclidean heuristic stays admissible on every generated graph (Manhattan only on grids).
+ */
+public final class GraphGenerator {
+
+    private GraphGenerator() {}
+
+    /**
+     * 4-connected width x height grid with blocked cells
+     * Node id of cell (x, y) is y * width + x + 1, blocked cells are left out. Every step costs
+     * 1 plus a random extra of up to maxExtraWeight. Source and destination are two opposite
+     * corners, which are never blocked.
+     * @param obstacleRate Fraction of cells that are blocked, between 0 and 1
+     */
+    public static Types.Graph grid(int width, int height, double obstacleRate, double maxExtraWeight, long seed) {
+        if (width < 1 || height < 1) throw new IllegalArgumentException("Grid must have at least one cell");
+        if (obstacleRate < 0 || obstacleRate >= 1) throw new IllegalArgumentException("Obstacle rate must be in [0, 1)");
+        Random random = new Random(seed);
+        Types.Graph graph = new Types.Graph();
+        int first = 1;
+        int last = width * height;
+        for (int y = 0; y < height; y++) {
+            for (int x = 0; x < width; x++) {
+                int id = y * width + x + 1;
+                if (id != first && id != last && random.nextDouble() < obstacleRate) continue;
+                graph.nodes.put(id, new Types.Node(id, x, y));
+            }
+        }
+        for (Types.Node node : graph.nodes.values()) {
+            int right = node.x + 1 < width ? node.id + 1 : -1;
+            int down = node.y + 1 < height ? node.id + width : -1;
+            for (int next : new int[]{right, down}) {
+                if (next > 0 && graph.nodes.containsKey(next)) {
+                    addEdge(graph, node.id, next, 1.0 + random.nextDouble() * maxExtraWeight);
+                }
+            }
+        }
+        graph.source = first;
+        graph.destination = last;
+        return graph;
+    }
+
+    /**
+     * Random geometric graph: n points uniform in a size x size square, joined when closer than radius
+     * Weights are the distance times a random factor in [1, 1 + maxStretch]. Source and destination
+     * are the points closest to two opposite corners; the graph may be disconnected when the
+     * radius is small (below about size * sqrt(log(n) / n)).
+     */
+    public static Types.Graph geometric(int n, int size, double radius, double maxStretch, long seed) {
+        if (n < 2) throw new IllegalArgumentException("Need at least two points");
+        Random random = new Random(seed);
+        Types.Graph graph = new Types.Graph();
+        for (int id = 1; id <= n; id++) {
+            graph.nodes.put(id, new Types.Node(id, random.nextInt(size), random.nextInt(size)));
+        }
+
+        // Bucket the points into radius-sized cells so only neighboring cells are compared
+        int cells = Math.max(1, (int) Math.ceil(size / radius));
+        Map<Long, List<Types.Node>> buckets = new HashMap<>();
+        for (int id = 1; id <= n; id++) {
+            Types.Node node = graph.nodes.get(id);
+            buckets.computeIfAbsent(cellKey(node, radius, cells), k -> new ArrayList<>()).add(node);
+        }
+        double radiusSquared = radius * radius;
+        for (int id = 1; id <= n; id++) {
+            Types.Node node = graph.nodes.get(id);
+            int cx = (int) (node.x / radius);
+            int cy = (int) (node.y / radius);
+            for (int dx = -1; dx <= 1; dx++) {
+                for (int dy = -1; dy <= 1; dy++) {
+                    List<Types.Node> bucket = buckets.get((long) (cx + dx) * cells + (cy + dy));
+                    if (bucket == null || cx + dx < 0 || cy + dy < 0) continue;
+                    for (Types.Node other : bucket) {
+                        if (other.id <= node.id) continue;
+                        double deltaX = node.x - other.x;
+                        double deltaY = node.y - other.y;
+                        double distanceSquared = deltaX * deltaX + deltaY * deltaY;
+                        if (distanceSquared < radiusSquared) {
+                            double distance = Math.max(1.0, Math.sqrt(distanceSquared));
+                            addEdge(graph, node.id, other.id, distance * (1.0 + random.nextDouble() * maxStretch));
+                        }
+                    }
+                }
+            }
+        }
+        graph.source = closest(graph, 0, 0);
+        graph.destination = closest(graph, size, size);
+        return graph;
+    }
+
+    private static long cellKey(Types.Node node, double radius, int cells) {
+        return (long) (int) (node.x / radius) * cells + (int) (node.y / radius);
+    }
+
+    private static int closest(Types.Graph graph, int x, int y) {
+        int best = -1;
+        long bestDistance = Long.MAX_VALUE;
+        for (Types.Node node : graph.nodes.values()) {
+            long deltaX = node.x - x;
+            long deltaY = node.y - y;
+            long distance = deltaX * deltaX + deltaY * deltaY;
+            if (distance < bestDistance || (distance == bestDistance && node.id < best)) {
+                bestDistance = distance;
+                best = node.id;
+            }
+        }
+        return best;
+    }
+
+    private static void addEdge(Types.Graph graph, int u, int v, double weight) {
+        graph.adj.computeIfAbsent(u, k -> new ArrayList<>()).add(new Types.Edge(v, weight));
+        graph.adj.computeIfAbsent(v, k -> new ArrayList<>()).add(new Types.Edge(u, weight));
+    }
+
+    /**
+     * Writes the graph in the text format read by Graph.parseGraph
+     * The format stores coordinates as cell_id = x * 10 + y, so they only survive the round trip
+     * for y below 10; ids, edges, weights, source and destination always do.
+     */
+    public static void writeText(Types.Graph graph, String filename) throws IOException {
+        try (BufferedWriter out = new BufferedWriter(new FileWriter(filename))) {
+            for (Types.Node node : new TreeMap<>(graph.nodes).values()) {
+                out.write("Vertex: " + node.id + "," + (node.x * 10 + node.y));
+                out.newLine();
+            }
+            for (Map.Entry<Integer, List<Types.Edge>> entry : new TreeMap<>(graph.adj).entrySet()) {
+                for (Types.Edge edge : entry.getValue()) {
+                    // Each undirected edge is stored in both lists; write it once
+                    if (edge.to < entry.getKey()) continue;
+                    out.write(String.format(Locale.ROOT, "Edge: %d,%d,%.6f", entry.getKey(), edge.to, edge.weight));
+                    out.newLine();
+                }
+            }
+            out.write("Source: S," + graph.source);
+            out.newLine();
+            out.write("Destination: D," + graph.destination);
+            out.newLine();
+        }
+    }
+
+    /**
+     * Writes a generated graph to a file: java GraphGenerator grid|geometric <size> <seed> <output>
+     * grid size is the side length, geometric size is the number of points
+     */
+    public static void main(String[] args) {
+        if (args.length != 4) {
+            System.out.println("Usage: java GraphGenerator grid|geometric <size> <seed> <output file>");
+            return;
+        }
+        try {
+            int size = Integer.parseInt(args[1]);
+            long seed = Long.parseLong(args[2]);
+            Types.Graph graph;
+            if (args[0].equals("grid")) {
+                graph = grid(size, size, 0.2, 0.5, seed);
+            } else if (args[0].equals("geometric")) {
+                graph = geometric(size, 10 * (int) Math.ceil(Math.sqrt(size)), 20.0, 0.3, seed);
+            } else {
+                System.err.println("Unknown graph kind: " + args[0]);
+                return;
+            }
+            writeText(graph, args[3]);
+            System.out.println("Wrote " + graph + " to " + args[3]);
+        } catch (NumberFormatException e) {
+            System.err.println("Invalid number: " + e.getMessage());
+        } catch (IOException e) {
+            System.err.println("Failed to write graph: " + e.getMessage());
+        }
+    }
+}
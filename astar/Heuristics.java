@@ -31,4 +31,20 @@ public class Heuristics {
     public static double hManhattan(Types.Node from, Types.Node to) {
         return (double)(Math.abs(from.x - to.x) + Math.abs(from.y - to.y));
     }
+
+    // Index-based variants working on the coordinate arrays of a CsrGraph
+
+    public static double hZero(CsrGraph graph, int from, int to) {
+        return 0.0;
+    }
+
+    public static double hEuclidean(CsrGraph graph, int from, int to) {
+        double deltaX = (double)(graph.x[from] - graph.x[to]);
+        double deltaY = (double)(graph.y[from] - graph.y[to]);
+        return Math.sqrt(deltaX * deltaX + deltaY * deltaY);
+    }
+
+    public static double hManhattan(CsrGraph graph, int from, int to) {
+        return (double)(Math.abs(graph.x[from] - graph.x[to]) + Math.abs(graph.y[from] - graph.y[to]));
+    }
 }
\ No newline at end of file
@@ -0,0 +1,154 @@
+import java.util.Arrays;
+
+/**
+ * Indexed d-ary min-heap over dense node indices
+ * Keys live in primitive arrays; each node is in the heap at most once,
+ * so decrease-key replaces the duplicate entries of a lazy-deletion queue.
+ * Ties on the key are broken by the smaller node index.
+ */
+public final class IndexedHeap {
+
+    private static final int ARITY = 4;
+
+    private final int[] nodes;      // heap slot -> node index
+    private final double[] keys;    // heap slot -> key
+    private final int[] positions;  // node index -> heap slot, -1 when absent
+    private int size;
+
+    public IndexedHeap(int capacity) {
+        this.nodes = new int[capacity];
+        this.keys = new double[capacity];
+        this.positions = new int[capacity];
+        Arrays.fill(positions, -1);
+    }
+
+    public int size() {
+        return size;
+    }
+
+    public boolean isEmpty() {
+        return size == 0;
+    }
+
+    public int capacity() {
+        return positions.length;
+    }
+
+    public boolean contains(int node) {
+        return positions[node] >= 0;
+    }
+
+    public double key(int node) {
+        return keys[positions[node]];
+    }
+
+    public int peek() {
+        return nodes[0];
+    }
+
+    public double peekKey() {
+        return keys[0];
+    }
+
+    /**
+     * Inserts the node, or moves it to the new key if it is already present
+     */
+    public void push(int node, double key) {
+        int slot = positions[node];
+        if (slot < 0) {
+            slot = size++;
+            nodes[slot] = node;
+            keys[slot] = key;
+            positions[node] = slot;
+            siftUp(slot);
+        } else if (key < keys[slot]) {
+            keys[slot] = key;
+            siftUp(slot);
+        } else if (key > keys[slot]) {
+            keys[slot] = key;
+            siftDown(slot);
+        }
+    }
+
+    /**
+     * Removes and returns the node with the smallest key
+     */
+    public int pop() {
+        int top = nodes[0];
+        positions[top] = -1;
+        size--;
+        if (size > 0) {
+            nodes[0] = nodes[size];
+            keys[0] = keys[size];
+            positions[nodes[0]] = 0;
+            siftDown(0);
+        }
+        return top;
+    }
+
+    /**
+     * Removes a node from anywhere in the heap; no-op if absent
+     */
+    public void remove(int node) {
+        int slot = positions[node];
+        if (slot < 0) return;
+        positions[node] = -1;
+        size--;
+        if (slot == size) return;
+        nodes[slot] = nodes[size];
+        keys[slot] = keys[size];
+        positions[nodes[slot]] = slot;
+        siftUp(slot);
+        siftDown(positions[nodes[slot]]);
+    }
+
+    /**
+     * Empties the heap in O(size), leaving the position table ready for reuse
+     */
+    public void clear() {
+        for (int i = 0; i < size; i++) positions[nodes[i]] = -1;
+        size = 0;
+    }
+
+    private boolean less(int slotA, int slotB) {
+        double a = keys[slotA];
+        double b = keys[slotB];
+        return a < b || (a == b && nodes[slotA] < nodes[slotB]);
+    }
+
+    private void siftUp(int slot) {
+        while (slot > 0) {
+            int parent = (slot - 1) / ARITY;
+            if (!less(slot, parent)) break;
+            swap(slot, parent);
+            slot = parent;
+        }
+    }
+
+    private void siftDown(int slot) {
+        while (true) {
+            int first = slot * ARITY + 1;
+            if (first >= size) break;
+            int best = first;
+            int last = Math.min(first + ARITY, size);
+            for (int child = first + 1; child < last; child++) {
+                if (less(child, best)) best = child;
+            }
+            if (!less(best, slot)) break;
+            swap(slot, best);
+            slot = best;
+        }
+    }
+
+    private void swap(int slotA, int slotB) {
+        int nodeA = nodes[slotA];
+        int nodeB = nodes[slotB];
+        double keyA = keys[slotA];
+        nodes[slotA] = nodeB;
+        keys[slotA] = keys[slotB];
+        nodes[slotB] = nodeA;
+        keys[slotB] = keyA;
+        positions[nodeB] = slotA;
+        positions[nodeA] = slotB;
+    }
+}
@@ -0,0 +1,404 @@
+import java.util.*;
+
+/**
+ * Jump Point Search for uniform-cost grid graphs
+ * A CsrGraph is a grid when node coordinates are distinct and the edges are exactly the moves
+ * between neighboring cells: 4-connected with cost c, or 8-connected with straight cost c and
+ * diagonal cost c*sqrt(2) where diagonals never cut a corner (both side cells must exist).
+ * Instead of expanding every cell, the search jumps in straight/diagonal lines and only
+ * stops at cells where a shortest path may turn. precompute() adds JPS+ tables with the jump
+ * distance for every cell and direction, so a jump becomes a table lookup.
+ * The returned path lists every cell, as a plain A* search would.
+ */
+public final class JumpPointSearch {
+
+    // Direction vectors: 0-3 straight, 4-7 diagonal
+    private static final int[] DX = {1, -1, 0, 0, 1, 1, -1, -1};
+    private static final int[] DY = {0, 0, 1, -1, 1, -1, 1, -1};
+
+    private final CsrGraph graph;
+    private final boolean diagonal;
+    private final double straightCost;
+    private final double diagonalCost;
+    private final int minX;
+    private final int minY;
+    private final int width;
+    private final int height;
+    // Cell (x - minX) + (y - minY) * width -> node index, -1 for blocked cells
+    private final int[] cells;
+    // JPS+ tables, null until precompute(): > 0 jump point at that many steps, <= 0 that many free steps to a wall.
+    // Volatile so searches on other threads see the tables complete once they are published.
+    private volatile int[][] jumps;
+
+    private JumpPointSearch(CsrGraph graph, boolean diagonal, double straightCost, double diagonalCost,
+                            int minX, int minY, int width, int height, int[] cells) {
+        this.graph = graph;
+        this.diagonal = diagonal;
+        this.straightCost = straightCost;
+        this.diagonalCost = diagonalCost;
+        this.minX = minX;
+        this.minY = minY;
+        this.width = width;
+        this.height = height;
+        this.cells = cells;
+    }
+
+    /**
+     * Checks whether the graph is a uniform-cost 4- or 8-connected grid
+     * @return The search engine, or null if the graph is not such a grid
+     */
+    public static JumpPointSearch forGraph(CsrGraph graph) {
+        if (graph.nodeCount == 0 || graph.edgeCount == 0) return null;
+
+        int minX = Integer.MAX_VALUE, maxX = Integer.MIN_VALUE, minY = Integer.MAX_VALUE, maxY = Integer.MIN_VALUE;
+        for (int v = 0; v < graph.nodeCount; v++) {
+            minX = Math.min(minX, graph.x[v]);
+            maxX = Math.max(maxX, graph.x[v]);
+            minY = Math.min(minY, graph.y[v]);
+            maxY = Math.max(maxY, graph.y[v]);
+        }
+        long width = (long) maxX - minX + 1;
+        long height = (long) maxY - minY + 1;
+        if (width * height > 16L * graph.nodeCount + 4096) return null;
+
+        int[] cells = new int[(int) (width * height)];
+        Arrays.fill(cells, -1);
+        for (int v = 0; v < graph.nodeCount; v++) {
+            int cell = (graph.x[v] - minX) + (graph.y[v] - minY) * (int) width;
+            if (cells[cell] >= 0) return null;
+            cells[cell] = v;
+        }
+
+        double straightCost = -1;
+        double diagonalCost = -1;
+        boolean diagonal = false;
+        for (int e = 0; e < graph.edgeCount && !(straightCost > 0 && diagonal); e++) {
+            int u = source(graph, e);
+            int dx = graph.x[graph.targets[e]] - graph.x[u];
+            int dy = graph.y[graph.targets[e]] - graph.y[u];
+            if (dx != 0 && dy != 0) {
+                diagonal = true;
+                diagonalCost = graph.weights[e];
+            } else {
+                straightCost = graph.weights[e];
+            }
+        }
+        if (!(straightCost > 0) || (diagonal && Math.abs(diagonalCost - straightCost * Math.sqrt(2)) > 1e-6 * straightCost)) {
+            return null;
+        }
+
+        JumpPointSearch grid = new JumpPointSearch(graph, diagonal, straightCost, diagonalCost,
+                minX, minY, (int) width, (int) height, cells);
+        return grid.edgesMatchGrid() ? grid : null;
+    }
+
+    // Every edge is a legal move with the right cost, no move is listed twice and every legal move is present
+    private boolean edgesMatchGrid() {
+        for (int v = 0; v < graph.nodeCount; v++) {
+            int x = graph.x[v];
+            int y = graph.y[v];
+            int seen = 0;
+            for (int e = graph.offsets[v]; e < graph.offsets[v + 1]; e++) {
+                int dx = graph.x[graph.targets[e]] - x;
+                int dy = graph.y[graph.targets[e]] - y;
+                int dir = direction(dx, dy);
+                if (dir < 0 || (seen & (1 << dir)) != 0 || !canMove(x, y, dir)) return false;
+                double expected = dir < 4 ? straightCost : diagonalCost;
+                if (Math.abs(graph.weights[e] - expected) > 1e-9 * expected) return false;
+                seen |= 1 << dir;
+            }
+            for (int dir = 0; dir < (diagonal ? 8 : 4); dir++) {
+                if (canMove(x, y, dir) && (seen & (1 << dir)) == 0) return false;
+            }
+        }
+        return true;
+    }
+
+    private static int source(CsrGraph graph, int edge) {
+        int low = 0;
+        int high = graph.nodeCount - 1;
+        while (low < high) {
+            int mid = (low + high + 1) >>> 1;
+            if (graph.offsets[mid] <= edge) low = mid; else high = mid - 1;
+        }
+        return low;
+    }
+
+    private static int direction(int dx, int dy) {
+        for (int dir = 0; dir < 8; dir++) {
+            if (DX[dir] == dx && DY[dir] == dy) return dir;
+        }
+        return -1;
+    }
+
+    public boolean isEightConnected() {
+        return diagonal;
+    }
+
+    /**
+     * Builds the JPS+ jump distance tables; afterwards every jump is answered from them
+     */
+    public synchronized void precompute() {
+        if (jumps != null) return;
+        int[][] tables = new int[diagonal ? 8 : 4][];
+        // Straight tables first: vertical jumps on 4-connected grids and diagonal jumps need them
+        for (int dir : new int[]{0, 1}) tables[dir] = sweep(dir, tables);
+        for (int dir : new int[]{2, 3}) tables[dir] = sweep(dir, tables);
+        if (diagonal) {
+            for (int dir = 4; dir < 8; dir++) tables[dir] = sweep(dir, tables);
+        }
+        jumps = tables;
+    }
+
+    // Fills one direction's table in an order where the next cell along the direction is already done
+    private int[] sweep(int dir, int[][] tables) {
+        int[] table = new int[width * height];
+        int dx = DX[dir];
+        int dy = DY[dir];
+        for (int j = 0; j < height; j++) {
+            int y = dy > 0 ? minY + height - 1 - j : minY + j;
+            for (int i = 0; i < width; i++) {
+                int x = dx > 0 ? minX + width - 1 - i : minX + i;
+                if (!free(x, y)) continue;
+                if (!canMove(x, y, dir)) {
+                    table[cell(x, y)] = 0;
+                } else if (isJumpPoint(x + dx, y + dy, dir, tables)) {
+                    table[cell(x, y)] = 1;
+                } else {
+                    int next = table[cell(x + dx, y + dy)];
+                    table[cell(x, y)] = next > 0 ? next + 1 : next - 1;
+                }
+            }
+        }
+        return table;
+    }
+
+    // Goal-independent stop condition for a cell reached moving in dir
+    private boolean isJumpPoint(int x, int y, int dir, int[][] tables) {
+        int dx = DX[dir];
+        int dy = DY[dir];
+        if (dx != 0 && dy != 0) return tables[dx > 0 ? 0 : 1][cell(x, y)] > 0 || tables[dy > 0 ? 2 : 3][cell(x, y)] > 0;
+        if (forced(x, y, dx, dy)) return true;
+        return !diagonal && dy != 0 && (tables[0][cell(x, y)] > 0 || tables[1][cell(x, y)] > 0);
+    }
+
+    public Types.PathResult search(int startNode, int targetNode) {
+        return search(startNode, targetNode, new SearchWorkspace(graph.nodeCount));
+    }
+
+    /**
+     * A* over jump points between two original node ids
+     * Searches keep all their state in the workspace, so several threads can search at once.
+     */
+    public Types.PathResult search(int startNode, int targetNode, SearchWorkspace workspace) {
+        long startTime = System.nanoTime();
+
+        if (workspace.capacity() < graph.nodeCount) {
+            throw new IllegalArgumentException("Workspace is smaller than the graph");
+        }
+        int start = graph.indexOf(startNode);
+        int target = graph.indexOf(targetNode);
+        if (start < 0 || target < 0) {
+            double executionTime = (System.nanoTime() - startTime) / 1e9;
+            return new Types.PathResult(false, 0.0, Collections.emptyList(), 0, 1, 1, executionTime);
+        }
+        int goalX = graph.x[target];
+        int goalY = graph.y[target];
+        int[][] tables = jumps;
+
+        workspace.reset();
+        IndexedHeap openList = workspace.open;
+        workspace.set(start, 0.0, -1);
+        openList.push(start, estimate(start, goalX, goalY));
+
+        int totalPushes = 1;
+        int nodesExpanded = 0;
+        int maxQueueSize = 1;
+
+        while (!openList.isEmpty()) {
+            int current = openList.pop();
+            double currentG = workspace.g(current);
+            nodesExpanded++;
+
+            if (current == target) {
+                List<Integer> path = expandPath(workspace, target);
+                double executionTime = (System.nanoTime() - startTime) / 1e9;
+                return new Types.PathResult(true, pathCost(path), path,
+                        nodesExpanded, totalPushes, maxQueueSize, executionTime);
+            }
+
+            int x = graph.x[current];
+            int y = graph.y[current];
+            int parent = workspace.parent(current);
+            int directions = parent < 0 ? allDirections() : prunedDirections(x, y,
+                    Integer.signum(x - graph.x[parent]), Integer.signum(y - graph.y[parent]));
+
+            for (int dir = 0; dir < 8; dir++) {
+                if ((directions & (1 << dir)) == 0) continue;
+                int next = tables != null ? jumpTable(tables, x, y, dir, goalX, goalY)
+                        : jumpScan(x, y, DX[dir], DY[dir], goalX, goalY);
+                if (next < 0) continue;
+                int steps = Math.max(Math.abs(graph.x[next] - x), Math.abs(graph.y[next] - y));
+                double newG = currentG + steps * (dir < 4 ? straightCost : diagonalCost);
+                if (newG < workspace.g(next)) {
+                    workspace.set(next, newG, current);
+                    openList.push(next, newG + estimate(next, goalX, goalY));
+                    totalPushes++;
+                }
+            }
+
+            if (openList.size() > maxQueueSize) maxQueueSize = openList.size();
+        }
+
+        double executionTime = (System.nanoTime() - startTime) / 1e9;
+        return new Types.PathResult(false, 0.0, Collections.emptyList(),
+                nodesExpanded, totalPushes, maxQueueSize, executionTime);
+    }
+
+    // Octile distance on 8-connected grids, Manhattan distance on 4-connected grids
+    private double estimate(int node, int goalX, int goalY) {
+        int dx = Math.abs(graph.x[node] - goalX);
+        int dy = Math.abs(graph.y[node] - goalY);
+        if (!diagonal) return straightCost * (dx + dy);
+        return straightCost * Math.abs(dx - dy) + diagonalCost * Math.min(dx, dy);
+    }
+
+    private int allDirections() {
+        return diagonal ? 0xFF : 0x0F;
+    }
+
+    // Directions worth exploring after arriving at (x, y) moving (dx, dy)
+    private int prunedDirections(int x, int y, int dx, int dy) {
+        int dirs = 0;
+        if (dx != 0 && dy != 0) {
+            dirs |= 1 << direction(dx, 0);
+            dirs |= 1 << direction(0, dy);
+            dirs |= 1 << direction(dx, dy);
+        } else if (diagonal) {
+            // Straight arrival: continue, plus the sides and forward diagonals
+            int px = dy != 0 ? 1 : 0;
+            int py = dx != 0 ? 1 : 0;
+            dirs |= 1 << direction(dx, dy);
+            dirs |= 1 << direction(px, py);
+            dirs |= 1 << direction(-px, -py);
+            dirs |= 1 << direction(dx + px, dy + py);
+            dirs |= 1 << direction(dx - px, dy - py);
+        } else {
+            int px = dy != 0 ? 1 : 0;
+            int py = dx != 0 ? 1 : 0;
+            dirs |= 1 << direction(dx, dy);
+            dirs |= 1 << direction(px, py);
+            dirs |= 1 << direction(-px, -py);
+        }
+        return dirs;
+    }
+
+    // Scans from (x, y) in direction (dx, dy) to the next jump point or the goal, -1 if there is none
+    private int jumpScan(int x, int y, int dx, int dy, int goalX, int goalY) {
+        int dir = direction(dx, dy);
+        while (true) {
+            if (!canMove(x, y, dir)) return -1;
+            x += dx;
+            y += dy;
+            if (x == goalX && y == goalY) return cells[cell(x, y)];
+            if (dx != 0 && dy != 0) {
+                if (jumpScan(x, y, dx, 0, goalX, goalY) >= 0 || jumpScan(x, y, 0, dy, goalX, goalY) >= 0) return cells[cell(x, y)];
+            } else {
+                if (forced(x, y, dx, dy)) return cells[cell(x, y)];
+                if (!diagonal && dy != 0 && (jumpScan(x, y, 1, 0, goalX, goalY) >= 0 || jumpScan(x, y, -1, 0, goalX, goalY) >= 0)) {
+                    return cells[cell(x, y)];
+                }
+            }
+        }
+    }
+
+    // JPS+ jump: the precomputed stop, or an earlier cell lined up with the goal
+    private int jumpTable(int[][] tables, int x, int y, int dir, int goalX, int goalY) {
+        int dx = DX[dir];
+        int dy = DY[dir];
+        int distance = tables[dir][cell(x, y)];
+        int travel = Math.abs(distance);
+        int gx = goalX - x;
+        int gy = goalY - y;
+
+        int toGoal = -1;
+        if (dx != 0 && dy != 0) {
+            if (Integer.signum(gx) == dx && Integer.signum(gy) == dy) toGoal = Math.min(Math.abs(gx), Math.abs(gy));
+        } else if (dx != 0) {
+            if (gy == 0 && Integer.signum(gx) == dx) toGoal = Math.abs(gx);
+        } else if (!diagonal) {
+            // Vertical moves on 4-connected grids may turn towards the goal at its row
+            if (Integer.signum(gy) == dy) toGoal = Math.abs(gy);
+        } else {
+            if (gx == 0 && Integer.signum(gy) == dy) toGoal = Math.abs(gy);
+        }
+
+        if (toGoal > 0 && toGoal <= travel) return cells[cell(x + toGoal * dx, y + toGoal * dy)];
+        if (distance > 0) return cells[cell(x + distance * dx, y + distance * dy)];
+        return -1;
+    }
+
+    // Straight move: a side cell opens up that was blocked next to the previous cell
+    private boolean forced(int x, int y, int dx, int dy) {
+        if (dx != 0) {
+            return (free(x, y - 1) && !free(x - dx, y - 1)) || (free(x, y + 1) && !free(x - dx, y + 1));
+        }
+        return (free(x - 1, y) && !free(x - 1, y - dy)) || (free(x + 1, y) && !free(x + 1, y - dy));
+    }
+
+    private boolean canMove(int x, int y, int dir) {
+        int dx = DX[dir];
+        int dy = DY[dir];
+        if (!free(x + dx, y + dy)) return false;
+        if (dx == 0 || dy == 0) return true;
+        return diagonal && free(x + dx, y) && free(x, y + dy);
+    }
+
+    private boolean free(int x, int y) {
+        return x >= minX && y >= minY && x < minX + width && y < minY + height && cells[cell(x, y)] >= 0;
+    }
+
+    private int cell(int x, int y) {
+        return (x - minX) + (y - minY) * width;
+    }
+
+    // Fills in the cells between consecutive jump points
+    private List<Integer> expandPath(SearchWorkspace workspace, int target) {
+        List<Integer> jumpPoints = new ArrayList<>();
+        for (int node = target; node != -1; node = workspace.parent(node)) jumpPoints.add(node);
+        Collections.reverse(jumpPoints);
+
+        List<Integer> path = new ArrayList<>();
+        path.add(graph.idOf(jumpPoints.get(0)));
+        for (int i = 0; i + 1 < jumpPoints.size(); i++) {
+            int x = graph.x[jumpPoints.get(i)];
+            int y = graph.y[jumpPoints.get(i)];
+            int toX = graph.x[jumpPoints.get(i + 1)];
+            int toY = graph.y[jumpPoints.get(i + 1)];
+            int dx = Integer.signum(toX - x);
+            int dy = Integer.signum(toY - y);
+            while (x != toX || y != toY) {
+                x += dx;
+                y += dy;
+                path.add(graph.idOf(cells[cell(x, y)]));
+            }
+        }
+        return path;
+    }
+
+    // Sum of the real edge weights, so the cost matches the other searches exactly
+    private double pathCost(List<Integer> path) {
+        double cost = 0.0;
+        for (int i = 0; i + 1 < path.size(); i++) {
+            int from = graph.indexOf(path.get(i));
+            int to = graph.indexOf(path.get(i + 1));
+            for (int e = graph.offsets[from]; e < graph.offsets[from + 1]; e++) {
+                if (graph.targets[e] == to) {
+                    cost += graph.weights[e];
+                    break;
+                }
+            }
+        }
+        return cost;
+    }
+}
@@ -0,0 +1,248 @@
+import java.io.*;
+import java.util.*;
+import java.util.stream.IntStream;
+
+/**
+ * ALT heuristic (A*, Landmarks, Triangle inequality)
+ * For every landmark L the exact distances d(L, v) are precomputed; on an undirected graph
+ *   h(v, t) = max over L of |d(L, t) - d(L, v)|
+ * is an admissible and consistent lower bound that does not depend on node coordinates.
+ * Works with both the Types.Graph search (through node ids) and the CsrGraph searches.
+ */
+public final class LandmarkHeuristic implements AStarProgram.Heuristic, AStarProgram.IndexHeuristic {
+
+    /**
+     * Landmark selection strategy
+     * FARTHEST - each new landmark is the node farthest from all landmarks chosen so far
+     * AVOID - Goldberg/Werneck "avoid": descend the shortest path tree of a random root into
+     *         the subtree where the current landmarks give the worst bounds
+     */
+    public enum Selection { FARTHEST, AVOID }
+
+    private static final int FILE_MAGIC = 0x414C5431; // "ALT1"
+
+    private final CsrGraph graph;
+    private final int[] landmarks;
+    private final int count;
+    // Node-major table: distances[v * count + i] = d(landmarks[i], v)
+    private final double[] distances;
+
+    private LandmarkHeuristic(CsrGraph graph, int[] landmarks, double[] distances) {
+        this.graph = graph;
+        this.landmarks = landmarks;
+        this.count = landmarks.length;
+        this.distances = distances;
+    }
+
+    /**
+     * Selects landmarks and precomputes their distance tables, one Dijkstra run per landmark in parallel
+     * @param count Number of landmarks, capped at the node count
+     * @param seed Seed for the random choices of the selection strategy
+     */
+    public static LandmarkHeuristic build(CsrGraph graph, int count, Selection selection, long seed) {
+        if (count < 1) throw new IllegalArgumentException("Landmark count must be positive");
+        int[] landmarks = selection == Selection.FARTHEST
+                ? selectFarthest(graph, Math.min(count, graph.nodeCount), new Random(seed))
+                : selectAvoid(graph, Math.min(count, graph.nodeCount), new Random(seed));
+
+        double[][] columns = new double[landmarks.length][];
+        IntStream.range(0, landmarks.length).parallel()
+                .forEach(i -> columns[i] = ShortestPathTree.compute(graph, landmarks[i]).distances);
+
+        double[] distances = new double[graph.nodeCount * landmarks.length];
+        for (int v = 0; v < graph.nodeCount; v++) {
+            for (int i = 0; i < landmarks.length; i++) {
+                distances[v * landmarks.length + i] = columns[i][v];
+            }
+        }
+        return new LandmarkHeuristic(graph, landmarks, distances);
+    }
+
+    /**
+     * Loads tables written by save(); the file must have been built for the same graph
+     */
+    public static LandmarkHeuristic load(CsrGraph graph, String filename) throws IOException {
+        try (DataInputStream in = new DataInputStream(new BufferedInputStream(new FileInputStream(filename)))) {
+            if (in.readInt() != FILE_MAGIC) {
+                throw new IOException("Not a landmark table file: " + filename);
+            }
+            int nodeCount = in.readInt();
+            int edgeCount = in.readInt();
+            if (nodeCount != graph.nodeCount || edgeCount != graph.edgeCount) {
+                throw new IOException("Landmark table " + filename + " was built for a different graph");
+            }
+            int count = in.readInt();
+            int[] landmarks = new int[count];
+            for (int i = 0; i < count; i++) {
+                landmarks[i] = graph.indexOf(in.readInt());
+                if (landmarks[i] < 0) {
+                    throw new IOException("Landmark table " + filename + " was built for a different graph");
+                }
+            }
+            double[] distances = new double[nodeCount * count];
+            for (int i = 0; i < distances.length; i++) distances[i] = in.readDouble();
+            return new LandmarkHeuristic(graph, landmarks, distances);
+        }
+    }
+
+    public void save(String filename) throws IOException {
+        try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(filename)))) {
+            out.writeInt(FILE_MAGIC);
+            out.writeInt(graph.nodeCount);
+            out.writeInt(graph.edgeCount);
+            out.writeInt(count);
+            for (int landmark : landmarks) out.writeInt(graph.idOf(landmark));
+            for (double d : distances) out.writeDouble(d);
+        }
+    }
+
+    /**
+     * @return Original node ids of the landmarks
+     */
+    public int[] landmarkIds() {
+        int[] ids = new int[count];
+        for (int i = 0; i < count; i++) ids[i] = graph.idOf(landmarks[i]);
+        return ids;
+    }
+
+    @Override
+    public double h(Types.Node a, Types.Node b) {
+        int from = graph.indexOf(a.id);
+        int to = graph.indexOf(b.id);
+        return from < 0 || to < 0 ? 0.0 : bound(from, to);
+    }
+
+    // The graph argument is ignored: the tables belong to the graph they were built for
+    @Override
+    public double h(CsrGraph graph, int a, int b) {
+        return bound(a, b);
+    }
+
+    private double bound(int from, int to) {
+        double best = 0.0;
+        int rowFrom = from * count;
+        int rowTo = to * count;
+        for (int i = 0; i < count; i++) {
+            double dFrom = distances[rowFrom + i];
+            double dTo = distances[rowTo + i];
+            // A landmark that cannot reach one of the nodes gives no bound
+            if (dFrom == Double.POSITIVE_INFINITY || dTo == Double.POSITIVE_INFINITY) continue;
+            double diff = Math.abs(dTo - dFrom);
+            if (diff > best) best = diff;
+        }
+        return best;
+    }
+
+    private static int[] selectFarthest(CsrGraph graph, int count, Random random) {
+        int[] landmarks = new int[count];
+        double[] nearest = new double[graph.nodeCount];
+        Arrays.fill(nearest, Double.POSITIVE_INFINITY);
+
+        // The first landmark is the node farthest from a random start
+        int root = random.nextInt(graph.nodeCount);
+        int pick = farthest(ShortestPathTree.compute(graph, root).distances);
+        if (pick < 0) pick = root;
+        int chosen = 0;
+        while (chosen < count) {
+            landmarks[chosen++] = pick;
+            double[] d = ShortestPathTree.compute(graph, pick).distances;
+            for (int v = 0; v < graph.nodeCount; v++) nearest[v] = Math.min(nearest[v], d[v]);
+            pick = farthest(nearest);
+            if (pick < 0) break;
+        }
+        return Arrays.copyOf(landmarks, chosen);
+    }
+
+    // Node with the largest positive distance, -1 if there is none; unreached nodes count as farthest
+    private static int farthest(double[] distances) {
+        int best = -1;
+        double bestDistance = 0.0;
+        for (int v = 0; v < distances.length; v++) {
+            if (distances[v] > bestDistance) {
+                best = v;
+                bestDistance = distances[v];
+            }
+        }
+        return best;
+    }
+
+    private static int[] selectAvoid(CsrGraph graph, int count, Random random) {
+        int n = graph.nodeCount;
+        List<Integer> chosen = new ArrayList<>();
+        List<double[]> columns = new ArrayList<>();
+        boolean[] isLandmark = new boolean[n];
+        double[] size = new double[n];
+        boolean[] blocked = new boolean[n];
+
+        // Seed with a FARTHEST landmark so the tree weights have a bound to compare against
+        int root = random.nextInt(n);
+        int first = farthest(ShortestPathTree.compute(graph, root).distances);
+        if (first < 0) first = root;
+        chosen.add(first);
+        isLandmark[first] = true;
+        columns.add(ShortestPathTree.compute(graph, first).distances);
+
+        int attempts = 0;
+        while (chosen.size() < count && attempts < 4 * count) {
+            attempts++;
+            root = random.nextInt(n);
+            ShortestPathTree tree = ShortestPathTree.compute(graph, root);
+
+            // weight(v) = how much the current landmarks underestimate d(root, v)
+            for (int v : tree.order) {
+                double lower = 0.0;
+                for (double[] column : columns) {
+                    double a = column[root];
+                    double b = column[v];
+                    if (a != Double.POSITIVE_INFINITY && b != Double.POSITIVE_INFINITY) {
+                        lower = Math.max(lower, Math.abs(a - b));
+                    }
+                }
+                size[v] = tree.distances[v] - lower;
+                blocked[v] = isLandmark[v];
+            }
+            // size(v) = total weight of the subtree, zero if the subtree already holds a landmark.
+            // Settle order puts parents before children, so a reverse scan sees children first.
+            for (int i = tree.order.length - 1; i > 0; i--) {
+                int v = tree.order[i];
+                int parent = tree.parents[v];
+                if (blocked[v]) blocked[parent] = true;
+                else size[parent] += size[v];
+            }
+            for (int v : tree.order) {
+                if (blocked[v]) size[v] = 0.0;
+            }
+
+            // Descend from the root along the child with the largest size until a leaf is reached
+            int[] childOffsets = new int[n + 1];
+            for (int v : tree.order) if (tree.parents[v] >= 0) childOffsets[tree.parents[v] + 1]++;
+            for (int v = 0; v < n; v++) childOffsets[v + 1] += childOffsets[v];
+            int[] children = new int[childOffsets[n]];
+            int[] fill = Arrays.copyOf(childOffsets, n);
+            for (int v : tree.order) if (tree.parents[v] >= 0) children[fill[tree.parents[v]]++] = v;
+
+            if (size[root] <= 0.0) continue;
+            int node = root;
+            while (true) {
+                int next = -1;
+                double bestSize = 0.0;
+                for (int c = childOffsets[node]; c < childOffsets[node + 1]; c++) {
+                    if (size[children[c]] > bestSize) {
+                        bestSize = size[children[c]];
+                        next = children[c];
+                    }
+                }
+                if (next < 0) break;
+                node = next;
+            }
+            if (isLandmark[node]) continue;
+            chosen.add(node);
+            isLandmark[node] = true;
+            columns.add(ShortestPathTree.compute(graph, node).distances);
+        }
+
+        int[] landmarks = new int[chosen.size()];
+        for (int i = 0; i < landmarks.length; i++) landmarks[i] = chosen.get(i);
+        return landmarks;
+    }
+}
@@ -0,0 +1,438 @@
+import java.util.*;
+
+/**
+ * Memory-bounded optimal search on a CsrGraph (SMA*)
+ * Works like A*, but at most capacity() nodes are remembered. When memory is full, the
+ * remembered leaf with the highest f-cost is forgotten: its parent keeps the smallest
+ * forgotten f and goes back on the open list, so that branch is regenerated only if it
+ * becomes the best option again. Backed-up f values stay lower bounds, so the first time the
+ * target is selected the path is optimal, provided the cap can hold the path plus one
+ * generation of successors. Branches deeper than that are dropped; a path found while a dropped
+ * branch had a lower f is not proven optimal, and PathResult.suboptimality then bounds its cost
+ * over the optimum by cost / (lowest dropped f), or is +infinity when that f is 0.
+ * On graphs the same node is reachable along many paths, so the cheapest g generated so far is
+ * kept per graph node outside the cap; forgotten nodes are only regenerated along paths that
+ * are at least as cheap, otherwise the search degrades to enumerating paths.
+ * PathResult.reexpanded counts the expansions that regenerated forgotten work.
+ */
+public final class MemoryBoundedSearch {
+
+    // Estimated bytes per remembered node: slot arrays, both heaps and the hash table
+    public static final int ENTRY_BYTES = 96;
+    private static final int MIN_CAPACITY = 16;
+
+    private final CsrGraph graph;
+    private final int capacity;
+
+    // Remembered nodes, by slot
+    private final int[] nodes;
+    private final double[] gCosts;
+    private final double[] fCosts;
+    private final double[] forgotten;  // smallest f of forgotten successors, +infinity if none
+    private final int[] parents;       // parent slot, -1 for the start
+    private final int[] children;      // remembered successors whose parent is this slot
+    private final int[] depths;
+    private final boolean[] stale;     // g improved since the last expansion, successors not yet updated
+    private final int[] freeSlots;
+    private int freeCount;
+
+    // Node index -> slot + 1, linear probing
+    private final int[] table;
+    private final int tableMask;
+
+    private final SlotHeap open;       // best first: lowest f, then deepest
+    private final SlotHeap leaves;     // slots without remembered children, worst first: highest f, then shallowest
+
+    // Per graph node, outside the cap (12 bytes + 1 bit, like the graph arrays themselves): the
+    // cheapest g ever generated, so forgotten nodes are only regenerated along paths at least as
+    // cheap, and whether the node was expanded before
+    private final double[] bestCosts;
+    private final int[] costStamps;
+    private int generation;
+    private final long[] seen;
+
+    public MemoryBoundedSearch(CsrGraph graph, long memoryBytes) {
+        long entries = Math.min(memoryBytes / ENTRY_BYTES, 1L << 28);
+        if (entries < MIN_CAPACITY) {
+            throw new IllegalArgumentException("Memory cap is too small: " + memoryBytes + " bytes");
+        }
+        this.graph = graph;
+        this.capacity = (int) entries;
+        this.nodes = new int[capacity];
+        this.gCosts = new double[capacity];
+        this.fCosts = new double[capacity];
+        this.forgotten = new double[capacity];
+        this.parents = new int[capacity];
+        this.children = new int[capacity];
+        this.depths = new int[capacity];
+        this.stale = new boolean[capacity];
+        this.freeSlots = new int[capacity];
+        this.table = new int[Integer.highestOneBit(capacity) * 4];
+        this.tableMask = table.length - 1;
+        this.open = new SlotHeap(capacity, depths, false);
+        this.leaves = new SlotHeap(capacity, depths, true);
+        this.bestCosts = new double[graph.nodeCount];
+        this.costStamps = new int[graph.nodeCount];
+        this.seen = new long[(graph.nodeCount + 63) >>> 6];
+    }
+
+    /**
+     * Maximum number of nodes remembered at once
+     */
+    public int capacity() {
+        return capacity;
+    }
+
+    public Types.PathResult search(int startNode, int targetNode, AStarProgram.IndexHeuristic heuristic) {
+        return search(startNode, targetNode, heuristic, Long.MAX_VALUE);
+    }
+
+    /**
+     * @param maxExpansions Gives up (not found) after this many expansions. The run time grows
+     *                      steeply once the cap gets close to the size A* would need for its frontier.
+     */
+    public synchronized Types.PathResult search(int startNode, int targetNode, AStarProgram.IndexHeuristic heuristic,
+                                                long maxExpansions) {
+        long startTime = System.nanoTime();
+
+        int start = graph.indexOf(startNode);
+        int target = graph.indexOf(targetNode);
+        if (start < 0 || target < 0) {
+            double executionTime = (System.nanoTime() - startTime) / 1e9;
+            return new Types.PathResult(false, 0.0, Collections.emptyList(), 0, 1, 1, executionTime);
+        }
+        reset();
+
+        int[] offsets = graph.offsets;
+        int[] targets = graph.targets;
+        double[] weights = graph.weights;
+
+        int root = add(start, 0.0, heuristic.h(graph, start, target), -1);
+        open.push(root, fCosts[root]);
+
+        int nodesExpanded = 0;
+        int reexpanded = 0;
+        int totalPushes = 1;
+        int maxQueueSize = 1;
+        // Lowest f of a successor dropped because the cap cannot hold its branch
+        double dropped = Double.POSITIVE_INFINITY;
+
+        while (!open.isEmpty() && open.peekKey() < Double.POSITIVE_INFINITY && nodesExpanded < maxExpansions) {
+            double key = open.peekKey();
+            int current = open.pop();
+            int node = nodes[current];
+            fCosts[current] = Math.max(fCosts[current], key);
+
+            if (node == target) {
+                List<Integer> path = new ArrayList<>();
+                for (int slot = current; slot != -1; slot = parents[slot]) path.add(graph.idOf(nodes[slot]));
+                Collections.reverse(path);
+                double executionTime = (System.nanoTime() - startTime) / 1e9;
+                Types.PathResult result = new Types.PathResult(true, gCosts[current], path,
+                        nodesExpanded, totalPushes, maxQueueSize, executionTime);
+                result.reexpanded = reexpanded;
+                if (gCosts[current] > dropped) {
+                    result.suboptimality = dropped > 0.0 ? gCosts[current] / dropped : Double.POSITIVE_INFINITY;
+                }
+                return result;
+            }
+
+            nodesExpanded++;
+            if ((seen[node >>> 6] & (1L << node)) != 0) reexpanded++;
+            seen[node >>> 6] |= 1L << node;
+            forgotten[current] = Double.POSITIVE_INFINITY;
+            stale[current] = false;
+            leaves.remove(current);
+
+            double currentG = gCosts[current];
+            for (int e = offsets[node], end = offsets[node + 1]; e < end; e++) {
+                int next = targets[e];
+                double newG = currentG + weights[e];
+                int slot = lookup(next);
+
+                if (slot >= 0) {
+                    if (newG >= gCosts[slot]) continue;
+                    // Cheaper path to a remembered node: move it under current and reopen it
+                    if (parents[slot] != current) {
+                        detach(slot, current);
+                        parents[slot] = current;
+                        children[current]++;
+                    }
+                    gCosts[slot] = newG;
+                    recordCost(next, newG);
+                    fCosts[slot] = Math.max(fCosts[current], newG + heuristic.h(graph, next, target));
+                    depths[slot] = depths[current] + 1;
+                    stale[slot] = true;
+                    open.push(slot, fCosts[slot]);
+                    if (leaves.contains(slot)) leaves.push(slot, fCosts[slot]);
+                    totalPushes++;
+                    continue;
+                }
+
+                // A costlier path to a forgotten node: the cheaper one is regenerated when needed
+                if (costStamps[next] == generation && newG > bestCosts[next]) continue;
+                double f = Math.max(fCosts[current], newG + heuristic.h(graph, next, target));
+                // A successor that fills the last free slot of the path can never lead anywhere
+                if (depths[current] + 2 >= capacity && next != target) {
+                    dropped = Math.min(dropped, f);
+                    continue;
+                }
+                if (freeCount == 0) {
+                    // Forget whichever is worse: the new successor or the worst remembered leaf
+                    if (leaves.isEmpty()) {
+                        dropped = Math.min(dropped, f); // cap too small for this depth
+                        continue;
+                    }
+                    if (f > leaves.peekKey()) {
+                        forgotten[current] = Math.min(forgotten[current], f);
+                        continue;
+                    }
+                    prune(leaves.peek(), current);
+                }
+                slot = add(next, newG, f, current);
+                open.push(slot, f);
+                leaves.push(slot, f);
+                totalPushes++;
+            }
+
+            if (forgotten[current] < Double.POSITIVE_INFINITY) {
+                open.push(current, open.contains(current) ? Math.min(open.key(current), forgotten[current]) : forgotten[current]);
+            }
+            if (children[current] == 0 && current != root) leaves.push(current, fCosts[current]);
+            backup(current);
+            if (open.size() > maxQueueSize) maxQueueSize = open.size();
+        }
+
+        double executionTime = (System.nanoTime() - startTime) / 1e9;
+        Types.PathResult result = new Types.PathResult(false, 0.0, Collections.emptyList(),
+                nodesExpanded, totalPushes, maxQueueSize, executionTime);
+        result.reexpanded = reexpanded;
+        return result;
+    }
+
+    private void reset() {
+        open.clear();
+        leaves.clear();
+        Arrays.fill(table, 0);
+        Arrays.fill(seen, 0L);
+        if (++generation == Integer.MAX_VALUE) {
+            Arrays.fill(costStamps, 0);
+            generation = 1;
+        }
+        freeCount = capacity;
+        for (int i = 0; i < capacity; i++) freeSlots[i] = capacity - 1 - i;
+    }
+
+    private int add(int node, double g, double f, int parent) {
+        int slot = freeSlots[--freeCount];
+        nodes[slot] = node;
+        gCosts[slot] = g;
+        fCosts[slot] = f;
+        forgotten[slot] = Double.POSITIVE_INFINITY;
+        parents[slot] = parent;
+        children[slot] = 0;
+        depths[slot] = parent >= 0 ? depths[parent] + 1 : 0;
+        if (parent >= 0) children[parent]++;
+        recordCost(node, g);
+        int i = home(node);
+        while (table[i] != 0) i = (i + 1) & tableMask;
+        table[i] = slot + 1;
+        return slot;
+    }
+
+    private void recordCost(int node, double g) {
+        if (costStamps[node] != generation || g < bestCosts[node]) {
+            bestCosts[node] = g;
+            costStamps[node] = generation;
+        }
+    }
+
+    // Forgets a leaf; its parent remembers the f-cost and is reopened to regenerate it later
+    private void prune(int slot, int expanding) {
+        leaves.remove(slot);
+        open.remove(slot);
+        int parent = parents[slot];
+        forgotten[parent] = Math.min(forgotten[parent], fCosts[slot]);
+        if (parent != expanding) {
+            open.push(parent, open.contains(parent) ? Math.min(open.key(parent), forgotten[parent]) : forgotten[parent]);
+        }
+        detach(slot, expanding);
+        removeFromTable(nodes[slot]);
+        freeSlots[freeCount++] = slot;
+        if (parent != expanding) backup(parent);
+    }
+
+    /**
+     * Raises f of an expanded node to the smallest f among its remembered and forgotten
+     * successors, and on up through its ancestors while that changes anything. Without this,
+     * a plateau of equal f larger than the cap is regenerated forever.
+     */
+    private void backup(int slot) {
+        while (slot >= 0 && !stale[slot]) {
+            double best = forgotten[slot];
+            int node = nodes[slot];
+            for (int e = graph.offsets[node]; e < graph.offsets[node + 1]; e++) {
+                int child = lookup(graph.targets[e]);
+                if (child >= 0 && parents[child] == slot) best = Math.min(best, fCosts[child]);
+            }
+            if (!(best > fCosts[slot])) return;
+            fCosts[slot] = best;
+            if (leaves.contains(slot)) leaves.push(slot, best);
+            slot = parents[slot];
+        }
+    }
+
+    // Unlinks a slot from its parent, which becomes a leaf when it has no remembered children left
+    private void detach(int slot, int expanding) {
+        int parent = parents[slot];
+        if (parent < 0) return;
+        if (--children[parent] == 0 && parents[parent] >= 0 && parent != expanding) {
+            leaves.push(parent, fCosts[parent]);
+        }
+    }
+
+    private int lookup(int node) {
+        for (int i = home(node); table[i] != 0; i = (i + 1) & tableMask) {
+            if (nodes[table[i] - 1] == node) return table[i] - 1;
+        }
+        return -1;
+    }
+
+    // Backward-shift deletion keeps every probe chain unbroken
+    private void removeFromTable(int node) {
+        int i = home(node);
+        while (nodes[table[i] - 1] != node) i = (i + 1) & tableMask;
+        table[i] = 0;
+        for (int j = (i + 1) & tableMask; table[j] != 0; j = (j + 1) & tableMask) {
+            int k = home(nodes[table[j] - 1]);
+            boolean movable = i <= j ? (k <= i || k > j) : (k <= i && k > j);
+            if (movable) {
+                table[i] = table[j];
+                table[j] = 0;
+                i = j;
+            }
+        }
+    }
+
+    private int home(int node) {
+        return (node * 0x9E3779B1) >>> 3 & tableMask;
+    }
+
+    /**
+     * Indexed binary heap of slots ordered by (f, depth), best first or worst first
+     */
+    private static final class SlotHeap {
+        private final int[] slots;
+        private final double[] keys;
+        private final int[] positions;
+        private final int[] depths;
+        private final boolean worstFirst;
+        private int size;
+
+        SlotHeap(int capacity, int[] depths, boolean worstFirst) {
+            this.slots = new int[capacity];
+            this.keys = new double[capacity];
+            this.positions = new int[capacity];
+            this.depths = depths;
+            this.worstFirst = worstFirst;
+            Arrays.fill(positions, -1);
+        }
+
+        boolean isEmpty() {
+            return size == 0;
+        }
+
+        int size() {
+            return size;
+        }
+
+        boolean contains(int slot) {
+            return positions[slot] >= 0;
+        }
+
+        double key(int slot) {
+            return keys[positions[slot]];
+        }
+
+        int peek() {
+            return slots[0];
+        }
+
+        double peekKey() {
+            return keys[0];
+        }
+
+        void clear() {
+            for (int i = 0; i < size; i++) positions[slots[i]] = -1;
+            size = 0;
+        }
+
+        // Inserts the slot, or moves it to the new key
+        void push(int slot, double key) {
+            remove(slot);
+            int i = size++;
+            slots[i] = slot;
+            keys[i] = key;
+            positions[slot] = i;
+            siftUp(i);
+        }
+
+        int pop() {
+            int top = slots[0];
+            remove(top);
+            return top;
+        }
+
+        void remove(int slot) {
+            int i = positions[slot];
+            if (i < 0) return;
+            positions[slot] = -1;
+            size--;
+            if (i == size) return;
+            int moved = slots[size];
+            slots[i] = moved;
+            keys[i] = keys[size];
+            positions[moved] = i;
+            siftUp(i);
+            siftDown(positions[moved]);
+        }
+
+        private boolean before(int a, int b) {
+            if (keys[a] != keys[b]) return worstFirst ? keys[a] > keys[b] : keys[a] < keys[b];
+            int depthA = depths[slots[a]];
+            int depthB = depths[slots[b]];
+            return worstFirst ? depthA < depthB : depthA > depthB;
+        }
+
+        private void siftUp(int i) {
+            while (i > 0) {
+                int parent = (i - 1) >>> 1;
+                if (!before(i, parent)) break;
+                swap(i, parent);
+                i = parent;
+            }
+        }
+
+        private void siftDown(int i) {
+            while (true) {
+                int child = 2 * i + 1;
+                if (child >= size) break;
+                if (child + 1 < size && before(child + 1, child)) child++;
+                if (!before(child, i)) break;
+                swap(i, child);
+                i = child;
+            }
+        }
+
+        private void swap(int a, int b) {
+            int slot = slots[a];
+            double key = keys[a];
+            slots[a] = slots[b];
+            keys[a] = keys[b];
+            positions[slots[a]] = a;
+            slots[b] = slot;
+            keys[b] = key;
+            positions[slot] = b;
+        }
+    }
+}
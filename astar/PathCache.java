@@ -0,0 +1,246 @@
+import java.util.*;
+
+/**
+ * Thread-safe LRU cache of shortest-path results
+ * Entries are keyed by (source, target, heuristic name) and bounded both by entry count and by
+ * an estimate of their heap size. Since every subpath of a shortest path is itself a shortest
+ * path, a miss is also answered from any cached path of the same heuristic that passes through
+ * both endpoints (in either direction, the graphs are undirected).
+ * Results depend on the graph, so every entry is tied to a graph version: setGraphVersion()
+ * drops all entries, and results computed against an older version are never stored.
+ */
+public final class PathCache {
+
+    // Rough heap cost of an entry and of each node on its path (boxed list, arrays, index entry)
+    private static final long ENTRY_BYTES = 160;
+    private static final long NODE_BYTES = 80;
+
+    private final int maxEntries;
+    private final long maxBytes;
+    private final LinkedHashMap<Key, Entry> entries = new LinkedHashMap<>(16, 0.75f, true);
+    // (node, heuristic) -> most recently stored path through that node
+    private final HashMap<Key, Entry> nodeIndex = new HashMap<>();
+    private long bytes;
+    private long version;
+
+    private long hits;
+    private long subpathHits;
+    private long misses;
+    private long evictions;
+
+    public PathCache(int maxEntries, long maxBytes) {
+        if (maxEntries < 1 || maxBytes < 1) {
+            throw new IllegalArgumentException("Cache bounds must be positive");
+        }
+        this.maxEntries = maxEntries;
+        this.maxBytes = maxBytes;
+    }
+
+    /**
+     * Cached search: answers from the cache when possible, otherwise runs A* and stores the result
+     * @param heuristicName Identifies the heuristic in the cache key, e.g. "manhattan"
+     */
+    public Types.PathResult search(CsrGraph graph, int source, int target, String heuristicName,
+                                   AStarProgram.IndexHeuristic heuristic, SearchWorkspace workspace) {
+        Types.PathResult cached = get(source, target, heuristicName);
+        if (cached != null) return cached;
+        long searchedVersion = version();
+        Types.PathResult result = AStarProgram.astar(graph, source, target, heuristic, workspace);
+        put(graph, source, target, heuristicName, result, searchedVersion);
+        return result;
+    }
+
+    /**
+     * @return The cached result with expanded/pushes/maxFrontier 0 and the lookup time as runtime,
+     *         or null on a miss
+     */
+    public Types.PathResult get(int source, int target, String heuristicName) {
+        long startTime = System.nanoTime();
+        synchronized (this) {
+            Entry entry = entries.get(new Key(source, target, heuristicName));
+            if (entry != null) {
+                hits++;
+                return copy(entry.result.found, entry.result.cost, entry.result.path, startTime);
+            }
+            Types.PathResult subpath = subpath(source, target, heuristicName, startTime);
+            if (subpath != null) {
+                subpathHits++;
+                return subpath;
+            }
+            misses++;
+            return null;
+        }
+    }
+
+    /**
+     * Stores a result that was computed against the given graph version
+     * @param graph Graph the result was computed on, used to index the path for subpath lookups
+     */
+    public void put(CsrGraph graph, int source, int target, String heuristicName,
+                    Types.PathResult result, long graphVersion) {
+        // Edge costs along the path are looked up outside the lock
+        int[] path = null;
+        double[] prefix = null;
+        if (result.found && result.path.size() > 2) {
+            path = new int[result.path.size()];
+            prefix = new double[path.length];
+            for (int i = 0; i < path.length; i++) path[i] = result.path.get(i);
+            for (int i = 1; i < path.length; i++) {
+                prefix[i] = prefix[i - 1] + edgeCost(graph, path[i - 1], path[i]);
+            }
+        }
+
+        synchronized (this) {
+            if (graphVersion != version) return;
+            Key key = new Key(source, target, heuristicName);
+            Entry entry = new Entry(key, copy(result.found, result.cost, result.path, 0), path, prefix);
+            Entry previous = entries.put(key, entry);
+            if (previous != null) remove(previous, false);
+            bytes += entry.bytes;
+            if (path != null) {
+                for (int node : path) nodeIndex.put(new Key(node, 0, heuristicName), entry);
+            }
+            evict();
+        }
+    }
+
+    public synchronized long version() {
+        return version;
+    }
+
+    /**
+     * Drops every entry if the graph version changed, e.g. after edge weights were updated
+     */
+    public synchronized void setGraphVersion(long graphVersion) {
+        if (graphVersion == version) return;
+        version = graphVersion;
+        entries.clear();
+        nodeIndex.clear();
+        bytes = 0;
+    }
+
+    public synchronized int size() {
+        return entries.size();
+    }
+
+    public synchronized long estimatedBytes() {
+        return bytes;
+    }
+
+    public synchronized long hits() {
+        return hits;
+    }
+
+    public synchronized long subpathHits() {
+        return subpathHits;
+    }
+
+    public synchronized long misses() {
+        return misses;
+    }
+
+    public synchronized long evictions() {
+        return evictions;
+    }
+
+    @Override
+    public synchronized String toString() {
+        return String.format("PathCache{entries=%d, bytes=%d, hits=%d, subpathHits=%d, misses=%d, evictions=%d, version=%d}",
+                entries.size(), bytes, hits, subpathHits, misses, evictions, version);
+    }
+
+    // Looks for a cached path of the same heuristic containing both endpoints
+    private Types.PathResult subpath(int source, int target, String heuristicName, long startTime) {
+        for (int endpoint : new int[]{source, target}) {
+            Entry entry = nodeIndex.get(new Key(endpoint, 0, heuristicName));
+            if (entry == null) continue;
+            int from = -1;
+            int to = -1;
+            for (int i = 0; i < entry.path.length; i++) {
+                if (entry.path[i] == source) from = i;
+                if (entry.path[i] == target) to = i;
+            }
+            if (from < 0 || to < 0) continue;
+            entries.get(entry.key); // touch for LRU
+            List<Integer> nodes = new ArrayList<>(Math.abs(to - from) + 1);
+            int step = from <= to ? 1 : -1;
+            for (int i = from; i != to + step; i += step) nodes.add(entry.path[i]);
+            return copy(true, Math.abs(entry.prefix[to] - entry.prefix[from]), nodes, startTime);
+        }
+        return null;
+    }
+
+    private void evict() {
+        Iterator<Entry> oldest = entries.values().iterator();
+        while ((entries.size() > maxEntries || bytes > maxBytes) && oldest.hasNext()) {
+            Entry entry = oldest.next();
+            oldest.remove();
+            remove(entry, true);
+        }
+    }
+
+    // Releases the bytes and index pointers of an entry already taken out of the map
+    private void remove(Entry entry, boolean evicted) {
+        bytes -= entry.bytes;
+        if (evicted) evictions++;
+        if (entry.path != null) {
+            for (int node : entry.path) nodeIndex.remove(new Key(node, 0, entry.key.heuristic), entry);
+        }
+    }
+
+    private static Types.PathResult copy(boolean found, double cost, List<Integer> path, long startTime) {
+        double executionTime = startTime == 0 ? 0.0 : (System.nanoTime() - startTime) / 1e9;
+        return new Types.PathResult(found, cost, Collections.unmodifiableList(path), 0, 0, 0, executionTime);
+    }
+
+    // Lightest edge between two consecutive path nodes, which is the one a shortest path uses
+    private static double edgeCost(CsrGraph graph, int fromId, int toId) {
+        int from = graph.indexOf(fromId);
+        int to = graph.indexOf(toId);
+        double best = Double.POSITIVE_INFINITY;
+        for (int e = graph.offsets[from]; e < graph.offsets[from + 1]; e++) {
+            if (graph.targets[e] == to && graph.weights[e] < best) best = graph.weights[e];
+        }
+        return best;
+    }
+
+    private static final class Key {
+        final int source;
+        final int target;
+        final String heuristic;
+
+        Key(int source, int target, String heuristic) {
+            this.source = source;
+            this.target = target;
+            this.heuristic = heuristic;
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (!(o instanceof Key)) return false;
+            Key other = (Key) o;
+            return source == other.source && target == other.target && heuristic.equals(other.heuristic);
+        }
+
+        @Override
+        public int hashCode() {
+            return (source * 31 + target) * 31 + heuristic.hashCode();
+        }
+    }
+
+    private static final class Entry {
+        final Key key;
+        final Types.PathResult result;
+        final int[] path;       // null when the path is not indexed for subpath lookups
+        final double[] prefix;  // prefix[i] = cost from path[0] to path[i]
+        final long bytes;
+
+        Entry(Key key, Types.PathResult result, int[] path, double[] prefix) {
+            this.key = key;
+            this.result = result;
+            this.path = path;
+            this.prefix = prefix;
+            this.bytes = ENTRY_BYTES + NODE_BYTES * result.path.size();
+        }
+    }
+}
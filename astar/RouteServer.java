@@ -0,0 +1,295 @@
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+
+import java.io.*;
+import java.lang.reflect.Method;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.URLDecoder;
+import java.nio.charset.StandardCharsets;
+import java.util.*;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Resident routing service: loads a graph once and answers path queries over HTTP on localhost
+ *   GET  /path?source=1&target=5&heuristic=manhattan   one query (heuristic: zero, euclidean, manhattan)
+ *   POST /batch                                         one "source,target[,heuristic]" per line, run in parallel
+ *   GET  /metrics                                       counters since start
+ *   GET  /metrics/search?format=prometheus              SearchMetrics totals (JSON by default), with -Dsearch.metrics=true
+ * Every result carries the usual PathResult figures (expanded, pushes, maxFrontier, runtime_s).
+ * Each request runs on its own virtual thread when the JVM has them (Java 21+), otherwise on a
+ * cached pool of platform threads. At most one /path search per processor runs at a time, the
+ * other requests wait for a free workspace. Connections are kept alive, so a client can
+ * pipeline requests on one connection; they are answered in order.
+ */
+public final class RouteServer {
+
+    private static final String DEFAULT_HEURISTIC = "euclidean";
+    private static final int MAX_BATCH = 100_000;
+
+    private final CsrGraph graph;
+    private final HttpServer server;
+    private final ExecutorService requestExecutor;
+    private final ForkJoinPool batchPool;
+    private final BatchSearch batchSearch;
+    // Workspaces are borrowed per request; per-thread copies would be lost with virtual threads.
+    // The permits bound both the concurrent searches and the number of workspaces ever created.
+    private final Semaphore searchPermits = new Semaphore(Runtime.getRuntime().availableProcessors());
+    private final ConcurrentLinkedQueue<SearchWorkspace> workspaces = new ConcurrentLinkedQueue<>();
+    private final long startTime = System.nanoTime();
+
+    private final AtomicLong queries = new AtomicLong();
+    private final AtomicLong batches = new AtomicLong();
+    private final AtomicLong errors = new AtomicLong();
+    private final AtomicLong totalExpanded = new AtomicLong();
+    private final AtomicLong totalPushes = new AtomicLong();
+    private final AtomicLong totalSearchNanos = new AtomicLong();
+
+    public RouteServer(CsrGraph graph, int port) throws IOException {
+        this.graph = graph;
+        this.requestExecutor = newRequestExecutor();
+        this.batchPool = new ForkJoinPool(Runtime.getRuntime().availableProcessors());
+        this.batchSearch = new BatchSearch(graph, batchPool);
+        this.server = HttpServer.create(new InetSocketAddress(InetAddress.getLoopbackAddress(), port), 0);
+        server.setExecutor(requestExecutor);
+        server.createContext("/path", exchange -> handle(exchange, this::path));
+        server.createContext("/batch", exchange -> handle(exchange, this::batch));
+        server.createContext("/metrics", exchange -> handle(exchange, e -> metrics()));
+        server.createContext("/metrics/search", this::searchMetrics);
+    }
+
+    public void start() {
+        server.start();
+    }
+
+    public void stop() {
+        server.stop(1);
+        requestExecutor.shutdown();
+        batchPool.shutdown();
+    }
+
+    public int port() {
+        return server.getAddress().getPort();
+    }
+
+    /**
+     * Virtual-thread-per-task executor when available, looked up reflectively so the class
+     * still compiles and runs on Java 17
+     */
+    static ExecutorService newRequestExecutor() {
+        try {
+            Method factory = Executors.class.getMethod("newVirtualThreadPerTaskExecutor");
+            return (ExecutorService) factory.invoke(null);
+        } catch (ReflectiveOperationException | UnsupportedOperationException e) {
+            return Executors.newCachedThreadPool();
+        }
+    }
+
+    static boolean usesVirtualThreads(ExecutorService executor) {
+        return !(executor instanceof ThreadPoolExecutor);
+    }
+
+    private interface Handler {
+        String respond(HttpExchange exchange) throws IOException;
+    }
+
+    private void handle(HttpExchange exchange, Handler handler) throws IOException {
+        handle(exchange, handler, "application/json");
+    }
+
+    private void handle(HttpExchange exchange, Handler handler, String contentType) throws IOException {
+        int status = 200;
+        String body;
+        try {
+            body = handler.respond(exchange);
+        } catch (IllegalArgumentException e) {
+            errors.incrementAndGet();
+            status = 400;
+            body = "{\"error\":" + quote(String.valueOf(e.getMessage())) + "}";
+        } catch (RuntimeException e) {
+            errors.incrementAndGet();
+            status = 500;
+            body = "{\"error\":" + quote(String.valueOf(e)) + "}";
+        }
+        byte[] bytes = body.getBytes(StandardCharsets.UTF_8);
+        exchange.getResponseHeaders().set("Content-Type", status == 200 ? contentType : "application/json");
+        exchange.sendResponseHeaders(status, bytes.length);
+        try (OutputStream out = exchange.getResponseBody()) {
+            out.write(bytes);
+        }
+    }
+
+    private String path(HttpExchange exchange) {
+        if (!"GET".equals(exchange.getRequestMethod())) throw new IllegalArgumentException("Use GET for /path");
+        Map<String, String> params = queryParameters(exchange.getRequestURI().getRawQuery());
+        int source = intParameter(params, "source");
+        int target = intParameter(params, "target");
+        AStarProgram.IndexHeuristic heuristic = heuristic(params.getOrDefault("heuristic", DEFAULT_HEURISTIC));
+
+        searchPermits.acquireUninterruptibly();
+        SearchWorkspace workspace = null;
+        try {
+            workspace = workspaces.poll();
+            if (workspace == null) workspace = new SearchWorkspace(graph.nodeCount);
+            Types.PathResult result = AStarProgram.astar(graph, source, target, heuristic, workspace);
+            record(result);
+            return toJson(result);
+        } finally {
+            if (workspace != null) workspaces.offer(workspace);
+            searchPermits.release();
+        }
+    }
+
+    private String batch(HttpExchange exchange) throws IOException {
+        if (!"POST".equals(exchange.getRequestMethod())) throw new IllegalArgumentException("Use POST for /batch");
+        List<BatchSearch.Query> batch = new ArrayList<>();
+        try (BufferedReader reader = new BufferedReader(new InputStreamReader(exchange.getRequestBody(), StandardCharsets.UTF_8))) {
+            String line;
+            while ((line = reader.readLine()) != null) {
+                line = line.trim();
+                if (line.isEmpty() || line.startsWith("#")) continue;
+                if (batch.size() == MAX_BATCH) throw new IllegalArgumentException("Batch is larger than " + MAX_BATCH + " queries");
+                String[] parts = line.split(",");
+                if (parts.length < 2 || parts.length > 3) {
+                    throw new IllegalArgumentException("Expected source,target[,heuristic] but got: " + line);
+                }
+                batch.add(new BatchSearch.Query(parseInt(parts[0].trim(), "source"), parseInt(parts[1].trim(), "target"),
+                        heuristic(parts.length == 3 ? parts[2].trim() : DEFAULT_HEURISTIC)));
+            }
+        }
+
+        BatchSearch.BatchResult result = batchSearch.run(batch);
+        batches.incrementAndGet();
+        StringBuilder json = new StringBuilder();
+        json.append(String.format(Locale.ROOT, "{\"queries\":%d,\"threads\":%d,\"runtime_s\":%.6f,\"results\":[",
+                batch.size(), result.threads, result.runtime_s));
+        for (int i = 0; i < result.results.size(); i++) {
+            record(result.results.get(i));
+            if (i > 0) json.append(',');
+            json.append(toJson(result.results.get(i)));
+        }
+        return json.append("]}").toString();
+    }
+
+    private String metrics() {
+        long count = queries.get();
+        return String.format(Locale.ROOT,
+                "{\"graph\":%s,\"virtualThreads\":%b,\"uptime_s\":%.3f,\"queries\":%d,\"batches\":%d,\"errors\":%d,"
+                        + "\"expanded\":%d,\"pushes\":%d,\"search_s\":%.6f,\"meanSearch_s\":%.9f}",
+                quote(graph.toString()), usesVirtualThreads(requestExecutor), (System.nanoTime() - startTime) / 1e9,
+                count, batches.get(), errors.get(), totalExpanded.get(), totalPushes.get(),
+                totalSearchNanos.get() / 1e9, count > 0 ? totalSearchNanos.get() / 1e9 / count : 0.0);
+    }
+
+    private void searchMetrics(HttpExchange exchange) throws IOException {
+        String format = queryParameters(exchange.getRequestURI().getRawQuery()).getOrDefault("format", "json");
+        switch (format) {
+            case "json":
+                handle(exchange, e -> SearchMetrics.json());
+                break;
+            case "prometheus":
+                handle(exchange, e -> SearchMetrics.prometheus(), "text/plain; version=0.0.4");
+                break;
+            default:
+                handle(exchange, e -> {
+                    throw new IllegalArgumentException("Unknown format: " + format);
+                });
+        }
+    }
+
+    private void record(Types.PathResult result) {
+        queries.incrementAndGet();
+        totalExpanded.addAndGet(result.expanded);
+        totalPushes.addAndGet(result.pushes);
+        totalSearchNanos.addAndGet((long) (result.runtime_s * 1e9));
+    }
+
+    static AStarProgram.IndexHeuristic heuristic(String name) {
+        switch (name.toLowerCase(Locale.ROOT)) {
+            case "zero":
+            case "ucs":
+                return Heuristics::hZero;
+            case "euclidean":
+                return Heuristics::hEuclidean;
+            case "manhattan":
+                return Heuristics::hManhattan;
+            default:
+                throw new IllegalArgumentException("Unknown heuristic: " + name);
+        }
+    }
+
+    static String toJson(Types.PathResult result) {
+        StringBuilder json = new StringBuilder(64 + 8 * result.path.size());
+        json.append("{\"found\":").append(result.found);
+        if (result.found) json.append(",\"cost\":").append(result.cost);
+        json.append(",\"path\":[");
+        for (int i = 0; i < result.path.size(); i++) {
+            if (i > 0) json.append(',');
+            json.append(result.path.get(i));
+        }
+        json.append(String.format(Locale.ROOT, "],\"expanded\":%d,\"pushes\":%d,\"maxFrontier\":%d,\"runtime_s\":%.9f}",
+                result.expanded, result.pushes, result.maxFrontier, result.runtime_s));
+        return json.toString();
+    }
+
+    private static Map<String, String> queryParameters(String rawQuery) {
+        Map<String, String> params = new HashMap<>();
+        if (rawQuery == null) return params;
+        for (String pair : rawQuery.split("&")) {
+            int eq = pair.indexOf('=');
+            if (eq <= 0) continue;
+            params.put(URLDecoder.decode(pair.substring(0, eq), StandardCharsets.UTF_8),
+                    URLDecoder.decode(pair.substring(eq + 1), StandardCharsets.UTF_8));
+        }
+        return params;
+    }
+
+    private static int intParameter(Map<String, String> params, String name) {
+        String value = params.get(name);
+        if (value == null) throw new IllegalArgumentException("Missing parameter: " + name);
+        return parseInt(value, name);
+    }
+
+    private static int parseInt(String value, String name) {
+        try {
+            return Integer.parseInt(value);
+        } catch (NumberFormatException e) {
+            throw new IllegalArgumentException("Invalid " + name + ": " + value);
+        }
+    }
+
+    private static String quote(String text) {
+        StringBuilder quoted = new StringBuilder(text.length() + 2).append('"');
+        for (char c : text.toCharArray()) {
+            if (c == '"' || c == '\\') quoted.append('\\').append(c);
+            else if (c < 0x20) quoted.append(String.format("\\u%04x", (int) c));
+            else quoted.append(c);
+        }
+        return quoted.append('"').toString();
+    }
+
+    /**
+     * Loads a text graph (or a .bin file from BinaryGraph) and serves it until the process is stopped
+     */
+    public static void main(String[] args) {
+        if (args.length < 1 || args.length > 2) {
+            System.out.println("Usage: java RouteServer <graph file> [port]");
+            return;
+        }
+        try {
+            long loadStart = System.nanoTime();
+            CsrGraph graph = args[0].endsWith(".bin") ? BinaryGraph.load(args[0]) : FastGraphParser.parse(args[0]);
+            RouteServer routeServer = new RouteServer(graph, args.length > 1 ? Integer.parseInt(args[1]) : 8080);
+            Runtime.getRuntime().addShutdownHook(new Thread(routeServer::stop));
+            routeServer.start();
+            System.out.printf(Locale.ROOT, "Loaded %s in %.3f s, listening on http://localhost:%d (%s threads)%n",
+                    graph, (System.nanoTime() - loadStart) / 1e9, routeServer.port(),
+                    usesVirtualThreads(routeServer.requestExecutor) ? "virtual" : "platform");
+        } catch (IOException e) {
+            System.err.println("Failed to start route server: " + e.getMessage());
+        } catch (NumberFormatException e) {
+            System.err.println("Invalid port: " + args[1]);
+        }
+    }
+}
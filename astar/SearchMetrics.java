@@ -0,0 +1,249 @@
+import jdk.jfr.*;
+
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.DoubleAdder;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Optional search instrumentation, switched on with -Dsearch.metrics=true
+ * When on, instrumented searches fill in the phase timings (init, search, path) of their
+ * PathResult and report it here. Each result is added to per-algorithm totals and a latency
+ * histogram, and emitted as a JFR event that shows up in a flight recording.
+ * The totals can be exported as Prometheus text or JSON.
+ * When off, ENABLED is a constant false, the JIT drops the instrumented branches and searches
+ * read no extra clocks.
+ * Other searches can report through the same path by calling now() at their phase boundaries
+ * and finish() before returning.
+ */
+public final class SearchMetrics {
+
+    public static final boolean ENABLED = Boolean.getBoolean("search.metrics");
+
+    // Latency histogram: bucket i counts queries up to 2^i microseconds, the last one the rest
+    private static final int BUCKETS = 25;
+    private static final double[] PERCENTILES = {0.5, 0.9, 0.99};
+
+    private static final ConcurrentHashMap<String, Series> SERIES = new ConcurrentHashMap<>();
+
+    private SearchMetrics() {}
+
+    /**
+     * Totals of one algorithm; updated concurrently without locks
+     */
+    private static final class Series {
+        final LongAdder queries = new LongAdder();
+        final LongAdder found = new LongAdder();
+        final LongAdder expanded = new LongAdder();
+        final LongAdder pushes = new LongAdder();
+        final LongAdder heuristicEvaluations = new LongAdder();
+        final LongAdder stalePops = new LongAdder();
+        final DoubleAdder init = new DoubleAdder();
+        final DoubleAdder search = new DoubleAdder();
+        final DoubleAdder path = new DoubleAdder();
+        final DoubleAdder latency = new DoubleAdder();
+        final AtomicLongArray histogram = new AtomicLongArray(BUCKETS + 1);
+    }
+
+    @Name("astar.Search")
+    @Label("Path Search")
+    @Category("Search")
+    @Description("One instrumented path query")
+    static final class SearchEvent extends Event {
+        @Label("Algorithm")
+        String algorithm;
+        @Label("Found")
+        boolean found;
+        @Label("Cost")
+        double cost;
+        @Label("Expanded")
+        int expanded;
+        @Label("Pushes")
+        int pushes;
+        @Label("Heuristic Evaluations")
+        int heuristicEvaluations;
+        @Label("Stale Pops")
+        int stalePops;
+        @Label("Init Time")
+        @Timespan(Timespan.NANOSECONDS)
+        long initTime;
+        @Label("Search Time")
+        @Timespan(Timespan.NANOSECONDS)
+        long searchTime;
+        @Label("Path Time")
+        @Timespan(Timespan.NANOSECONDS)
+        long pathTime;
+    }
+
+    /**
+     * Clock for phase boundaries; 0 without a clock read when instrumentation is off
+     */
+    public static long now() {
+        return ENABLED ? System.nanoTime() : 0L;
+    }
+
+    /**
+     * Completes a query: fills in the phase timings and counters of the result and records it.
+     * Does nothing when instrumentation is off.
+     * @param startTime   System.nanoTime() at the start of the query
+     * @param searchStart now() when initialization was done
+     * @param pathStart   now() when the search loop ended (path reconstruction starts)
+     * @return The result, for use in a return statement
+     */
+    public static Types.PathResult finish(String algorithm, Types.PathResult result, long startTime,
+                                          long searchStart, long pathStart, int heuristicEvaluations, int stalePops) {
+        if (!ENABLED) return result;
+        long end = startTime + (long) (result.runtime_s * 1e9);
+        result.init_s = (searchStart - startTime) / 1e9;
+        result.search_s = (pathStart - searchStart) / 1e9;
+        result.path_s = Math.max(0L, end - pathStart) / 1e9;
+        result.heuristicEvaluations = heuristicEvaluations;
+        result.stalePops = stalePops;
+        record(algorithm, result);
+        return result;
+    }
+
+    /**
+     * Adds a finished result to the totals of the algorithm and emits its JFR event
+     */
+    public static void record(String algorithm, Types.PathResult result) {
+        if (!ENABLED) return;
+        Series series = SERIES.computeIfAbsent(algorithm, name -> new Series());
+        series.queries.increment();
+        if (result.found) series.found.increment();
+        series.expanded.add(result.expanded);
+        series.pushes.add(result.pushes);
+        series.heuristicEvaluations.add(result.heuristicEvaluations);
+        series.stalePops.add(result.stalePops);
+        series.init.add(result.init_s);
+        series.search.add(result.search_s);
+        series.path.add(result.path_s);
+        series.latency.add(result.runtime_s);
+        series.histogram.incrementAndGet(bucket(result.runtime_s));
+
+        SearchEvent event = new SearchEvent();
+        if (event.shouldCommit()) {
+            event.algorithm = algorithm;
+            event.found = result.found;
+            event.cost = result.cost;
+            event.expanded = result.expanded;
+            event.pushes = result.pushes;
+            event.heuristicEvaluations = result.heuristicEvaluations;
+            event.stalePops = result.stalePops;
+            event.initTime = (long) (result.init_s * 1e9);
+            event.searchTime = (long) (result.search_s * 1e9);
+            event.pathTime = (long) (result.path_s * 1e9);
+            event.commit();
+        }
+    }
+
+    public static void reset() {
+        SERIES.clear();
+    }
+
+    private static int bucket(double seconds) {
+        long micros = (long) Math.ceil(seconds * 1e6);
+        if (micros <= 1) return 0;
+        return Math.min(BUCKETS, 64 - Long.numberOfLeadingZeros(micros - 1));
+    }
+
+    private static double bucketBound(int bucket) {
+        return bucket < BUCKETS ? Math.scalb(1e-6, bucket) : Double.POSITIVE_INFINITY;
+    }
+
+    // Upper bound of the bucket that holds the given quantile
+    private static double quantile(Series series, double q) {
+        long total = 0;
+        for (int i = 0; i <= BUCKETS; i++) total += series.histogram.get(i);
+        if (total == 0) return 0.0;
+        long rank = (long) Math.ceil(q * total);
+        long seen = 0;
+        for (int i = 0; i <= BUCKETS; i++) {
+            seen += series.histogram.get(i);
+            if (seen >= rank) return bucketBound(i);
+        }
+        return Double.POSITIVE_INFINITY;
+    }
+
+    /**
+     * Totals in the Prometheus text exposition format
+     */
+    public static String prometheus() {
+        StringBuilder out = new StringBuilder();
+        Map<String, Series> sorted = new TreeMap<>(SERIES);
+        counter(out, "search_queries_total", "Instrumented queries", sorted, s -> s.queries.sum());
+        counter(out, "search_found_total", "Queries that found a path", sorted, s -> s.found.sum());
+        counter(out, "search_expanded_total", "Expanded nodes", sorted, s -> s.expanded.sum());
+        counter(out, "search_pushes_total", "Frontier pushes", sorted, s -> s.pushes.sum());
+        counter(out, "search_heuristic_evaluations_total", "Heuristic evaluations", sorted, s -> s.heuristicEvaluations.sum());
+        counter(out, "search_stale_pops_total", "Outdated frontier entries skipped", sorted, s -> s.stalePops.sum());
+
+        out.append("# HELP search_phase_seconds_total Time per search phase\n");
+        out.append("# TYPE search_phase_seconds_total counter\n");
+        for (Map.Entry<String, Series> entry : sorted.entrySet()) {
+            Series s = entry.getValue();
+            phase(out, entry.getKey(), "init", s.init.sum());
+            phase(out, entry.getKey(), "search", s.search.sum());
+            phase(out, entry.getKey(), "path", s.path.sum());
+        }
+
+        out.append("# HELP search_latency_seconds Query latency\n");
+        out.append("# TYPE search_latency_seconds histogram\n");
+        for (Map.Entry<String, Series> entry : sorted.entrySet()) {
+            Series s = entry.getValue();
+            String label = "algorithm=\"" + entry.getKey() + "\"";
+            long cumulative = 0;
+            for (int i = 0; i <= BUCKETS; i++) {
+                cumulative += s.histogram.get(i);
+                String bound = i < BUCKETS ? String.format(Locale.ROOT, "%g", bucketBound(i)) : "+Inf";
+                out.append("search_latency_seconds_bucket{").append(label).append(",le=\"").append(bound)
+                        .append("\"} ").append(cumulative).append('\n');
+            }
+            out.append("search_latency_seconds_sum{").append(label).append("} ")
+                    .append(String.format(Locale.ROOT, "%.9f", s.latency.sum())).append('\n');
+            out.append("search_latency_seconds_count{").append(label).append("} ").append(cumulative).append('\n');
+        }
+        return out.toString();
+    }
+
+    private interface Field {
+        long get(Series series);
+    }
+
+    private static void counter(StringBuilder out, String name, String help, Map<String, Series> sorted, Field field) {
+        out.append("# HELP ").append(name).append(' ').append(help).append('\n');
+        out.append("# TYPE ").append(name).append(" counter\n");
+        for (Map.Entry<String, Series> entry : sorted.entrySet()) {
+            out.append(name).append("{algorithm=\"").append(entry.getKey()).append("\"} ")
+                    .append(field.get(entry.getValue())).append('\n');
+        }
+    }
+
+    private static void phase(StringBuilder out, String algorithm, String phase, double seconds) {
+        out.append(String.format(Locale.ROOT, "search_phase_seconds_total{algorithm=\"%s\",phase=\"%s\"} %.9f%n",
+                algorithm, phase, seconds));
+    }
+
+    /**
+     * Totals as a JSON object keyed by algorithm, with latency percentiles (bucket upper bounds)
+     */
+    public static String json() {
+        StringBuilder out = new StringBuilder("{");
+        for (Map.Entry<String, Series> entry : new TreeMap<>(SERIES).entrySet()) {
+            Series s = entry.getValue();
+            if (out.length() > 1) out.append(',');
+            out.append(String.format(Locale.ROOT,
+                    "\"%s\":{\"queries\":%d,\"found\":%d,\"expanded\":%d,\"pushes\":%d,\"heuristicEvaluations\":%d,"
+                            + "\"stalePops\":%d,\"init_s\":%.9f,\"search_s\":%.9f,\"path_s\":%.9f,\"latency_s\":%.9f",
+                    entry.getKey(), s.queries.sum(), s.found.sum(), s.expanded.sum(), s.pushes.sum(),
+                    s.heuristicEvaluations.sum(), s.stalePops.sum(), s.init.sum(), s.search.sum(), s.path.sum(),
+                    s.latency.sum()));
+            for (double q : PERCENTILES) {
+                out.append(String.format(Locale.ROOT, ",\"p%d_s\":%g", Math.round(q * 100), quantile(s, q)));
+            }
+            out.append('}');
+        }
+        return out.append('}').toString();
+    }
+}
@@ -0,0 +1,76 @@
+import java.util.*;
+
+/**
+ * Reusable per-thread search state for searches on a CsrGraph
+ * g-costs and parents are generation-stamped: an entry only counts if its stamp
+ * matches the current generation, so reset() is O(frontier) instead of O(V)
+ * and repeated queries allocate nothing. Not thread-safe; use one per thread.
+ */
+public final class SearchWorkspace {
+
+    private final double[] gCosts;
+    private final int[] parents;
+    private final int[] stamps;
+    private int generation;
+
+    public final IndexedHeap open;
+
+    public SearchWorkspace(int nodeCount) {
+        this.gCosts = new double[nodeCount];
+        this.parents = new int[nodeCount];
+        this.stamps = new int[nodeCount];
+        this.generation = 1;
+        this.open = new IndexedHeap(nodeCount);
+    }
+
+    public int capacity() {
+        return stamps.length;
+    }
+
+    /**
+     * Starts a new query: invalidates all g-costs and parents and empties the open list
+     */
+    public void reset() {
+        open.clear();
+        if (++generation == Integer.MAX_VALUE) {
+            Arrays.fill(stamps, 0);
+            generation = 1;
+        }
+    }
+
+    /**
+     * @return true if the node received a g-cost in the current query
+     */
+    public boolean reached(int node) {
+        return stamps[node] == generation;
+    }
+
+    public double g(int node) {
+        return stamps[node] == generation ? gCosts[node] : Double.POSITIVE_INFINITY;
+    }
+
+    /**
+     * @return Parent index, or -1 for the start node and unreached nodes
+     */
+    public int parent(int node) {
+        return stamps[node] == generation ? parents[node] : -1;
+    }
+
+    public void set(int node, double g, int parent) {
+        gCosts[node] = g;
+        parents[node] = parent;
+        stamps[node] = generation;
+    }
+
+    /**
+     * Follows parents back from target and returns the path as original node ids
+     */
+    public List<Integer> path(CsrGraph graph, int target) {
+        List<Integer> path = new ArrayList<>();
+        for (int node = target; node != -1; node = parent(node)) {
+            path.add(graph.idOf(node));
+        }
+        Collections.reverse(path);
+        return path;
+    }
+}
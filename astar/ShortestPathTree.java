@@ -0,0 +1,60 @@
+import java.util.*;
+
+/**
+ * One-to-all Dijkstra result on a CsrGraph
+ * distances and parents are indexed by dense node index; order lists the reached
+ * nodes in the order they were settled, so every parent comes before its children.
+ */
+public final class ShortestPathTree {
+
+    public final int root;
+    public final double[] distances;
+    public final int[] parents;
+    public final int[] order;
+
+    private ShortestPathTree(int root, double[] distances, int[] parents, int[] order) {
+        this.root = root;
+        this.distances = distances;
+        this.parents = parents;
+        this.order = order;
+    }
+
+    /**
+     * Runs Dijkstra from a dense node index over the whole graph
+     * Unreached nodes get distance +infinity and parent -1.
+     */
+    public static ShortestPathTree compute(CsrGraph graph, int root) {
+        int n = graph.nodeCount;
+        double[] distances = new double[n];
+        int[] parents = new int[n];
+        int[] order = new int[n];
+        Arrays.fill(distances, Double.POSITIVE_INFINITY);
+        Arrays.fill(parents, -1);
+
+        IndexedHeap open = new IndexedHeap(n);
+        distances[root] = 0.0;
+        open.push(root, 0.0);
+        int settled = 0;
+
+        int[] offsets = graph.offsets;
+        int[] targets = graph.targets;
+        double[] weights = graph.weights;
+
+        while (!open.isEmpty()) {
+            int current = open.pop();
+            order[settled++] = current;
+            double currentDistance = distances[current];
+            for (int e = offsets[current], end = offsets[current + 1]; e < end; e++) {
+                int next = targets[e];
+                double newDistance = currentDistance + weights[e];
+                if (newDistance < distances[next]) {
+                    distances[next] = newDistance;
+                    parents[next] = current;
+                    open.push(next, newDistance);
+                }
+            }
+        }
+
+        return new ShortestPathTree(root, distances, parents, Arrays.copyOf(order, settled));
+    }
+}
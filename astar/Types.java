@@ -75,6 +75,19 @@ public class Types {
         public int pushes;
         public int maxFrontier;
         public double runtime_s;
+        // Per-direction split of expanded, filled in by bidirectional searches only
+        public int expandedForward;
+        public int expandedBackward;
+        // Proven upper bound on cost / optimal cost; 1 for exact searches, larger for anytime results
+        public double suboptimality = 1.0;
+        // Expansions of nodes that had already been expanded, filled in by memory-bounded searches
+        public int reexpanded;
+        // Phase split of runtime_s and inner-loop counters, filled in only with -Dsearch.metrics=true
+        public double init_s;
+        public double search_s;
+        public double path_s;
+        public int heuristicEvaluations;
+        public int stalePops;
 
         public PathResult(boolean found, double cost, List<Integer> path,
                           int expanded, int pushes, int maxFrontier, double runtime_s) {
@@ -85,6 +98,7 @@ public class Types {
             this.pushes = pushes;
             this.maxFrontier = maxFrontier;
             this.runtime_s = runtime_s;
+            this.expandedForward = expanded;
         }
 
         @Override
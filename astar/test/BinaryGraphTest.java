@@ -0,0 +1,89 @@
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.file.*;
+import java.util.Arrays;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Round trip through the binary format, and damaged files that must fail to load
+ */
+class BinaryGraphTest {
+
+    @TempDir
+    Path dir;
+
+    @Test
+    void roundTripKeepsTheGraph() throws IOException {
+        CsrGraph graph = CsrGraph.fromGraph(Graph.parseGraph("astar_medium.txt"));
+        String file = dir.resolve("medium.bin").toString();
+        BinaryGraph.write(graph, file);
+        CsrGraph loaded = BinaryGraph.load(file);
+        assertArrayEquals(graph.ids, loaded.ids);
+        assertArrayEquals(graph.offsets, loaded.offsets);
+        assertArrayEquals(graph.targets, loaded.targets);
+        assertArrayEquals(graph.weights, loaded.weights);
+        assertArrayEquals(graph.x, loaded.x);
+        assertArrayEquals(graph.y, loaded.y);
+        assertEquals(graph.sourceId, loaded.sourceId);
+        assertEquals(graph.destinationId, loaded.destinationId);
+    }
+
+    @Test
+    void firstOffsetMustBeZero() throws IOException {
+        // Shifting every row by one edge keeps the offsets ascending and the last one at m
+        assertCorrupt(bytes -> bytes.putInt(offsetsPosition(bytes), 1));
+    }
+
+    @Test
+    void weightsMustNotBeNegativeOrNaN() throws IOException {
+        assertCorrupt(bytes -> bytes.putDouble(weightsPosition(bytes), -1.0));
+        assertCorrupt(bytes -> bytes.putDouble(weightsPosition(bytes), Double.NaN));
+    }
+
+    @Test
+    void targetsMustBeNodes() throws IOException {
+        assertCorrupt(bytes -> bytes.putInt(offsetsPosition(bytes) + Integer.BYTES * (bytes.getInt(8) + 1), -1));
+    }
+
+    @Test
+    void truncatedFileFails() throws IOException {
+        Path file = write();
+        byte[] bytes = Files.readAllBytes(file);
+        Files.write(file, Arrays.copyOf(bytes, bytes.length - 1));
+        assertThrows(IOException.class, () -> BinaryGraph.load(file.toString()));
+    }
+
+    private interface Damage {
+        void apply(ByteBuffer bytes);
+    }
+
+    private void assertCorrupt(Damage damage) throws IOException {
+        Path file = write();
+        ByteBuffer bytes = ByteBuffer.wrap(Files.readAllBytes(file)).order(ByteOrder.LITTLE_ENDIAN);
+        damage.apply(bytes);
+        Files.write(file, bytes.array());
+        IOException e = assertThrows(IOException.class, () -> BinaryGraph.load(file.toString()));
+        assertTrue(e.getMessage().contains("Corrupt"), e.getMessage());
+    }
+
+    private Path write() throws IOException {
+        Path file = dir.resolve("small.bin");
+        BinaryGraph.write(CsrGraph.fromGraph(Graph.parseGraph("astar_small.txt")), file.toString());
+        return file;
+    }
+
+    // Byte positions of the sections, from nodeCount and edgeCount in the header
+    private static int offsetsPosition(ByteBuffer bytes) {
+        return 6 * Integer.BYTES + Integer.BYTES * bytes.getInt(8);
+    }
+
+    private static int weightsPosition(ByteBuffer bytes) {
+        int end = 6 * Integer.BYTES + Integer.BYTES * (2 * bytes.getInt(8) + 1 + bytes.getInt(12));
+        return (end + 7) & ~7;
+    }
+}
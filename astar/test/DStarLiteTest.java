@@ -0,0 +1,78 @@
+import org.junit.jupiter.api.Test;
+
+import java.util.*;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * An agent walks along the D* Lite route, sometimes stepping off it, while edge weights change
+ * under it. After every move the repaired path must cost the same as a fresh search.
+ */
+class DStarLiteTest {
+
+    @Test
+    void movingStartWithManhattanMatchesFreshSearch() {
+        for (long seed = 1; seed <= 300; seed++) walk(seed, false);
+    }
+
+    @Test
+    void movingStartWithWeightChangesMatchesFreshSearch() {
+        for (long seed = 1; seed <= 300; seed++) walk(seed, true);
+    }
+
+    @Test
+    void pathCostMatchesItsEdges() {
+        CsrGraph graph = CsrGraph.fromGraph(GraphGenerator.grid(20, 20, 0.2, 3.0, 7));
+        DStarLite search = new DStarLite(graph, graph.sourceId, graph.destinationId, Heuristics::hManhattan);
+        Types.PathResult result = search.computePath();
+        assertTrue(result.found);
+        assertEquals(graph.sourceId, result.path.get(0));
+        assertEquals(graph.destinationId, result.path.get(result.path.size() - 1));
+        double cost = 0.0;
+        for (int i = 1; i < result.path.size(); i++) cost += search.weight(result.path.get(i - 1), result.path.get(i));
+        assertEquals(cost, result.cost, 1e-9);
+    }
+
+    private static void walk(long seed, boolean changeWeights) {
+        CsrGraph graph = CsrGraph.fromGraph(GraphGenerator.grid(20, 20, 0.2, 3.0, seed));
+        Random random = new Random(seed);
+        DStarLite search = new DStarLite(graph, graph.sourceId, graph.destinationId, Heuristics::hManhattan);
+        // Weight changes so far as {from, to, weight}, replayed on each fresh search
+        List<double[]> changes = new ArrayList<>();
+        int start = graph.sourceId;
+        for (int step = 0; step < 60; step++) {
+            Types.PathResult result = search.computePath();
+            Types.PathResult expected = fresh(graph, start, changes).computePath();
+            assertEquals(expected.found, result.found, "seed " + seed + ", start " + start);
+            if (!result.found || start == graph.destinationId) return;
+            assertEquals(expected.cost, result.cost, 1e-9, "seed " + seed + ", start " + start);
+            assertEquals(start, result.path.get(0));
+
+            if (random.nextBoolean()) {
+                start = result.path.get(Math.min(1 + random.nextInt(3), result.path.size() - 1));
+            } else {
+                // Off the route, onto nodes the last search may not have settled
+                int u = graph.indexOf(start);
+                start = graph.idOf(graph.targets[graph.offsets[u] + random.nextInt(graph.degree(u))]);
+            }
+            search.moveStart(start);
+            if (changeWeights) {
+                // Weights stay at least 1, the Manhattan distance of a grid step
+                for (int i = random.nextInt(4); i > 0; i--) {
+                    int u = random.nextInt(graph.nodeCount);
+                    if (graph.degree(u) == 0) continue;
+                    int v = graph.targets[graph.offsets[u] + random.nextInt(graph.degree(u))];
+                    double weight = 1.0 + random.nextDouble() * 8.0;
+                    search.updateEdgeWeight(graph.idOf(u), graph.idOf(v), weight);
+                    changes.add(new double[]{graph.idOf(u), graph.idOf(v), weight});
+                }
+            }
+        }
+    }
+
+    private static DStarLite fresh(CsrGraph graph, int start, List<double[]> changes) {
+        DStarLite search = new DStarLite(graph, start, graph.destinationId, Heuristics::hZero);
+        for (double[] change : changes) search.updateEdgeWeight((int) change[0], (int) change[1], change[2]);
+        return search;
+    }
+}
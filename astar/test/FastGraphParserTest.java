@@ -0,0 +1,111 @@
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.*;
+import java.nio.file.*;
+import java.util.*;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * FastGraphParser against Graph.parseGraph: the same nodes, edges in the same order, bit-equal
+ * weights, coordinates and endpoints, sequentially and in parallel chunks
+ */
+class FastGraphParserTest {
+
+    @TempDir
+    Path dir;
+
+    @Test
+    void fixturesMatch() throws IOException {
+        assertSameGraph("astar_small.txt");
+        assertSameGraph("astar_medium.txt");
+    }
+
+    @Test
+    void variantSyntaxMatches() throws IOException {
+        Path file = dir.resolve("variants.txt");
+        Files.write(file, List.of(
+                "# labels in any case, with or without a colon, and spaces around the numbers",
+                "Vertex: 1, 11",
+                "vertex 2,12",
+                "VERTEX:3 , 23",
+                "4,34",
+                "  5 , 45  ",
+                "",
+                "# the same vertex twice: the last line wins",
+                "5,46",
+                "6,56",
+                "7,67",
+                "8,78",
+                "Edge: 1, 2, 7",
+                "edge 2,3,4.25",
+                "EDGE:3 , 4 , +0.5",
+                "4,5,1e2",
+                "5,6,  12.345E-1 ",
+                "1,3,0.000001",
+                "# fallback to Double.parseDouble: many digits, exponents beyond the exact powers, suffixes, hex",
+                "2,4,1.00000000000000000001",
+                "3,5,123456789012345678901234",
+                "4,6,1e-30",
+                "5,7,2.5d",
+                "6,7,0x1.8p1",
+                "7,8,Infinity",
+                "1,8,-0.0",
+                "# lines both parsers skip",
+                "2,5,heavy",
+                "x,1",
+                "Edge: 1, 2",
+                "Source: 99",
+                "Destination: 98",
+                "S, 1",
+                "d,8"));
+        assertSameGraph(file.toString());
+    }
+
+    @Test
+    void largeFileMatchesInParallelChunks() throws IOException {
+        // Over the 1 MB threshold, so the parallel parser cuts it into chunks
+        Path file = dir.resolve("large.txt");
+        Random random = new Random(3);
+        int nodes = 20_000;
+        try (PrintWriter out = new PrintWriter(Files.newBufferedWriter(file))) {
+            out.println("# vertices");
+            for (int id = 1; id <= nodes; id++) out.println(id + "," + random.nextInt(100));
+            out.println("# edges");
+            for (int i = 0; i < 60_000; i++) {
+                int u = 1 + random.nextInt(nodes);
+                int v = 1 + random.nextInt(nodes);
+                double w = switch (i % 4) {
+                    case 0 -> 1 + random.nextInt(9);
+                    case 1 -> random.nextDouble() * 10;
+                    case 2 -> random.nextDouble() * 1e-7;
+                    default -> Math.scalb(random.nextDouble(), 80);
+                };
+                out.println(u + "," + v + "," + w);
+            }
+            out.println("S,1");
+            out.println("D," + nodes);
+        }
+        assertTrue(Files.size(file) > (1 << 20));
+        assertSameGraph(file.toString());
+    }
+
+    private static void assertSameGraph(String filename) throws IOException {
+        CsrGraph expected = CsrGraph.fromGraph(Graph.parseGraph(filename));
+        for (int threads : new int[]{1, 4}) {
+            CsrGraph graph = FastGraphParser.parse(filename, threads);
+            String name = filename + ", " + threads + " threads";
+            assertEquals(expected.nodeCount, graph.nodeCount, name);
+            assertEquals(expected.edgeCount, graph.edgeCount, name);
+            assertArrayEquals(expected.ids, graph.ids, name);
+            assertArrayEquals(expected.offsets, graph.offsets, name);
+            assertArrayEquals(expected.targets, graph.targets, name);
+            assertArrayEquals(expected.weights, graph.weights, name);
+            assertArrayEquals(expected.x, graph.x, name);
+            assertArrayEquals(expected.y, graph.y, name);
+            assertEquals(expected.sourceId, graph.sourceId, name);
+            assertEquals(expected.destinationId, graph.destinationId, name);
+        }
+    }
+}
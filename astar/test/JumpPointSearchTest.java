@@ -0,0 +1,187 @@
+import org.junit.jupiter.api.Test;
+
+import java.util.*;
+import java.util.concurrent.*;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * One JumpPointSearch shared by several threads, each with its own workspace, must find the
+ * same costs as plain A* for every query; on 8-connected grids its paths must be legal moves.
+ */
+class JumpPointSearchTest {
+
+    private static final int QUERIES = 400;
+
+    // Walls with diagonal gaps ("#." over ".#") that may not be crossed, corners to turn around,
+    // dead ends and a walled-in cell
+    private static final String[] MAP = {
+            "............",
+            ".##..#..#.#.",
+            ".#..#..#.#..",
+            "...#..#.#...",
+            ".#.#.#...##.",
+            ".#..#..#.#..",
+            "..#...#..#.#",
+            ".#.#.#..#...",
+            "...#..##..#.",
+            ".#...#..#.#.",
+    };
+
+    @Test
+    void concurrentScanningSearchesMatchAStar() throws Exception {
+        assertConcurrentSearchesMatch(false);
+    }
+
+    @Test
+    void concurrentTableSearchesMatchAStar() throws Exception {
+        assertConcurrentSearchesMatch(true);
+    }
+
+    @Test
+    void eightConnectedMapMatchesAStar() {
+        CsrGraph graph = eightConnected(MAP);
+        for (boolean precompute : new boolean[]{false, true}) {
+            JumpPointSearch jps = JumpPointSearch.forGraph(graph);
+            assertNotNull(jps);
+            assertTrue(jps.isEightConnected());
+            if (precompute) jps.precompute();
+            // Every pair of free cells
+            for (int u = 0; u < graph.nodeCount; u++) {
+                for (int v = 0; v < graph.nodeCount; v++) {
+                    assertSameCost(graph, jps, graph.idOf(u), graph.idOf(v), precompute);
+                }
+            }
+        }
+    }
+
+    @Test
+    void randomEightConnectedGridsMatchAStar() {
+        for (long seed = 1; seed <= 5; seed++) {
+            Random random = new Random(seed);
+            String[] map = new String[40];
+            for (int y = 0; y < map.length; y++) {
+                StringBuilder row = new StringBuilder();
+                for (int x = 0; x < 40; x++) row.append(random.nextDouble() < 0.3 ? '#' : '.');
+                map[y] = row.toString();
+            }
+            CsrGraph graph = eightConnected(map);
+            JumpPointSearch scan = JumpPointSearch.forGraph(graph);
+            JumpPointSearch table = JumpPointSearch.forGraph(graph);
+            table.precompute();
+            for (int i = 0; i < QUERIES; i++) {
+                int start = graph.idOf(random.nextInt(graph.nodeCount));
+                int target = graph.idOf(random.nextInt(graph.nodeCount));
+                assertSameCost(graph, scan, start, target, false);
+                assertSameCost(graph, table, start, target, true);
+            }
+        }
+    }
+
+    private static void assertSameCost(CsrGraph graph, JumpPointSearch jps, int start, int target, boolean precompute) {
+        String name = (precompute ? "JPS+ " : "JPS ") + start + " -> " + target;
+        Types.PathResult expected = AStarProgram.astar(graph, start, target, Heuristics::hZero);
+        Types.PathResult result = jps.search(start, target);
+        assertEquals(expected.found, result.found, name);
+        if (!expected.found) return;
+        assertEquals(expected.cost, result.cost, 1e-9, name);
+        // The path is made of graph edges and costs what they add up to
+        assertEquals(start, result.path.get(0), name);
+        assertEquals(target, result.path.get(result.path.size() - 1), name);
+        double cost = 0.0;
+        for (int i = 1; i < result.path.size(); i++) {
+            int u = graph.indexOf(result.path.get(i - 1));
+            int v = graph.indexOf(result.path.get(i));
+            int edge = -1;
+            for (int e = graph.offsets[u]; e < graph.offsets[u + 1]; e++) {
+                if (graph.targets[e] == v) edge = e;
+            }
+            assertTrue(edge >= 0, name + ": no edge " + result.path.get(i - 1) + " -> " + result.path.get(i));
+            cost += graph.weights[edge];
+        }
+        assertEquals(result.cost, cost, 1e-9, name);
+    }
+
+    /**
+     * 8-connected grid of the '.' cells of a map: straight moves cost 1, diagonal moves sqrt(2)
+     * and need both side cells free. Node id of cell (x, y) is y * width + x + 1.
+     */
+    private static CsrGraph eightConnected(String[] map) {
+        int width = map[0].length();
+        int height = map.length;
+        int[] index = new int[width * height];
+        List<Integer> ids = new ArrayList<>();
+        for (int y = 0; y < height; y++) {
+            for (int x = 0; x < width; x++) {
+                index[y * width + x] = free(map, x, y) ? ids.size() : -1;
+                if (free(map, x, y)) ids.add(y * width + x + 1);
+            }
+        }
+        int n = ids.size();
+        int[] offsets = new int[n + 1];
+        List<Integer> targets = new ArrayList<>();
+        List<Double> weights = new ArrayList<>();
+        int[] xs = new int[n];
+        int[] ys = new int[n];
+        for (int v = 0; v < n; v++) {
+            int x = (ids.get(v) - 1) % width;
+            int y = (ids.get(v) - 1) / width;
+            xs[v] = x;
+            ys[v] = y;
+            for (int dy = -1; dy <= 1; dy++) {
+                for (int dx = -1; dx <= 1; dx++) {
+                    if ((dx == 0 && dy == 0) || !free(map, x + dx, y + dy)) continue;
+                    boolean straight = dx == 0 || dy == 0;
+                    if (!straight && !(free(map, x + dx, y) && free(map, x, y + dy))) continue;
+                    targets.add(index[(y + dy) * width + x + dx]);
+                    weights.add(straight ? 1.0 : Math.sqrt(2));
+                }
+            }
+            offsets[v + 1] = targets.size();
+        }
+        return new CsrGraph(ids.stream().mapToInt(Integer::intValue).toArray(), offsets,
+                targets.stream().mapToInt(Integer::intValue).toArray(),
+                weights.stream().mapToDouble(Double::doubleValue).toArray(), xs, ys, ids.get(0), ids.get(n - 1));
+    }
+
+    private static boolean free(String[] map, int x, int y) {
+        return y >= 0 && y < map.length && x >= 0 && x < map[y].length() && map[y].charAt(x) == '.';
+    }
+
+    private static void assertConcurrentSearchesMatch(boolean precompute) throws Exception {
+        CsrGraph graph = CsrGraph.fromGraph(GraphGenerator.grid(60, 60, 0.25, 0.0, 3));
+        JumpPointSearch jps = JumpPointSearch.forGraph(graph);
+        assertNotNull(jps);
+        if (precompute) jps.precompute();
+
+        Random random = new Random(11);
+        int[][] queries = new int[QUERIES][];
+        double[] expected = new double[QUERIES];
+        for (int i = 0; i < QUERIES; i++) {
+            queries[i] = new int[]{graph.idOf(random.nextInt(graph.nodeCount)), graph.idOf(random.nextInt(graph.nodeCount))};
+            Types.PathResult result = AStarProgram.astar(graph, queries[i][0], queries[i][1], Heuristics::hManhattan);
+            expected[i] = result.found ? result.cost : -1.0;
+        }
+
+        int threads = 4;
+        ExecutorService executor = Executors.newFixedThreadPool(threads);
+        try {
+            List<Future<?>> futures = new ArrayList<>();
+            for (int t = 0; t < threads; t++) {
+                int first = t;
+                futures.add(executor.submit(() -> {
+                    SearchWorkspace workspace = new SearchWorkspace(graph.nodeCount);
+                    // Every thread runs all queries, starting at a different one
+                    for (int k = 0; k < QUERIES; k++) {
+                        int i = (k + first * QUERIES / threads) % QUERIES;
+                        Types.PathResult result = jps.search(queries[i][0], queries[i][1], workspace);
+                        assertEquals(expected[i], result.found ? result.cost : -1.0, 1e-9, "query " + i);
+                    }
+                }));
+            }
+            for (Future<?> future : futures) future.get();
+        } finally {
+            executor.shutdown();
+        }
+    }
+}
@@ -0,0 +1,69 @@
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * SMA* against A* on weighted grids: optimal when the cap holds the optimal path, and never
+ * claiming more than it proved when it does not
+ */
+class MemoryBoundedSearchTest {
+
+    // Close to the size of A*'s frontier the search can thrash for a long time; such runs give up
+    private static final long MAX_EXPANSIONS = 200_000;
+
+    @Test
+    void capThatHoldsThePathIsOptimal() {
+        for (long seed = 1; seed <= 40; seed++) {
+            CsrGraph graph = CsrGraph.fromGraph(GraphGenerator.grid(12, 12, 0.2, 3.0, seed));
+            Types.PathResult expected = astar(graph);
+            if (!expected.found) continue;
+            Types.PathResult result = search(graph, expected.pushes + 16);
+            assertTrue(result.found, "seed " + seed);
+            assertEquals(expected.cost, result.cost, 1e-9, "seed " + seed);
+            assertEquals(1.0, result.suboptimality, "seed " + seed);
+        }
+    }
+
+    @Test
+    void capTooSmallForThePathReportsItsBound() {
+        // The optimal path has 17 nodes; 16 slots end up with a 15-node path about 5% costlier
+        CsrGraph graph = CsrGraph.fromGraph(GraphGenerator.grid(8, 8, 0.2, 3.0, 20));
+        Types.PathResult expected = astar(graph);
+        assertEquals(17, expected.path.size());
+        Types.PathResult result = search(graph, 16);
+        assertTrue(result.found);
+        assertTrue(result.cost > expected.cost + 1e-9);
+        assertTrue(result.suboptimality > 1.0);
+        assertBound(result, expected, "seed 20");
+    }
+
+    @Test
+    void capsBelowThePathLengthNeverOverclaim() {
+        for (long seed = 1; seed <= 30; seed++) {
+            CsrGraph graph = CsrGraph.fromGraph(GraphGenerator.grid(8, 8, 0.2, 3.0, seed));
+            Types.PathResult expected = astar(graph);
+            if (!expected.found) continue;
+            for (int capacity = 16; capacity < expected.path.size(); capacity++) {
+                Types.PathResult result = search(graph, capacity);
+                if (result.found) assertBound(result, expected, "seed " + seed + ", capacity " + capacity);
+            }
+        }
+    }
+
+    // The cost is at least optimal, and at most suboptimality times optimal
+    private static void assertBound(Types.PathResult result, Types.PathResult expected, String name) {
+        assertTrue(result.cost >= expected.cost - 1e-9, name);
+        assertTrue(result.cost <= result.suboptimality * expected.cost + 1e-9,
+                name + ": cost " + result.cost + ", optimal " + expected.cost + ", suboptimality " + result.suboptimality);
+    }
+
+    private static Types.PathResult astar(CsrGraph graph) {
+        return AStarProgram.astar(graph, graph.sourceId, graph.destinationId, Heuristics::hManhattan);
+    }
+
+    private static Types.PathResult search(CsrGraph graph, int capacity) {
+        MemoryBoundedSearch search = new MemoryBoundedSearch(graph, (long) capacity * MemoryBoundedSearch.ENTRY_BYTES);
+        assertEquals(capacity, search.capacity());
+        return search.search(graph.sourceId, graph.destinationId, Heuristics::hManhattan, MAX_EXPANSIONS);
+    }
+}
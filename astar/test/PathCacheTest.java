@@ -0,0 +1,131 @@
+import org.junit.jupiter.api.Test;
+
+import java.util.*;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * PathCache bounds, subpath answers and graph versions on a small weighted grid
+ */
+class PathCacheTest {
+
+    private static final CsrGraph GRID = CsrGraph.fromGraph(GraphGenerator.grid(10, 10, 0.0, 3.0, 5));
+
+    @Test
+    void evictsLeastRecentlyUsedEntry() {
+        PathCache cache = new PathCache(3, Long.MAX_VALUE);
+        // Two-node paths are not indexed, so only exact keys can hit
+        for (int i = 1; i <= 3; i++) cache.put(GRID, i, i + 1, "h", edge(i, i + 1), cache.version());
+        assertNotNull(cache.get(1, 2, "h"));
+        cache.put(GRID, 4, 5, "h", edge(4, 5), cache.version());
+        assertEquals(3, cache.size());
+        assertEquals(1, cache.evictions());
+        assertNull(cache.get(2, 3, "h"));
+        assertNotNull(cache.get(1, 2, "h"));
+        assertNotNull(cache.get(3, 4, "h"));
+        assertNotNull(cache.get(4, 5, "h"));
+    }
+
+    @Test
+    void evictsByEstimatedBytes() {
+        PathCache cache = new PathCache(1000, Long.MAX_VALUE);
+        cache.put(GRID, 1, 2, "h", edge(1, 2), cache.version());
+        long entryBytes = cache.estimatedBytes();
+        assertTrue(entryBytes > 0);
+
+        PathCache bounded = new PathCache(1000, 3 * entryBytes);
+        for (int i = 1; i <= 4; i++) bounded.put(GRID, i, i + 1, "h", edge(i, i + 1), bounded.version());
+        assertEquals(3, bounded.size());
+        assertEquals(3 * entryBytes, bounded.estimatedBytes());
+        assertNull(bounded.get(1, 2, "h"));
+
+        // A path larger than the whole budget pushes out everything, itself last
+        Types.PathResult route = AStarProgram.astar(GRID, GRID.sourceId, GRID.destinationId, Heuristics::hManhattan);
+        assertTrue(route.path.size() > 4);
+        bounded.put(GRID, GRID.sourceId, GRID.destinationId, "h", route, bounded.version());
+        assertEquals(0, bounded.size());
+        assertEquals(0, bounded.estimatedBytes());
+        assertEquals(5, bounded.evictions());
+        assertNull(bounded.get(route.path.get(1), route.path.get(3), "h"));
+    }
+
+    @Test
+    void answersSubpathsInBothDirections() {
+        PathCache cache = new PathCache(100, Long.MAX_VALUE);
+        SearchWorkspace workspace = new SearchWorkspace(GRID.nodeCount);
+        Types.PathResult route = cache.search(GRID, GRID.sourceId, GRID.destinationId, "manhattan", Heuristics::hManhattan, workspace);
+        assertTrue(route.found);
+        assertEquals(1, cache.misses());
+        List<Integer> path = route.path;
+        assertTrue(path.size() > 10);
+
+        int from = 2;
+        int to = path.size() - 3;
+        Types.PathResult expected = AStarProgram.astar(GRID, path.get(from), path.get(to), Heuristics::hManhattan);
+        Types.PathResult forward = cache.get(path.get(from), path.get(to), "manhattan");
+        assertNotNull(forward);
+        assertEquals(path.subList(from, to + 1), forward.path);
+        assertEquals(expected.cost, forward.cost, 1e-9);
+
+        Types.PathResult backward = cache.get(path.get(to), path.get(from), "manhattan");
+        assertNotNull(backward);
+        List<Integer> reversed = new ArrayList<>(path.subList(from, to + 1));
+        Collections.reverse(reversed);
+        assertEquals(reversed, backward.path);
+        assertEquals(expected.cost, backward.cost, 1e-9);
+        assertEquals(2, cache.subpathHits());
+
+        // Only paths of the same heuristic answer, and only when both endpoints are on them
+        assertNull(cache.get(path.get(from), path.get(to), "euclidean"));
+        int off = offPath(path);
+        assertNull(cache.get(path.get(from), off, "manhattan"));
+        assertEquals(2, cache.subpathHits());
+
+        // The full route itself is an exact hit
+        assertEquals(route.cost, cache.search(GRID, GRID.sourceId, GRID.destinationId, "manhattan",
+                Heuristics::hManhattan, workspace).cost, 1e-9);
+        assertEquals(1, cache.hits());
+    }
+
+    @Test
+    void newGraphVersionDropsEverything() {
+        PathCache cache = new PathCache(100, Long.MAX_VALUE);
+        SearchWorkspace workspace = new SearchWorkspace(GRID.nodeCount);
+        Types.PathResult route = cache.search(GRID, GRID.sourceId, GRID.destinationId, "manhattan", Heuristics::hManhattan, workspace);
+        cache.setGraphVersion(cache.version());
+        assertEquals(1, cache.size());
+
+        cache.setGraphVersion(cache.version() + 1);
+        assertEquals(0, cache.size());
+        assertEquals(0, cache.estimatedBytes());
+        assertNull(cache.get(GRID.sourceId, GRID.destinationId, "manhattan"));
+        assertNull(cache.get(route.path.get(1), route.path.get(3), "manhattan"));
+    }
+
+    @Test
+    void ignoresResultsOfAnOlderVersion() {
+        PathCache cache = new PathCache(100, Long.MAX_VALUE);
+        long searched = cache.version();
+        Types.PathResult route = AStarProgram.astar(GRID, GRID.sourceId, GRID.destinationId, Heuristics::hManhattan);
+        // The graph changed while the search was running
+        cache.setGraphVersion(searched + 1);
+        cache.put(GRID, GRID.sourceId, GRID.destinationId, "manhattan", route, searched);
+        assertEquals(0, cache.size());
+        assertNull(cache.get(GRID.sourceId, GRID.destinationId, "manhattan"));
+        assertNull(cache.get(route.path.get(1), route.path.get(3), "manhattan"));
+
+        cache.put(GRID, GRID.sourceId, GRID.destinationId, "manhattan", route, cache.version());
+        assertNotNull(cache.get(GRID.sourceId, GRID.destinationId, "manhattan"));
+    }
+
+    private static Types.PathResult edge(int from, int to) {
+        return new Types.PathResult(true, 1.0, List.of(from, to), 0, 0, 0, 0.0);
+    }
+
+    private static int offPath(List<Integer> path) {
+        for (int v = 0; v < GRID.nodeCount; v++) {
+            if (!path.contains(GRID.idOf(v))) return GRID.idOf(v);
+        }
+        throw new AssertionError("the path covers the grid");
+    }
+}
@@ -0,0 +1,71 @@
+import bench.Workload;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.*;
+
+/**
+ * Benchmarked operations of the astar module on seeded GraphGenerator graphs
+ * astar/grid|geometric/zero|euclidean|manhattan runs AStarProgram.astar on fixed random pairs
+ * of nodes, so every run and every heuristic answers the same queries; parseGraph/grid and
+ * fastParse/grid read the grid written to a temporary file.
+ */
+public final class AStarWorkloads {
+
+    // Query pairs per graph; operation i runs pair i % QUERIES
+    private static final int QUERIES = 64;
+
+    private AStarWorkloads() {}
+
+    public static Workload create(String name, int size, long seed) throws IOException {
+        String[] parts = name.split("/");
+        if (parts[0].equals("astar") && parts.length == 3) {
+            return search(graph(parts[1], size, seed), heuristic(parts[2]), seed);
+        }
+        if ((parts[0].equals("parseGraph") || parts[0].equals("fastParse")) && parts.length == 2) {
+            File file = File.createTempFile("astar-bench", ".txt");
+            GraphGenerator.writeText(graph(parts[1], size, seed), file.getPath());
+            boolean fast = parts[0].equals("fastParse");
+            return new Workload() {
+                public double run(int i) throws IOException {
+                    return fast ? FastGraphParser.parse(file.getPath()).nodeCount : Graph.parseGraph(file.getPath()).nodes.size();
+                }
+
+                public void close() {
+                    file.delete();
+                }
+            };
+        }
+        throw new IllegalArgumentException("Unknown workload: " + name);
+    }
+
+    private static Types.Graph graph(String kind, int size, long seed) {
+        switch (kind) {
+            case "grid": return GraphGenerator.grid(size, size, 0.2, 0.5, seed);
+            case "geometric": return GraphGenerator.geometric(size * size, 10 * size, 20.0, 0.3, seed);
+            default: throw new IllegalArgumentException("Unknown graph: " + kind);
+        }
+    }
+
+    private static AStarProgram.Heuristic heuristic(String name) {
+        switch (name) {
+            case "zero": return Heuristics::hZero;
+            case "euclidean": return Heuristics::hEuclidean;
+            case "manhattan": return Heuristics::hManhattan;
+            default: throw new IllegalArgumentException("Unknown heuristic: " + name);
+        }
+    }
+
+    private static Workload search(Types.Graph graph, AStarProgram.Heuristic heuristic, long seed) {
+        Integer[] ids = new TreeSet<>(graph.nodes.keySet()).toArray(new Integer[0]);
+        Random random = new Random(seed);
+        int[][] queries = new int[QUERIES][];
+        for (int q = 0; q < QUERIES; q++) {
+            queries[q] = new int[]{ids[random.nextInt(ids.length)], ids[random.nextInt(ids.length)]};
+        }
+        return i -> {
+            int[] query = queries[i % QUERIES];
+            return AStarProgram.astar(graph, query[0], query[1], heuristic).cost;
+        };
+    }
+}
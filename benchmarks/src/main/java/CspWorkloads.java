@@ -0,0 +1,71 @@
+import bench.Workload;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.*;
+
+/**
+ * Benchmarked operations of the csp module on seeded InstanceGenerator instances
+ * solve/random|flat/k3-d<degree> colors a fresh solver for one of a few fixed instances per
+ * operation, since the solver changes its domains while searching. Each solve stops after
+ * NODE_LIMIT nodes: instances with tens of thousands of vertices at the phase transition take
+ * far longer to color, so at those sizes an operation measures a fixed amount of search.
+ * refute/mycielski/k<k> proves that the Mycielski graph M_k has no (k - 1)-coloring, which
+ * exercises backjumping and nogood learning; the size does not apply to it. parse/flat reads a
+ * flat instance written to a temporary file.
+ */
+public final class CspWorkloads {
+
+    // Instances per workload; operation i solves instance i % INSTANCES
+    private static final int INSTANCES = 8;
+    private static final int COLORS = 3;
+    private static final long NODE_LIMIT = 10_000;
+
+    private CspWorkloads() {}
+
+    public static Workload create(String name, int size, long seed) throws IOException {
+        String[] parts = name.split("/");
+        if (parts[0].equals("solve") && parts.length == 3 && parts[2].startsWith("k" + COLORS + "-d")) {
+            double degree = Double.parseDouble(parts[2].substring(parts[2].indexOf("-d") + 2));
+            List<List<int[]>> instances = new ArrayList<>();
+            for (int i = 0; i < INSTANCES; i++) instances.add(instance(parts[1], size, degree, seed + i));
+            return i -> {
+                CSPGraphColoring csp = new CSPGraphColoring(COLORS, instances.get(i % INSTANCES));
+                csp.setNodeLimit(NODE_LIMIT);
+                Map<Integer, Integer> solution = csp.findSolution();
+                return solution == null ? 0 : solution.size();
+            };
+        }
+        if (parts[0].equals("refute") && parts.length == 3 && parts[1].equals("mycielski") && parts[2].startsWith("k")) {
+            int k = Integer.parseInt(parts[2].substring(1));
+            List<int[]> edges = InstanceGenerator.mycielski(k);
+            return i -> {
+                Map<Integer, Integer> solution = new CSPGraphColoring(k - 1, edges).findSolution();
+                return solution == null ? 0 : solution.size();
+            };
+        }
+        if (parts[0].equals("parse") && parts.length == 2) {
+            File file = File.createTempFile("csp-bench", ".txt");
+            InstanceGenerator.write(COLORS, instance(parts[1], size, 4.6, seed), file.getPath());
+            return new Workload() {
+                public double run(int i) throws IOException {
+                    new CSPGraphColoring(file.getPath());
+                    return 1;
+                }
+
+                public void close() {
+                    file.delete();
+                }
+            };
+        }
+        throw new IllegalArgumentException("Unknown workload: " + name);
+    }
+
+    private static List<int[]> instance(String kind, int size, double degree, long seed) {
+        switch (kind) {
+            case "random": return InstanceGenerator.random(size, COLORS, degree, seed);
+            case "flat": return InstanceGenerator.flat(size, COLORS, degree, seed);
+            default: throw new IllegalArgumentException("Unknown instance kind: " + kind);
+        }
+    }
+}
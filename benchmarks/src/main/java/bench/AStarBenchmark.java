@@ -0,0 +1,49 @@
+package bench;
+
+import org.openjdk.jmh.annotations.*;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * AStarProgram.astar under each heuristic on a seeded grid and random geometric graph, and
+ * Graph.parseGraph and FastGraphParser.parse on the written grid (see AStarWorkloads)
+ * Throughput and latency percentiles; add -prof gc for the allocation rate per operation.
+ */
+@BenchmarkMode({Mode.Throughput, Mode.SampleTime})
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(value = 1, jvmArgsAppend = {"-Xms1g", "-Xmx1g"})
+@State(Scope.Thread)
+public class AStarBenchmark {
+
+    @Param({"astar/grid/zero", "astar/grid/euclidean", "astar/grid/manhattan",
+            "astar/geometric/zero", "astar/geometric/euclidean", "astar/geometric/manhattan",
+            "parseGraph/grid", "fastParse/grid"})
+    public String workload;
+
+    // Grid side; the geometric graph has size * size points
+    @Param("200")
+    public int size;
+
+    @Param("42")
+    public long seed;
+
+    private Workload operation;
+    private int next;
+
+    @Setup(Level.Trial)
+    public void setUp() throws Exception {
+        operation = Workload.create("AStarWorkloads", workload, size, seed);
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() throws Exception {
+        operation.close();
+    }
+
+    @Benchmark
+    public double run() throws Exception {
+        return operation.run(next++);
+    }
+}
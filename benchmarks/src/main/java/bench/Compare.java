@@ -0,0 +1,88 @@
+package bench;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+import java.util.*;
+
+/**
+ * Compares the throughput of two JMH runs written with -rf csv, so CI can fail on regressions
+ *
+ *   java -cp benchmarks.jar bench.Compare baseline.csv current.csv [tolerance, default 0.25]
+ *
+ * The exit code is 1 when a benchmark (with the same parameters) is more than tolerance slower
+ * than in the baseline. Benchmarks missing from either file are skipped.
+ */
+public final class Compare {
+
+    private Compare() {}
+
+    /**
+     * Throughput per benchmark and parameters from a JMH csv result file
+     */
+    static Map<String, Double> readThroughput(String filename) throws IOException {
+        List<String> lines = Files.readAllLines(Paths.get(filename), StandardCharsets.UTF_8);
+        Map<String, Double> scores = new LinkedHashMap<>();
+        if (lines.isEmpty()) return scores;
+        List<String> header = fields(lines.get(0));
+        int mode = header.indexOf("Mode");
+        int score = header.indexOf("Score");
+        if (mode < 0 || score < 0) throw new IllegalArgumentException(filename + " is not a JMH csv result");
+        for (String line : lines.subList(1, lines.size())) {
+            List<String> row = fields(line);
+            // Secondary results (percentiles, gc profiler) are named benchmark:metric
+            if (row.size() != header.size() || !row.get(mode).equals("thrpt") || row.get(0).contains(":")) continue;
+            StringBuilder key = new StringBuilder(row.get(0));
+            for (int i = 0; i < header.size(); i++) {
+                if (header.get(i).startsWith("Param: ")) key.append(' ').append(header.get(i).substring(7)).append('=').append(row.get(i));
+            }
+            scores.put(key.toString(), Double.parseDouble(row.get(score)));
+        }
+        return scores;
+    }
+
+    // Splits one csv line; fields may be quoted
+    private static List<String> fields(String line) {
+        List<String> fields = new ArrayList<>();
+        StringBuilder field = new StringBuilder();
+        boolean quoted = false;
+        for (int i = 0; i < line.length(); i++) {
+            char c = line.charAt(i);
+            if (c == '"') {
+                quoted = !quoted;
+            } else if (c == ',' && !quoted) {
+                fields.add(field.toString());
+                field.setLength(0);
+            } else {
+                field.append(c);
+            }
+        }
+        fields.add(field.toString());
+        return fields;
+    }
+
+    public static void main(String[] args) {
+        if (args.length != 2 && args.length != 3) {
+            System.out.println("Usage: java -cp benchmarks.jar bench.Compare <baseline.csv> <current.csv> [tolerance]");
+            System.exit(2);
+        }
+        try {
+            double tolerance = args.length == 3 ? Double.parseDouble(args[2]) : 0.25;
+            Map<String, Double> baseline = readThroughput(args[0]);
+            boolean regressed = false;
+            for (Map.Entry<String, Double> result : readThroughput(args[1]).entrySet()) {
+                Double before = baseline.get(result.getKey());
+                if (before == null) continue;
+                boolean slower = result.getValue() < before * (1.0 - tolerance);
+                System.out.printf(Locale.ROOT, "%s %s: %.3f ops/ms, baseline %.3f ops/ms%n",
+                        slower ? "REGRESSION" : "ok", result.getKey(), result.getValue(), before);
+                regressed |= slower;
+            }
+            if (regressed) System.exit(1);
+        } catch (IOException | IllegalArgumentException e) {
+            System.err.println("Comparison failed: " + e.getMessage());
+            System.exit(2);
+        }
+    }
+}
@@ -0,0 +1,49 @@
+package bench;
+
+import org.openjdk.jmh.annotations.*;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * CSPGraphColoring on seeded random and flat 3-colorable graphs below and at the phase
+ * transition (average degree 3.0 and 4.6) from 60 to 100 000 vertices, refuting a Mycielski
+ * graph with one color too few, and reading an instance file (see CspWorkloads)
+ * Throughput and latency percentiles; add -prof gc for the allocation rate per operation.
+ */
+@BenchmarkMode({Mode.Throughput, Mode.SampleTime})
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(value = 1, jvmArgsAppend = {"-Xms1g", "-Xmx1g"})
+@State(Scope.Thread)
+public class CspBenchmark {
+
+    @Param({"solve/random/k3-d3.0", "solve/flat/k3-d3.0", "solve/random/k3-d4.6", "solve/flat/k3-d4.6",
+            "refute/mycielski/k5", "parse/flat"})
+    public String workload;
+
+    // Vertices per instance
+    @Param({"60", "10000", "100000"})
+    public int size;
+
+    @Param("42")
+    public long seed;
+
+    private Workload operation;
+    private int next;
+
+    @Setup(Level.Trial)
+    public void setUp() throws Exception {
+        operation = Workload.create("CspWorkloads", workload, size, seed);
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() throws Exception {
+        operation.close();
+    }
+
+    @Benchmark
+    public double run() throws Exception {
+        return operation.run(next++);
+    }
+}
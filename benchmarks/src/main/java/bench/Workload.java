@@ -0,0 +1,35 @@
+package bench;
+
+import java.lang.reflect.InvocationTargetException;
+
+/**
+ * One benchmarked operation on inputs that are prepared once
+ * The code under test lives in the default package, which classes in a named package (as JMH
+ * requires for benchmarks) cannot refer to. So each module's workloads are default-package
+ * classes implementing this interface, and create() finds them by class name.
+ */
+public interface Workload extends AutoCloseable {
+
+    /**
+     * Runs operation i, counting from 0; the result is consumed by the benchmark
+     */
+    double run(int i) throws Exception;
+
+    // Releases what the inputs left behind, e.g. temporary files
+    @Override
+    default void close() throws Exception {}
+
+    /**
+     * Calls the static create(String name, int size, long seed) of the given factory class
+     */
+    static Workload create(String factory, String name, int size, long seed) throws Exception {
+        try {
+            return (Workload) Class.forName(factory)
+                    .getMethod("create", String.class, int.class, long.class)
+                    .invoke(null, name, size, seed);
+        } catch (InvocationTargetException e) {
+            if (e.getCause() instanceof Exception) throw (Exception) e.getCause();
+            throw e;
+        }
+    }
+}
@@ -1,15 +1,405 @@
+import jdk.jfr.*;
+
 import java.io.BufferedReader;
 import java.io.FileReader;
 import java.io.IOException;
 import java.util.*;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
 import java.util.stream.Collectors;
 
 public class CSPGraphColoring {
 
+    // Solver counters and phase timings, switched on with -Dsearch.metrics=true; when off the
+    // constant false lets the JIT drop every counting branch
+    static final boolean METRICS = Boolean.getBoolean("search.metrics");
+
+    private long nodes;
+    private long backtracks;
+    private long reviseCalls;
+    private long prunedValues;
+    private long wipeouts;
+    private long backjumps;
+    private long learnedNogoods;
+    private long nogoodPrunes;
+    private long restartCount;
+    private long peeledVertices;
+    private long blockCount;
+    private int cliqueSize;
+    private long initNanos;
+    private long searchNanos;
+
+    @Name("csp.Solve")
+    @Label("CSP Solve")
+    @Category("Search")
+    @Description("One instrumented graph coloring solve")
+    static final class SolveEvent extends Event {
+        @Label("Variables")
+        int variables;
+        @Label("Solved")
+        boolean solved;
+        @Label("Nodes")
+        long nodes;
+        @Label("Backtracks")
+        long backtracks;
+        @Label("Revise Calls")
+        long reviseCalls;
+        @Label("Pruned Values")
+        long prunedValues;
+        @Label("Backjumps")
+        long backjumps;
+        @Label("Learned Nogoods")
+        long learnedNogoods;
+        @Label("Restarts")
+        long restarts;
+        @Label("Strategy")
+        String strategy;
+        @Label("Peeled Vertices")
+        long peeledVertices;
+        @Label("Blocks")
+        long blocks;
+        @Label("Clique Size")
+        int cliqueSize;
+        @Label("Initial AC-3 Time")
+        @Timespan(Timespan.NANOSECONDS)
+        long initTime;
+        @Label("Search Time")
+        @Timespan(Timespan.NANOSECONDS)
+        long searchTime;
+    }
+
+    /**
+     * Search configuration of one solver: tie-breaking, value ordering and restart policy
+     * The default (seed 0, no restarts) is the deterministic MRV/degree/LCV search. A randomized
+     * strategy breaks MRV and LCV ties by a random order that is reshuffled on every restart.
+     * A restart abandons the search once the failures since the last restart reach the current
+     * limit; limits grow without bound, so restarting searches still prove unsatisfiability.
+     */
+    public static final class Strategy {
+        public enum Restarts { NONE, LUBY, GEOMETRIC }
+
+        public final long seed;
+        public final boolean randomTies;
+        public final Restarts restarts;
+        // Failures before the first restart; Luby limits are multiples of it
+        public final int restartBase;
+        // Growth of the limit per restart for GEOMETRIC
+        public final double restartFactor;
+
+        public Strategy(long seed, boolean randomTies, Restarts restarts, int restartBase, double restartFactor) {
+            if (restarts != Restarts.NONE && (restartBase < 1 || restartFactor <= 1.0)) {
+                throw new IllegalArgumentException("Restart base must be positive and factor above 1");
+            }
+            this.seed = seed;
+            this.randomTies = randomTies;
+            this.restarts = restarts;
+            this.restartBase = restartBase;
+            this.restartFactor = restartFactor;
+        }
+
+        public static final Strategy DEFAULT = new Strategy(0, false, Restarts.NONE, 1, 2.0);
+
+        /**
+         * Strategy of portfolio member i: 0 is the default search, the others are randomized with
+         * their own seed and alternate Luby and geometric restarts of varying length
+         */
+        public static Strategy portfolio(int i) {
+            if (i == 0) return DEFAULT;
+            if (i == 1) return new Strategy(i, true, Restarts.LUBY, 100, 2.0);
+            if (i == 2) return new Strategy(i, true, Restarts.GEOMETRIC, 100, 1.5);
+            if (i == 3) return new Strategy(i, true, Restarts.NONE, 1, 2.0);
+            int base = 50 * (1 + i % 3);
+            return i % 2 == 0
+                    ? new Strategy(i, true, Restarts.LUBY, base, 2.0)
+                    : new Strategy(i, true, Restarts.GEOMETRIC, base, 1.2 + 0.1 * (i % 4));
+        }
+
+        // Failure limit of the given restart round (0 is the first run)
+        long limit(int round) {
+            switch (restarts) {
+                case LUBY: return restartBase * luby(round + 1);
+                case GEOMETRIC: return (long) Math.min(Long.MAX_VALUE / 2, restartBase * Math.pow(restartFactor, round));
+                default: return Long.MAX_VALUE;
+            }
+        }
+
+        // Luby sequence 1, 1, 2, 1, 1, 2, 4, 1, 1, 2, ... for i >= 1
+        static long luby(long i) {
+            for (int k = 1; ; k++) {
+                if (i == (1L << k) - 1) return 1L << (k - 1);
+                if (i < (1L << k) - 1) return luby(i - (1L << (k - 1)) + 1);
+            }
+        }
+
+        @Override
+        public String toString() {
+            if (!randomTies && restarts == Restarts.NONE) return "default";
+            return String.format(Locale.ROOT, "seed=%d,restarts=%s,base=%d%s", seed, restarts.name().toLowerCase(Locale.ROOT),
+                    restartBase, restarts == Restarts.GEOMETRIC ? ",factor=" + restartFactor : "");
+        }
+    }
+
+    /**
+     * How the last solve ended; CANCELLED and LIMIT_REACHED mean it is unknown whether a
+     * coloring exists
+     */
+    public enum Outcome { SOLVED, UNSATISFIABLE, CANCELLED, LIMIT_REACHED }
+
+    /**
+     * Node and time limits and the user's cancel request of one solve, shared by every solver
+     * working on it (portfolio members, blocks, parallel workers). Solvers count their nodes
+     * locally and add them here in batches, so the shared counter is not touched on every node.
+     */
+    private static final class Limits {
+        // Node batches are at most this large, and never larger than the node limit
+        private static final int BATCH = 256;
+
+        volatile long maxNodes;
+        volatile long maxNanos;
+        volatile boolean cancelled;
+        volatile boolean reached;
+        final AtomicLong nodes = new AtomicLong();
+        int batch = BATCH;
+        long deadline;
+
+        // Starts a solve: the clock runs from here and nodes count from zero. A pending cancel is
+        // kept, so a cancel() made just before the solve stops it.
+        void start() {
+            nodes.set(0);
+            reached = false;
+            batch = (int) (maxNodes > 0 ? Math.min(BATCH, maxNodes) : BATCH);
+            deadline = maxNanos > 0 ? System.nanoTime() + maxNanos : 0;
+        }
+
+        // Adds a solver's nodes and reports whether the search has to stop
+        boolean spend(int count) {
+            if (maxNodes > 0 && nodes.addAndGet(count) >= maxNodes) reached = true;
+            if (deadline != 0 && System.nanoTime() - deadline >= 0) reached = true;
+            return reached || cancelled;
+        }
+
+        // Ends a solve; the cancel it may have received is used up
+        void finish() {
+            cancelled = false;
+        }
+    }
+
+    /**
+     * Decision levels as a sorted array with no duplicates. Conflict sets hold few levels, but
+     * in a deep search the levels are large numbers, so a bitset per open level would take
+     * memory quadratic in the depth. The set of all levels stands for a failure that cannot be
+     * explained here (values handed to other tasks).
+     */
+    private static final class LevelSet {
+        private int[] levels = new int[8];
+        // Merge buffer, swapped with levels
+        private int[] spare = new int[8];
+        private int size;
+        private boolean sorted = true;
+        private boolean all;
+
+        void clear() {
+            size = 0;
+            sorted = true;
+            all = false;
+        }
+
+        void setAll() {
+            clear();
+            all = true;
+        }
+
+        boolean isAll() {
+            return all;
+        }
+
+        // A decision adds its level once per color it removed, so repeats come in a row
+        void add(int level) {
+            if (all || (size > 0 && levels[size - 1] == level)) return;
+            if (size == levels.length) levels = Arrays.copyOf(levels, size * 2);
+            levels[size++] = level;
+            sorted = false;
+        }
+
+        // Merges the two sorted arrays
+        void addAll(LevelSet other) {
+            if (other.all) setAll();
+            if (all || other.size == 0) return;
+            normalize();
+            other.normalize();
+            if (spare.length < size + other.size) spare = new int[Math.max(size + other.size, 2 * spare.length)];
+            int i = 0;
+            int j = 0;
+            int merged = 0;
+            while (i < size && j < other.size) {
+                int a = levels[i];
+                int b = other.levels[j];
+                spare[merged++] = Math.min(a, b);
+                if (a <= b) i++;
+                if (b <= a) j++;
+            }
+            while (i < size) spare[merged++] = levels[i++];
+            while (j < other.size) spare[merged++] = other.levels[j++];
+            int[] swap = levels;
+            levels = spare;
+            spare = swap;
+            size = merged;
+        }
+
+        void copyOf(LevelSet other) {
+            clear();
+            addAll(other);
+        }
+
+        int size() {
+            normalize();
+            return size;
+        }
+
+        // The i-th level in ascending order
+        int get(int i) {
+            normalize();
+            return levels[i];
+        }
+
+        // The highest level, -1 when empty
+        int deepest() {
+            normalize();
+            return size == 0 ? -1 : levels[size - 1];
+        }
+
+        void removeDeepest() {
+            if (!all && size() > 0) size--;
+        }
+
+        // Insertion sort: sets are small and mostly in order already
+        private void normalize() {
+            if (sorted) return;
+            for (int i = 1; i < size; i++) {
+                int level = levels[i];
+                int j = i;
+                for (; j > 0 && levels[j - 1] > level; j--) levels[j] = levels[j - 1];
+                levels[j] = level;
+            }
+            int distinct = 0;
+            for (int i = 0; i < size; i++) {
+                if (distinct == 0 || levels[i] != levels[distinct - 1]) levels[distinct++] = levels[i];
+            }
+            size = distinct;
+            sorted = true;
+        }
+    }
+
     private final int numColors;
-    private final Set<Integer> variables = new HashSet<>();
-    private final Map<Integer, List<Integer>> adj = new HashMap<>();
-    private Map<Integer, Set<Integer>> domains = new HashMap<>();
+    // Words per domain bitset; bit c - 1 of a domain is set while color c is still possible
+    private final int words;
+    // Edges by original vertex id while reading, as pairs; frozen into the dense arrays below
+    private int[] edgeList = new int[64];
+    private int edgeCount;
+    private boolean selfLoop;
+
+    // Variables are dense indices 0..n-1 in ascending order of their original ids
+    private int n;
+    private int[] ids;
+    private int[][] neighbors;
+    // domains[v * words + w] is word w of the domain of v, domainSize[v] its number of set bits
+    private long[] domains;
+    private int[] domainSize;
+    private int[] assignment;
+    private int assigned;
+    // Assigned variables per color, and the number of colors in use; colors in use are always
+    // 1..colorsInUse, since a new color is only opened as the lowest unused one
+    private int[] colorUses;
+    private int colorsInUse;
+
+    // Trail of overwritten domain words: domain index and previous value, undone on backtrack
+    private int[] trailIndex = new int[64];
+    private long[] trailWord = new long[64];
+    private int trailSize;
+    // Variables whose domain became a singleton and still have to be propagated
+    private int[] queue;
+
+    // Why each color is gone: reason[v * numColors + c - 1] is the variable whose singleton domain
+    // pruned it, or one of the codes below; only meaningful while the color is removed
+    private static final int ROOT = -1;
+    private static final int DECISION = -2;
+    private static final int NOGOOD = -3;
+    private int[] reason;
+    // The learned nogood behind each NOGOOD reason, allocated with the first nogood
+    private Nogood[] reasonNogood;
+    // Decision level at which each assigned variable was assigned
+    private int[] levelOf;
+    // Conflict analysis: work stack and visit stamps over variables
+    private int[] explainStack;
+    private int[] explainStamp;
+    private int stamp;
+    // Decision levels responsible for the latest failure, and the levels collected per open level
+    private final LevelSet conflict = new LevelSet();
+    private LevelSet[] levelConflict;
+
+    // Highest-degree vertices tried as the start of a greedy clique
+    private static final int CLIQUE_STARTS = 64;
+
+    // Learned nogoods with two watched literals each; watches[v * numColors + c - 1] holds the
+    // nogoods watching "v = c", allocated with the first nogood
+    private static final int NOGOOD_CAPACITY = 1024;
+    // Literals of all stored nogoods together, which bounds their memory however long they are
+    private static final int NOGOOD_LITERALS = 1 << 20;
+    // Conflict sets grow with the depth of the search, so the longest nogood kept does too: up
+    // to half the decisions on the path, and never fewer than MIN_NOGOOD_LENGTH. A fixed bound
+    // left deep searches on large graphs without a single nogood.
+    private static final int MIN_NOGOOD_LENGTH = 12;
+    private static final int NOGOOD_DEPTH_SHARE = 2;
+    private static final double ACTIVITY_DECAY = 0.95;
+    private List<Nogood> nogoods;
+    private long nogoodLiterals;
+    private List<Nogood>[] watches;
+    private double activityIncrement = 1.0;
+
+    // Unassigned variables ordered by domain size, then by unassigned neighbors (most first)
+    private VariableHeap unassigned;
+    private int[] freeDegree;
+    // support[v * numColors + c - 1]: unassigned neighbors of v that still have color c (the LCV count)
+    private int[] support;
+
+    private final Strategy strategy;
+    private final Random random;
+    // Position of each color in the LCV tie order; identity unless ties are randomized
+    private final int[] colorRank;
+    private final int[] colorOfRank;
+    private long failures;
+    private long failureLimit = Long.MAX_VALUE;
+    private boolean restart;
+    // Set by another portfolio member that has finished; null outside a portfolio
+    private final AtomicBoolean cancelled;
+    private final Limits limits;
+    // Nodes not yet added to limits
+    private int unreportedNodes;
+    Outcome outcome;
+
+    // Decision stack: variable, value and trail mark of every assignment from the root down
+    private int[] decisionVar;
+    private int[] decisionValue;
+    private int[] decisionMark;
+    private int depth;
+
+    // Open levels of the search: the variable of each level and its ordered values, stacked in
+    // valueStack from levelStart; values levelNext..levelEnd - 1 are not started yet. In parallel
+    // mode untried values can be handed to idle workers, which lowers levelEnd below
+    // levelCount; levels below taskRoot are the task's path.
+    private int[] levelVar;
+    private int[] levelStart;
+    private int[] levelCount;
+    private int[] levelNext;
+    private int[] levelEnd;
+    private int[] valueStack = new int[64];
+    // Sort keys of orderDomainValues
+    private long[] orderKeys;
+    private ParallelSearch parallel;
+    private int taskRoot;
+    private int splitCheck;
+    private List<ParallelSearch.SubtreeTask> forked;
 
     public CSPGraphColoring(String filename) throws IOException {
         BufferedReader reader = new BufferedReader(new FileReader(filename));
@@ -29,183 +419,1299 @@ public class CSPGraphColoring {
 
             int u = Integer.parseInt(parts[0].trim());
             int v = Integer.parseInt(parts[1].trim());
+            addEdge(u, v);
+        }
+        reader.close();
 
-            variables.add(u);
-            variables.add(v);
+        // 3. Dense variables; domains are set up when the search starts
+        this.words = (numColors + 63) >>> 6;
+        this.strategy = Strategy.DEFAULT;
+        this.random = null;
+        this.cancelled = null;
+        this.limits = new Limits();
+        this.colorRank = identity(Math.max(0, numColors));
+        this.colorOfRank = identity(Math.max(0, numColors));
+        build();
+    }
 
-            adj.computeIfAbsent(u, k -> new ArrayList<>()).add(v);
-            adj.computeIfAbsent(v, k -> new ArrayList<>()).add(u);
+    /**
+     * Builds the problem from an in-memory edge list, e.g. a generated instance
+     * @param edges Pairs {u, v} of vertices that must get different colors
+     */
+    public CSPGraphColoring(int numColors, List<int[]> edges) {
+        this.numColors = numColors;
+        for (int[] edge : edges) {
+            addEdge(edge[0], edge[1]);
         }
-        reader.close();
+        this.words = (numColors + 63) >>> 6;
+        this.strategy = Strategy.DEFAULT;
+        this.random = null;
+        this.cancelled = null;
+        this.limits = new Limits();
+        this.colorRank = identity(Math.max(0, numColors));
+        this.colorOfRank = identity(Math.max(0, numColors));
+        build();
+    }
+
+    /**
+     * Independent solver for the same graph with another strategy; the graph arrays are shared
+     */
+    CSPGraphColoring(CSPGraphColoring problem, Strategy strategy, AtomicBoolean cancelled) {
+        this.numColors = problem.numColors;
+        this.words = problem.words;
+        this.selfLoop = problem.selfLoop;
+        this.n = problem.n;
+        this.ids = problem.ids;
+        this.neighbors = problem.neighbors;
+        this.strategy = strategy;
+        this.random = strategy.randomTies ? new Random(strategy.seed) : null;
+        this.cancelled = cancelled;
+        this.limits = problem.limits;
+        this.colorRank = identity(numColors);
+        this.colorOfRank = identity(numColors);
+    }
+
+    /**
+     * Solver for one block of a decomposition; variable v of the block is variable ids[v] of the
+     * decomposed problem
+     */
+    private CSPGraphColoring(int numColors, int[] ids, int[][] neighbors, AtomicBoolean cancelled, Limits limits) {
+        this.numColors = numColors;
+        this.words = (numColors + 63) >>> 6;
+        this.n = ids.length;
+        this.ids = ids;
+        this.neighbors = neighbors;
+        this.strategy = Strategy.DEFAULT;
+        this.random = null;
+        this.cancelled = cancelled;
+        this.limits = limits;
+        this.colorRank = identity(numColors);
+        this.colorOfRank = identity(numColors);
+    }
+
+    private static int[] identity(int size) {
+        int[] values = new int[size];
+        for (int i = 0; i < size; i++) values[i] = i;
+        return values;
+    }
+
+    private void addEdge(int u, int v) {
+        if (u == v) selfLoop = true;
+        if (2 * edgeCount + 2 > edgeList.length) edgeList = Arrays.copyOf(edgeList, edgeList.length * 2);
+        edgeList[2 * edgeCount] = u;
+        edgeList[2 * edgeCount + 1] = v;
+        edgeCount++;
+    }
 
-        // 3. Initialize domains for all variables
-        Set<Integer> initialColors = new HashSet<>();
-        for (int i = 1; i <= numColors; i++) {
-            initialColors.add(i);
+    /**
+     * Freezes the edge list into adjacency arrays over dense ids; neighbors keep the order in
+     * which their edges were read, and duplicate edges are stored once
+     */
+    private void build() {
+        if (numColors < 0) throw new IllegalArgumentException("Number of colors must not be negative");
+        int ends = 2 * edgeCount;
+        int[] sorted = Arrays.copyOf(edgeList, ends);
+        Arrays.sort(sorted);
+        n = 0;
+        for (int i = 0; i < ends; i++) {
+            if (n == 0 || sorted[i] != sorted[n - 1]) sorted[n++] = sorted[i];
+        }
+        ids = Arrays.copyOf(sorted, n);
+        sorted = null;
+
+        // Renumber the end points in place and count the degrees
+        int[] degree = new int[n];
+        for (int i = 0; i < ends; i++) edgeList[i] = Arrays.binarySearch(ids, edgeList[i]);
+        for (int e = 0; e < ends; e += 2) {
+            // self-loops make the problem unsolvable, see findSolution
+            if (edgeList[e] == edgeList[e + 1]) continue;
+            degree[edgeList[e]]++;
+            degree[edgeList[e + 1]]++;
+        }
+        neighbors = new int[n][];
+        for (int v = 0; v < n; v++) neighbors[v] = new int[degree[v]];
+        Arrays.fill(degree, 0);
+        for (int e = 0; e < ends; e += 2) {
+            int u = edgeList[e];
+            int v = edgeList[e + 1];
+            if (u == v) continue;
+            neighbors[u][degree[u]++] = v;
+            neighbors[v][degree[v]++] = u;
+        }
+        edgeList = null;
+
+        // Drop repeated neighbors, keeping the first; seen[u] == v + 1 while scanning v
+        int[] seen = degree;
+        Arrays.fill(seen, 0);
+        for (int v = 0; v < n; v++) {
+            int size = 0;
+            for (int u : neighbors[v]) {
+                if (seen[u] == v + 1) continue;
+                seen[u] = v + 1;
+                neighbors[v][size++] = u;
+            }
+            if (size < neighbors[v].length) neighbors[v] = Arrays.copyOf(neighbors[v], size);
+        }
+    }
+
+    /**
+     * Initial domains, full for every variable, and the selection structures
+     * Called at the start of every solve: a finished solve leaves its assignments, trail and
+     * learned nogoods behind, and the clique is colored again from scratch.
+     */
+    private void initState() {
+        depth = 0;
+        trailSize = 0;
+        assigned = 0;
+        colorsInUse = 0;
+        unreportedNodes = 0;
+        nogoods = null;
+        nogoodLiterals = 0;
+        watches = null;
+        reasonNogood = null;
+        activityIncrement = 1.0;
+        domains = new long[n * words];
+        domainSize = new int[n];
+        for (int v = 0; v < n; v++) {
+            for (int w = 0; w < words; w++) domains[v * words + w] = colorMask(w);
+            domainSize[v] = numColors;
+        }
+        assignment = new int[n];
+        colorUses = new int[numColors + 1];
+        queue = new int[n];
+        decisionVar = new int[n];
+        decisionValue = new int[n];
+        decisionMark = new int[n];
+        reason = new int[n * numColors];
+        levelOf = new int[n];
+        explainStack = new int[n];
+        explainStamp = new int[n];
+        levelConflict = new LevelSet[n];
+        levelVar = new int[n];
+        levelStart = new int[n];
+        levelCount = new int[n];
+        levelNext = new int[n];
+        levelEnd = new int[n];
+        orderKeys = new long[numColors];
+
+        freeDegree = new int[n];
+        support = new int[n * numColors];
+        for (int v = 0; v < n; v++) {
+            freeDegree[v] = neighbors[v].length;
+            Arrays.fill(support, v * numColors, (v + 1) * numColors, neighbors[v].length);
+        }
+        unassigned = new VariableHeap(n, identity(n));
+        for (int v = 0; v < n; v++) unassigned.insert(v, selectionKey(v));
+    }
+
+    /**
+     * Draws a new random order for MRV and LCV ties; only called at the root
+     */
+    private void shuffleTies() {
+        int[] order = identity(n);
+        for (int i = n - 1; i > 0; i--) {
+            int j = random.nextInt(i + 1);
+            int swap = order[i];
+            order[i] = order[j];
+            order[j] = swap;
+        }
+        unassigned = new VariableHeap(n, order);
+        for (int v = 0; v < n; v++) {
+            if (assignment[v] == 0) unassigned.insert(v, selectionKey(v));
+        }
+        for (int i = numColors - 1; i > 0; i--) {
+            int j = random.nextInt(i + 1);
+            int swap = colorOfRank[i];
+            colorOfRank[i] = colorOfRank[j];
+            colorOfRank[j] = swap;
+        }
+        for (int rank = 0; rank < numColors; rank++) colorRank[colorOfRank[rank]] = rank;
+    }
+
+    /**
+     * Indexed binary min-heap of variables with a changeable key; equal keys pop the lowest tie rank
+     */
+    private static final class VariableHeap {
+        private final int[] heap;
+        private final int[] position;
+        private final long[] key;
+        private final int[] tieRank;
+        private int size;
+
+        VariableHeap(int capacity, int[] tieRank) {
+            heap = new int[capacity];
+            position = new int[capacity];
+            key = new long[capacity];
+            this.tieRank = tieRank;
+            Arrays.fill(position, -1);
+        }
+
+        boolean contains(int var) {
+            return position[var] >= 0;
+        }
+
+        int peek() {
+            return size > 0 ? heap[0] : -1;
+        }
+
+        void insert(int var, long newKey) {
+            key[var] = newKey;
+            heap[size] = var;
+            position[var] = size;
+            siftUp(size++);
+        }
+
+        void remove(int var) {
+            int i = position[var];
+            int last = heap[--size];
+            position[var] = -1;
+            if (last == var) return;
+            heap[i] = last;
+            position[last] = i;
+            siftUp(i);
+            siftDown(position[last]);
+        }
+
+        void update(int var, long newKey) {
+            long oldKey = key[var];
+            key[var] = newKey;
+            if (newKey < oldKey) siftUp(position[var]);
+            else if (newKey > oldKey) siftDown(position[var]);
+        }
+
+        private boolean less(int a, int b) {
+            return key[a] < key[b] || (key[a] == key[b] && tieRank[a] < tieRank[b]);
+        }
+
+        private void siftUp(int i) {
+            int var = heap[i];
+            while (i > 0) {
+                int parent = (i - 1) >>> 1;
+                if (!less(var, heap[parent])) break;
+                heap[i] = heap[parent];
+                position[heap[i]] = i;
+                i = parent;
+            }
+            heap[i] = var;
+            position[var] = i;
+        }
+
+        private void siftDown(int i) {
+            int var = heap[i];
+            while (true) {
+                int child = 2 * i + 1;
+                if (child >= size) break;
+                if (child + 1 < size && less(heap[child + 1], heap[child])) child++;
+                if (!less(heap[child], var)) break;
+                heap[i] = heap[child];
+                position[heap[i]] = i;
+                i = child;
+            }
+            heap[i] = var;
+            position[var] = i;
+        }
+    }
+
+    // Bits of the colors that exist in domain word w
+    private long colorMask(int w) {
+        int bits = Math.min(64, numColors - 64 * w);
+        return bits == 64 ? -1L : (1L << bits) - 1;
+    }
+
+    // Smaller is selected first: fewest remaining colors, then most unassigned neighbors
+    private long selectionKey(int var) {
+        return ((long) domainSize[var] << 32) | (Integer.MAX_VALUE - freeDegree[var]);
+    }
+
+    // Lowest color of a non-empty domain
+    private int firstColor(int var) {
+        int base = var * words;
+        for (int w = 0; w < words; w++) {
+            long word = domains[base + w];
+            if (word != 0) return 64 * w + Long.numberOfTrailingZeros(word) + 1;
         }
-        for (Integer var : variables) {
-            domains.put(var, new HashSet<>(initialColors));
+        return 0;
+    }
+
+    // Next color above the given one in the domain, 0 when there is none
+    private int nextColor(int var, int color) {
+        int base = var * words;
+        int w = color >>> 6;
+        if (w >= words) return 0;
+        long word = domains[base + w] & (-1L << color);
+        while (true) {
+            if (word != 0) return 64 * w + Long.numberOfTrailingZeros(word) + 1;
+            if (++w == words) return 0;
+            word = domains[base + w];
+        }
+    }
+
+    private void setWord(int index, long word) {
+        if (trailSize == trailIndex.length) {
+            trailIndex = Arrays.copyOf(trailIndex, trailSize * 2);
+            trailWord = Arrays.copyOf(trailWord, trailSize * 2);
         }
+        trailIndex[trailSize] = index;
+        trailWord[trailSize++] = domains[index];
+        domains[index] = word;
     }
 
     /**
-     * Creates a deep copy of the current domains.
-     * Necessary for backtracking.
+     * Removes a color from a domain, recording the change on the trail
+     * Returns true if the color was in the domain.
+     * @param cause Variable whose singleton domain excludes the color, or NOGOOD
      */
-    private Map<Integer, Set<Integer>> deepCopyDomains() {
-        Map<Integer, Set<Integer>> newDomains = new HashMap<>();
-        for (Map.Entry<Integer, Set<Integer>> entry : domains.entrySet()) {
-            newDomains.put(entry.getKey(), new HashSet<>(entry.getValue()));
+    private boolean remove(int var, int color, int cause) {
+        int index = var * words + ((color - 1) >>> 6);
+        long bit = 1L << (color - 1);
+        if ((domains[index] & bit) == 0) return false;
+        setWord(index, domains[index] & ~bit);
+        domainSize[var]--;
+        // Removals before the first decision hold in every solution and need no explanation
+        reason[var * numColors + color - 1] = depth == 0 ? ROOT : cause;
+        if (assignment[var] == 0) {
+            for (int neighbor : neighbors[var]) support[neighbor * numColors + color - 1]--;
+            unassigned.update(var, selectionKey(var));
+        }
+        return true;
+    }
+
+    // Reduces the domain of an assigned var to the single color
+    private void reduceTo(int var, int color) {
+        int base = var * words;
+        int target = (color - 1) >>> 6;
+        for (int w = 0; w < words; w++) {
+            long word = w == target ? 1L << (color - 1) : 0L;
+            long removed = domains[base + w] & ~word;
+            if (removed == 0) continue;
+            for (; removed != 0; removed &= removed - 1) {
+                reason[var * numColors + 64 * w + Long.numberOfTrailingZeros(removed)] = depth == 0 ? ROOT : DECISION;
+            }
+            setWord(base + w, word);
+        }
+        domainSize[var] = 1;
+    }
+
+    // Undoes every domain change made after the trail had the given size
+    private void undo(int mark) {
+        while (trailSize > mark) {
+            int index = trailIndex[--trailSize];
+            long current = domains[index];
+            long previous = trailWord[trailSize];
+            int var = index / words;
+            domainSize[var] += Long.bitCount(previous) - Long.bitCount(current);
+            domains[index] = previous;
+            if (assignment[var] == 0) {
+                // Words only ever lose colors, so the difference is the restored colors
+                addSupport(var, 64 * (index - var * words), previous & ~current, 1);
+                unassigned.update(var, selectionKey(var));
+            }
+        }
+    }
+
+    // Adds delta to the support of every color in bits (colors base + 1...) at all neighbors of var
+    private void addSupport(int var, int base, long bits, int delta) {
+        while (bits != 0) {
+            int offset = base + Long.numberOfTrailingZeros(bits);
+            for (int neighbor : neighbors[var]) support[neighbor * numColors + offset] += delta;
+            bits &= bits - 1;
         }
-        return newDomains;
     }
-    
+
+    /**
+     * Takes var out of the unassigned set: its colors stop counting for the LCV counts and
+     * the selection keys of its neighbors
+     */
+    private void assign(int var, int value) {
+        unassigned.remove(var);
+        for (int w = 0; w < words; w++) addSupport(var, 64 * w, domains[var * words + w], -1);
+        for (int neighbor : neighbors[var]) {
+            freeDegree[neighbor]--;
+            if (unassigned.contains(neighbor)) unassigned.update(neighbor, selectionKey(neighbor));
+        }
+        assignment[var] = value;
+        assigned++;
+        if (colorUses[value]++ == 0) colorsInUse++;
+    }
+
+    // Reverse of assign, after the domain of var has been restored
+    private void unassign(int var) {
+        if (--colorUses[assignment[var]] == 0) colorsInUse--;
+        assignment[var] = 0;
+        assigned--;
+        for (int w = 0; w < words; w++) addSupport(var, 64 * w, domains[var * words + w], 1);
+        for (int neighbor : neighbors[var]) {
+            freeDegree[neighbor]++;
+            if (unassigned.contains(neighbor)) unassigned.update(neighbor, selectionKey(neighbor));
+        }
+        unassigned.insert(var, selectionKey(var));
+    }
+
     /**
      * Revise function for AC-3.
-     * Returns true if the domain of vi was changed.
+     * An arc vi != vj can only lose support when the domain of vj is a single color,
+     * which is then removed from the domain of vi. Returns true if the domain of vi was changed.
      */
     private boolean revise(int vi, int vj) {
-        boolean revised = false;
-        Set<Integer> domainVi = domains.get(vi);
-        Set<Integer> domainVj = domains.get(vj);
-        
-        // Using an iterator to safely remove elements while iterating
-        Iterator<Integer> iterator = domainVi.iterator();
-        while(iterator.hasNext()){
-            Integer colorI = iterator.next();
-            // If no color in domain of vj allows (colorI, colorJ) to satisfy the constraint
-            if (domainVj.stream().noneMatch(colorJ -> !colorI.equals(colorJ))) {
-                iterator.remove();
-                revised = true;
+        if (METRICS) reviseCalls++;
+        if (domainSize[vj] != 1) return false;
+        if (!remove(vi, firstColor(vj), vj)) return false;
+        if (METRICS) prunedValues++;
+        return true;
+    }
+
+    /**
+     * AC-3 Algorithm to enforce arc consistency.
+     * Since only singleton domains can prune, the queue holds variables that became singletons;
+     * popping one revises all arcs (neighbor, var). Returns false when a domain is wiped out.
+     */
+    private boolean ac3(int head, int tail) {
+        while (head < tail) {
+            int vj = queue[head++];
+            for (int vi : neighbors[vj]) {
+                if (revise(vi, vj)) {
+                    if (domainSize[vi] == 0) {
+                        if (METRICS) wipeouts++;
+                        explainWipeout(vi);
+                        return false; // Failure, domain wiped out
+                    }
+                    // Every variable becomes a singleton at most once between two backtracks
+                    if (domainSize[vi] == 1) queue[tail++] = vi;
+                }
+            }
+            if (watches != null) {
+                tail = propagateNogoods(vj, tail);
+                if (tail < 0) return false;
             }
         }
-        return revised;
+        return true;
     }
 
     /**
-     * AC-3 Algorithm to enforce arc consistency.
+     * A learned nogood: the assignments vars[i] = values[i] never all hold in a solution.
+     * Literals 0 and 1 are watched, so propagation only looks at a nogood when one of them
+     * becomes true (the variable is down to that color).
      */
-    private boolean ac3(Queue<int[]> queue) {
-        while (!queue.isEmpty()) {
-            int[] arc = queue.poll();
-            int vi = arc[0];
-            int vj = arc[1];
+    private static final class Nogood {
+        final int[] vars;
+        final int[] values;
+        double activity;
+        boolean deleted;
 
-            if (revise(vi, vj)) {
-                if (domains.get(vi).isEmpty()) {
-                    return false; // Failure, domain wiped out
-                }
-                // Add all arcs (vk, vi) where vk is a neighbor of vi
-                for (int vk : adj.getOrDefault(vi, Collections.emptyList())) {
-                    if (vk != vj) {
-                        queue.add(new int[]{vk, vi});
+        Nogood(int[] vars, int[] values) {
+            this.vars = vars;
+            this.values = values;
+        }
+
+        void swap(int i, int j) {
+            int var = vars[i];
+            vars[i] = vars[j];
+            vars[j] = var;
+            int value = values[i];
+            values[i] = values[j];
+            values[j] = value;
+        }
+    }
+
+    private boolean hasColor(int var, int color) {
+        return (domains[var * words + ((color - 1) >>> 6)] & (1L << (color - 1))) != 0;
+    }
+
+    // The literal var = color holds once the domain of var is just that color
+    private boolean isTrue(int var, int color) {
+        return domainSize[var] == 1 && hasColor(var, color);
+    }
+
+    /**
+     * Propagates the nogoods watching "var = its color" after var became a singleton. Each one
+     * moves the watch to a literal that is not true; when there is none it removes the color
+     * of the other watched literal, or fails when that literal holds as well.
+     * Returns the new queue tail, or -1 on failure.
+     */
+    private int propagateNogoods(int var, int tail) {
+        List<Nogood> list = watches[var * numColors + firstColor(var) - 1];
+        if (list == null) return tail;
+        for (int i = 0; i < list.size(); ) {
+            Nogood nogood = list.get(i);
+            int[] vars = nogood.vars;
+            int[] values = nogood.values;
+            if (vars[0] != var) nogood.swap(0, 1);
+            if (vars.length == 1) {
+                bump(nogood);
+                explainNogood(nogood);
+                return -1;
+            }
+            if (!hasColor(vars[1], values[1])) {
+                i++; // Already satisfied
+                continue;
+            }
+            int replacement = 2;
+            while (replacement < vars.length && isTrue(vars[replacement], values[replacement])) replacement++;
+            if (replacement < vars.length) {
+                nogood.swap(0, replacement);
+                watch(nogood, 0);
+                list.set(i, list.get(list.size() - 1));
+                list.remove(list.size() - 1);
+                continue;
+            }
+
+            bump(nogood);
+            int other = vars[1];
+            if (domainSize[other] == 1) {
+                explainNogood(nogood); // Every literal holds
+                return -1;
+            }
+            remove(other, values[1], NOGOOD);
+            reasonNogood[other * numColors + values[1] - 1] = nogood;
+            if (METRICS) nogoodPrunes++;
+            if (domainSize[other] == 1) queue[tail++] = other;
+            i++;
+        }
+        return tail;
+    }
+
+    private void watch(Nogood nogood, int literal) {
+        int slot = nogood.vars[literal] * numColors + nogood.values[literal] - 1;
+        if (watches[slot] == null) watches[slot] = new ArrayList<>();
+        watches[slot].add(nogood);
+    }
+
+    /**
+     * Stores the decisions of the given levels as a nogood, watching the two deepest ones, which
+     * are the first to be undone. A full store first drops its less active half.
+     */
+    @SuppressWarnings("unchecked")
+    private void learn(LevelSet levels) {
+        int size = levels.size();
+        if (size == 0 || size > Math.max(MIN_NOGOOD_LENGTH, depth / NOGOOD_DEPTH_SHARE)) return;
+        if (nogoods == null) {
+            nogoods = new ArrayList<>();
+            watches = (List<Nogood>[]) new List<?>[n * numColors];
+            reasonNogood = new Nogood[n * numColors];
+        } else if (nogoods.size() >= NOGOOD_CAPACITY || nogoodLiterals + size > NOGOOD_LITERALS) {
+            reduceNogoods();
+        }
+        int[] vars = new int[size];
+        int[] values = new int[size];
+        for (int i = 0; i < size; i++) {
+            int level = levels.get(size - 1 - i);
+            vars[i] = decisionVar[level];
+            values[i] = decisionValue[level];
+        }
+        Nogood nogood = new Nogood(vars, values);
+        nogoods.add(nogood);
+        nogoodLiterals += size;
+        watch(nogood, 0);
+        if (size > 1) watch(nogood, 1);
+        bump(nogood);
+        activityIncrement /= ACTIVITY_DECAY;
+        if (METRICS) learnedNogoods++;
+    }
+
+    // Nogoods that take part in conflicts gain activity; older bumps count less and less
+    private void bump(Nogood nogood) {
+        nogood.activity += activityIncrement;
+        if (nogood.activity > 1e100) {
+            for (Nogood learned : nogoods) learned.activity *= 1e-100;
+            activityIncrement *= 1e-100;
+        }
+    }
+
+    // Drops the less active half of the nogoods; nogoods still used as reasons stay reachable there
+    private void reduceNogoods() {
+        nogoods.sort(Comparator.comparingDouble(nogood -> nogood.activity));
+        int half = nogoods.size() / 2;
+        for (Nogood nogood : nogoods.subList(0, half)) nogood.deleted = true;
+        for (Nogood nogood : nogoods.subList(0, half)) {
+            for (int literal = 0; literal < Math.min(2, nogood.vars.length); literal++) {
+                List<Nogood> list = watches[nogood.vars[literal] * numColors + nogood.values[literal] - 1];
+                if (list != null) list.removeIf(watched -> watched.deleted);
+            }
+        }
+        nogoods = new ArrayList<>(nogoods.subList(half, nogoods.size()));
+        nogoodLiterals = 0;
+        for (Nogood nogood : nogoods) nogoodLiterals += nogood.vars.length;
+    }
+
+    // Conflict set of a wiped out domain
+    private void explainWipeout(int var) {
+        if (depth == 0) return;
+        newAnalysis();
+        conflict.clear();
+        collectLevels(explainVar(var, 0), conflict);
+    }
+
+    // Conflict set of a nogood whose literals all hold
+    private void explainNogood(Nogood nogood) {
+        if (depth == 0) return;
+        newAnalysis();
+        conflict.clear();
+        int size = 0;
+        for (int var : nogood.vars) size = explainVar(var, size);
+        collectLevels(size, conflict);
+    }
+
+    private void newAnalysis() {
+        if (++stamp == Integer.MAX_VALUE) {
+            Arrays.fill(explainStamp, 0);
+            stamp = 1;
+        }
+    }
+
+    // Pushes var on the explain stack unless the current analysis has seen it
+    private int explainVar(int var, int size) {
+        if (explainStamp[var] == stamp) return size;
+        explainStamp[var] = stamp;
+        explainStack[size] = var;
+        return size + 1;
+    }
+
+    /**
+     * Conflict analysis: adds to levels the decision levels that together removed the missing
+     * colors of the variables on the explain stack. A color pruned by a singleton neighbor is
+     * explained by the missing colors of that neighbor, one pruned by a nogood by its other
+     * variables, and so on back to the decisions. Each variable is expanded once.
+     */
+    private void collectLevels(int size, LevelSet levels) {
+        while (size > 0) {
+            int var = explainStack[--size];
+            for (int w = 0; w < words; w++) {
+                for (long missing = ~domains[var * words + w] & colorMask(w); missing != 0; missing &= missing - 1) {
+                    int slot = var * numColors + 64 * w + Long.numberOfTrailingZeros(missing);
+                    int cause = reason[slot];
+                    if (cause >= 0) {
+                        size = explainVar(cause, size);
+                    } else if (cause == DECISION) {
+                        levels.add(levelOf[var]);
+                    } else if (cause == NOGOOD) {
+                        Nogood nogood = reasonNogood[slot];
+                        bump(nogood);
+                        for (int other : nogood.vars) {
+                            if (other != var) size = explainVar(other, size);
+                        }
                     }
                 }
             }
         }
-        return true;
     }
 
     /**
      * Heuristic: Select the unassigned variable with the Minimum Remaining Values (MRV).
+     * Ties go to the variable with the most unassigned neighbors (degree heuristic). With MAC
+     * every color of an assigned neighbor is already gone from the domain, so the domain size
+     * also accounts for the DSatur saturation. The heap is kept up to date by every domain
+     * change and undo, so selection does not scan the variables.
      */
-    private int selectUnassignedVariable(Map<Integer, Integer> assignment) {
-        int bestVar = -1;
-        int minDomainSize = Integer.MAX_VALUE;
+    private int selectUnassignedVariable() {
+        return unassigned.peek();
+    }
 
-        for (int var : variables) {
-            if (!assignment.containsKey(var)) {
-                int domainSize = domains.get(var).size();
-                if (domainSize < minDomainSize) {
-                    minDomainSize = domainSize;
-                    bestVar = var;
+    /**
+     * Heuristic: Order domain values by the Least Constraining Value (LCV).
+     * The number of unassigned neighbors that would lose each color is maintained in support.
+     * Symmetry breaking: colors no variable has yet are interchangeable, so only the lowest of
+     * them is tried. A coloring that gives var a higher unused color becomes one that gives it
+     * the lowest by swapping the two, so nothing is lost; if the lowest unused color was pruned,
+     * the higher ones cannot work either, and the same reasons explain why.
+     * The values are written to valueStack from start; returns their number.
+     */
+    private int orderDomainValues(int var, int start) {
+        int size = 0;
+        long[] keys = orderKeys;
+        for (int color = firstColor(var); color != 0 && color <= colorsInUse + 1; color = nextColor(var, color)) {
+            // Ties keep ascending color order, or the random order of a randomized strategy
+            keys[size++] = ((long) support[var * numColors + color - 1] << 32) | colorRank[color - 1];
+        }
+        Arrays.sort(keys, 0, size);
+        if (start + size > valueStack.length) valueStack = Arrays.copyOf(valueStack, Math.max(2 * valueStack.length, start + size));
+        for (int i = 0; i < size; i++) valueStack[start + i] = colorOfRank[(int) keys[i]] + 1;
+        return size;
+    }
+
+    /**
+     * The core backtracking algorithm with heuristics, as a loop over an explicit stack of open
+     * levels instead of recursion, so the depth is only bounded by the number of variables.
+     * Domains are changed in place; every change is on the trail and undone before the next value.
+     * Returns false on failure, and also when the search is stopped (a restart is due, the
+     * portfolio or the user cancelled, or a limit was reached); the search then unwinds,
+     * undoing every level it opened.
+     * Conflict-directed backjumping: a failure leaves in conflict the decision levels it depends
+     * on. When a value fails without depending on this level, no other value can help and the
+     * search jumps back past it. When every value fails, the level passes on the union of their
+     * conflict sets plus the reasons for the colors pruned before it, and learns that those
+     * decisions together are a nogood.
+     */
+    private boolean backtrack() {
+        if (assigned == n) {
+            return true; // Success
+        }
+        int root = depth;
+        openLevel(root);
+        while (true) {
+            int level = depth;
+            if (levelNext[level] < levelEnd[level]) {
+                if (stopped()) return unwind(root);
+                int value = valueStack[levelStart[level] + levelNext[level]++];
+                if (parallel != null) maybeSplit();
+                if (METRICS) nodes++;
+
+                // Forward checking and Maintaining Arc Consistency (MAC) from the assigned variable
+                push(levelVar[level], value);
+                if (ac3(0, 1)) {
+                    if (assigned == n) return true; // Success
+                    openLevel(root);
+                    continue;
                 }
+            } else {
+                closeLevel(level);
+                if (level == root) return false; // Failure
             }
+
+            // Backtrack: Undo the failed decision, and the levels the conflict does not depend on
+            while (true) {
+                int parent = depth - 1;
+                if (METRICS) backtracks++;
+                pop();
+                if (restart || ++failures >= failureLimit) {
+                    restart = true;
+                    return unwind(root);
+                }
+                if (conflict.isAll() || conflict.deepest() == parent) {
+                    conflict.removeDeepest();
+                    levelConflict[parent].addAll(conflict);
+                    break;
+                }
+                if (METRICS) backjumps++;
+                if (parent == root) return false; // Jump back with the same conflict set
+            }
+        }
+    }
+
+    // Opens a level at the current depth: selects its variable and stacks its ordered values
+    private void openLevel(int root) {
+        int level = depth;
+        int var = selectUnassignedVariable();
+        int start = level > root ? levelStart[level - 1] + levelCount[level - 1] : 0;
+        int count = orderDomainValues(var, start);
+        levelVar[level] = var;
+        levelStart[level] = start;
+        levelCount[level] = count;
+        levelNext[level] = 0;
+        levelEnd[level] = count;
+        if (levelConflict[level] == null) levelConflict[level] = new LevelSet();
+        levelConflict[level].clear();
+    }
+
+    // Every value of the level failed: leaves the conflict set of the level and learns it
+    private void closeLevel(int level) {
+        if (levelEnd[level] < levelCount[level]) {
+            // Values handed to other tasks are not refuted here: no jumping over, no learning
+            conflict.setAll();
+            return;
+        }
+        // Colors pruned before var was selected are missing because of earlier decisions
+        LevelSet levels = levelConflict[level];
+        newAnalysis();
+        collectLevels(explainVar(levelVar[level], 0), levels);
+        conflict.copyOf(levels);
+        if (parallel == null) learn(levels);
+    }
+
+    // Undoes the levels opened since root, after the search was stopped
+    private boolean unwind(int root) {
+        while (depth > root) {
+            if (METRICS) backtracks++;
+            pop();
         }
-        return bestVar;
+        return false;
     }
 
     /**
-     * Heuristic: Order domain values by the Least Constraining Value (LCV).
+     * Cooperative stop, checked before every value: another solver has finished, the user
+     * cancelled, or a node or time limit was reached
      */
-    private List<Integer> orderDomainValues(int var, Map<Integer, Integer> assignment) {
-        if (!domains.containsKey(var)) return Collections.emptyList();
+    private boolean stopped() {
+        if (cancelled != null && cancelled.get()) return true;
+        if (++unreportedNodes < limits.batch) return limits.reached || limits.cancelled;
+        int count = unreportedNodes;
+        unreportedNodes = 0;
+        return limits.spend(count);
+    }
 
-        List<Integer> currentDomain = new ArrayList<>(domains.get(var));
-        
-        currentDomain.sort(Comparator.comparingInt(color -> {
-            int conflicts = 0;
-            for (int neighbor : adj.getOrDefault(var, Collections.emptyList())) {
-                if (!assignment.containsKey(neighbor) && domains.get(neighbor).contains(color)) {
-                    conflicts++;
+    // Assigns var and reduces its domain; the caller propagates from queue[0]
+    private void push(int var, int value) {
+        levelOf[var] = depth;
+        decisionVar[depth] = var;
+        decisionValue[depth] = value;
+        decisionMark[depth++] = trailSize;
+        assign(var, value);
+        reduceTo(var, value);
+        queue[0] = var;
+    }
+
+    // Undoes the most recent decision and everything propagated from it
+    private void pop() {
+        depth--;
+        undo(decisionMark[depth]);
+        unassign(decisionVar[depth]);
+    }
+
+    /**
+     * Runs the search without printing
+     * Vertices with fewer than numColors neighbors are peeled off first and colored last; the
+     * rest is split into biconnected blocks, which are searched in parallel and joined (see
+     * Decomposition). A graph that does not split is searched as a whole by this solver.
+     * @return Color of every variable, or null when no coloring with numColors colors exists or
+     *         the search was stopped early; getOutcome() tells which
+     */
+    public Map<Integer, Integer> findSolution() {
+        try {
+            limits.start();
+            long startTime = METRICS ? System.nanoTime() : 0L;
+            if (selfLoop) {
+                outcome = Outcome.UNSATISFIABLE;
+                if (METRICS) reportMetrics(false);
+                return null;
+            }
+            Decomposition decomposition = new Decomposition(neighbors, numColors);
+            // Decomposition counts as initialization
+            long decomposeNanos = METRICS ? System.nanoTime() - startTime : 0L;
+            if (METRICS) {
+                peeledVertices = decomposition.peeledCount;
+                blockCount = decomposition.blocks.size();
+            }
+            if (decomposition.peeledCount == 0 && decomposition.blocks.size() <= 1) {
+                outcome = run();
+                if (METRICS) {
+                    initNanos += decomposeNanos;
+                    reportMetrics(outcome == Outcome.SOLVED);
                 }
+                return outcome == Outcome.SOLVED ? solution() : null;
             }
-            return conflicts;
-        }));
-        
-        return currentDomain;
+
+            if (METRICS) initNanos = decomposeNanos;
+            int[][] blockColors = solveBlocks(decomposition, Runtime.getRuntime().availableProcessors());
+            Map<Integer, Integer> result = null;
+            if (blockColors != null) {
+                int[] color = decomposition.join(blockColors);
+                decomposition.colorPeeled(color);
+                result = new HashMap<>();
+                for (int var = 0; var < n; var++) result.put(ids[var], color[var]);
+            }
+            if (METRICS) reportMetrics(result != null);
+            return result;
+        } finally {
+            limits.finish();
+        }
     }
 
     /**
-     * The core backtracking algorithm with heuristics.
+     * Searches every block of the decomposition, largest first, on up to threads threads; the
+     * first block without a coloring cancels the others. Sets outcome for the whole problem.
+     * @return The coloring of each block over its own variables, or null when one has none or
+     *         the search was stopped
      */
-    private Map<Integer, Integer> backtrack(Map<Integer, Integer> assignment) {
-        if (assignment.size() == variables.size()) {
-            return assignment; // Success
+    private int[][] solveBlocks(Decomposition decomposition, int threads) {
+        int count = decomposition.blocks.size();
+        AtomicBoolean failed = new AtomicBoolean();
+        List<CSPGraphColoring> solvers = new ArrayList<>();
+        for (int b = 0; b < count; b++) {
+            solvers.add(new CSPGraphColoring(numColors, decomposition.blocks.get(b),
+                    decomposition.blockNeighbors.get(b), failed, limits));
+        }
+        List<CSPGraphColoring> bySize = new ArrayList<>(solvers);
+        bySize.sort(Comparator.comparingInt((CSPGraphColoring solver) -> solver.n).reversed());
+        List<Callable<Outcome>> tasks = new ArrayList<>();
+        for (CSPGraphColoring solver : bySize) {
+            tasks.add(() -> {
+                solver.outcome = solver.run();
+                if (solver.outcome == Outcome.UNSATISFIABLE) failed.set(true);
+                return solver.outcome;
+            });
         }
 
-        int var = selectUnassignedVariable(assignment);
-        List<Integer> orderedValues = orderDomainValues(var, assignment);
+        // No pool for one block, or for none when peeling removed every vertex
+        if (threads <= 1 || count <= 1) {
+            for (Callable<Outcome> task : tasks) {
+                try {
+                    if (task.call() != Outcome.SOLVED) break;
+                } catch (Exception e) {
+                    throw new IllegalStateException("Block solver failed", e);
+                }
+            }
+        } else {
+            ExecutorService pool = Executors.newFixedThreadPool(Math.min(threads, count), task -> {
+                Thread thread = new Thread(task, "csp-block");
+                thread.setDaemon(true);
+                return thread;
+            });
+            try {
+                for (Future<Outcome> future : pool.invokeAll(tasks)) future.get();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new IllegalStateException("Interrupted while solving blocks", e);
+            } catch (ExecutionException e) {
+                throw new IllegalStateException("Block solver failed", e.getCause());
+            } finally {
+                pool.shutdown();
+            }
+        }
 
-        for (Integer value : orderedValues) {
-            Map<Integer, Integer> newAssignment = new HashMap<>(assignment);
-            newAssignment.put(var, value);
+        if (METRICS) {
+            // Times are summed over the blocks
+            for (CSPGraphColoring solver : solvers) {
+                nodes += solver.nodes;
+                backtracks += solver.backtracks;
+                backjumps += solver.backjumps;
+                learnedNogoods += solver.learnedNogoods;
+                nogoodPrunes += solver.nogoodPrunes;
+                restartCount += solver.restartCount;
+                reviseCalls += solver.reviseCalls;
+                prunedValues += solver.prunedValues;
+                wipeouts += solver.wipeouts;
+                cliqueSize = Math.max(cliqueSize, solver.cliqueSize);
+                initNanos += solver.initNanos;
+                searchNanos += solver.searchNanos;
+            }
+        }
+        // A block without a coloring decides; blocks it cancelled (or never started) do not count
+        outcome = Outcome.SOLVED;
+        for (CSPGraphColoring solver : solvers) {
+            if (solver.outcome == Outcome.UNSATISFIABLE) {
+                outcome = Outcome.UNSATISFIABLE;
+                break;
+            }
+            if (solver.outcome != null && solver.outcome != Outcome.SOLVED && outcome == Outcome.SOLVED) {
+                outcome = solver.outcome;
+            }
+        }
+        if (outcome != Outcome.SOLVED) return null;
+        int[][] colors = new int[count][];
+        for (int b = 0; b < count; b++) colors[b] = solvers.get(b).assignment;
+        return colors;
+    }
 
-            // Store old domains before making changes
-            Map<Integer, Set<Integer>> oldDomains = deepCopyDomains();
+    /**
+     * Runs several differently configured solvers on separate threads; the first one to finish
+     * (with a solution or a proof that there is none) wins and the others are cancelled
+     * The node limit counts the nodes of all solvers together.
+     * @param threads Number of solvers, each with Strategy.portfolio(i); 1 is the plain search
+     */
+    public Map<Integer, Integer> findSolutionPortfolio(int threads) {
+        if (threads < 1) throw new IllegalArgumentException("Portfolio needs at least one solver");
+        if (threads == 1) return findSolution();
+        List<Strategy> strategies = new ArrayList<>();
+        for (int i = 0; i < threads; i++) strategies.add(Strategy.portfolio(i));
+        return findSolutionPortfolio(strategies);
+    }
 
-            // Forward checking: Remove assigned value from neighbors' domains
-            domains.get(var).clear();
-            domains.get(var).add(value);
-            
-            // Maintain Arc Consistency (MAC)
-            Queue<int[]> queue = new LinkedList<>();
-            for (int neighbor : adj.getOrDefault(var, Collections.emptyList())) {
-                if (!newAssignment.containsKey(neighbor)) {
-                    queue.add(new int[]{neighbor, var});
-                }
+    /**
+     * Portfolio of the given strategies, one solver and thread each, on the whole graph
+     * (without the decomposition findSolution() uses); one strategy runs it on its own
+     */
+    public Map<Integer, Integer> findSolutionPortfolio(List<Strategy> strategies) {
+        Portfolio portfolio = new Portfolio(this, strategies);
+        limits.start();
+        try {
+            CSPGraphColoring winner = portfolio.run();
+            if (winner == null) {
+                // Only a cancel by the user stops every solver
+                outcome = Outcome.CANCELLED;
+                return null;
+            }
+            outcome = winner.outcome;
+            if (METRICS) winner.reportMetrics(outcome == Outcome.SOLVED);
+            return outcome == Outcome.SOLVED ? winner.solution() : null;
+        } finally {
+            limits.finish();
+        }
+    }
+
+    /**
+     * Initial AC-3 followed by the search, restarted as the strategy prescribes
+     */
+    Outcome run() {
+        long startTime = METRICS ? System.nanoTime() : 0L;
+        initState();
+        if (!propagateInitial()) {
+            if (METRICS) initNanos = System.nanoTime() - startTime;
+            return Outcome.UNSATISFIABLE;
+        }
+
+        long searchStart = METRICS ? System.nanoTime() : 0L;
+        if (METRICS) initNanos = searchStart - startTime;
+        Outcome outcome;
+        for (int round = 0; ; round++) {
+            if (random != null) shuffleTies();
+            failures = 0;
+            failureLimit = strategy.limit(round);
+            restart = false;
+            if (backtrack()) {
+                outcome = Outcome.SOLVED;
+                break;
+            }
+            Outcome stop = stopOutcome();
+            if (stop != null) {
+                outcome = stop;
+                break;
+            }
+            if (!restart) {
+                outcome = Outcome.UNSATISFIABLE;
+                break;
             }
+            if (METRICS) restartCount++;
+        }
+        if (METRICS) searchNanos = System.nanoTime() - searchStart;
+        return outcome;
+    }
+
+    // Why the search was stopped early, or null when it was not
+    Outcome stopOutcome() {
+        if (limits.cancelled || (cancelled != null && cancelled.get())) return Outcome.CANCELLED;
+        if (limits.reached) return Outcome.LIMIT_REACHED;
+        return null;
+    }
+
+    /**
+     * Initial AC-3 consistency check; false when the problem has no solution
+     * A clique larger than numColors proves that right away. Otherwise the clique is colored
+     * 1, 2, ... before the search, which loses nothing since colors are interchangeable.
+     */
+    private boolean propagateInitial() {
+        if (selfLoop) return false;
+        int[] clique = greedyClique();
+        if (METRICS) cliqueSize = clique.length;
+        if (clique.length > numColors) return false;
+        for (int i = 0; i < clique.length; i++) {
+            assign(clique[i], i + 1);
+            reduceTo(clique[i], i + 1);
+        }
 
-            if (ac3(queue)) {
-                Map<Integer, Integer> result = backtrack(newAssignment);
-                if (result != null) {
-                    return result;
+        // Only singleton domains (one color) can prune
+        int tail = 0;
+        for (int var = 0; var < n; var++) {
+            if (domainSize[var] == 0) return false;
+            if (domainSize[var] == 1) queue[tail++] = var;
+        }
+        return ac3(0, tail);
+    }
+
+    /**
+     * Greedy clique, a lower bound on the colors needed: starting from each of the vertices of
+     * highest degree, neighbors are added in order of decreasing degree when they are adjacent
+     * to the whole clique so far
+     */
+    private int[] greedyClique() {
+        long[] byDegree = new long[n];
+        for (int v = 0; v < n; v++) byDegree[v] = degreeKey(v);
+        Arrays.sort(byDegree);
+        int[] best = new int[0];
+        int[] clique = new int[n];
+        // hits[v]: clique members adjacent to v, valid while candidate[v] is the current start
+        int[] hits = new int[n];
+        int[] candidate = new int[n];
+        for (int i = 0; i < Math.min(n, CLIQUE_STARTS); i++) {
+            int start = (int) byDegree[i];
+            // Degrees only fall from here on, so no later start can beat the best clique
+            if (neighbors[start].length < best.length) break;
+            long[] candidates = new long[neighbors[start].length];
+            for (int j = 0; j < candidates.length; j++) {
+                int u = neighbors[start][j];
+                candidates[j] = degreeKey(u);
+                candidate[u] = i + 1;
+                hits[u] = 1;
+            }
+            Arrays.sort(candidates);
+            int size = 0;
+            clique[size++] = start;
+            for (long key : candidates) {
+                int u = (int) key;
+                if (hits[u] != size) continue;
+                clique[size++] = u;
+                for (int w : neighbors[u]) {
+                    if (candidate[w] == i + 1) hits[w]++;
                 }
             }
-            
-            // Backtrack: Restore domains
-            this.domains = oldDomains;
+            if (size > best.length) best = Arrays.copyOf(clique, size);
         }
+        return best;
+    }
 
-        return null; // Failure
+    // Sorts by decreasing degree, then by variable; the variable is the low half
+    private long degreeKey(int var) {
+        return ((long) (Integer.MAX_VALUE - neighbors[var].length) << 32) | var;
     }
 
-    public void solve() {
-        // Initial AC-3 consistency check
-        Queue<int[]> initialQueue = new LinkedList<>();
-        for (int u : variables) {
-            for (int v : adj.getOrDefault(u, Collections.emptyList())) {
-                initialQueue.add(new int[]{u, v});
+    /**
+     * Splits the search tree into independent subtrees solved on a work-stealing ForkJoinPool
+     * (see ParallelSearch); the first solution stops all of them
+     * @param threads Parallelism of the pool
+     */
+    public Map<Integer, Integer> findSolutionParallel(int threads) {
+        if (threads < 1) throw new IllegalArgumentException("Parallel search needs at least one thread");
+        try {
+            limits.start();
+            long startTime = METRICS ? System.nanoTime() : 0L;
+            initState();
+            // Checked once here, so every worker starts from a consistent root
+            if (!propagateInitial()) {
+                outcome = Outcome.UNSATISFIABLE;
+                if (METRICS) {
+                    initNanos = System.nanoTime() - startTime;
+                    reportMetrics(false);
+                }
+                return null;
             }
+
+            long searchStart = METRICS ? System.nanoTime() : 0L;
+            if (METRICS) initNanos = searchStart - startTime;
+            ParallelSearch search = new ParallelSearch(this);
+            Map<Integer, Integer> result = search.run(threads);
+            if (result != null) {
+                outcome = Outcome.SOLVED;
+            } else {
+                Outcome stop = stopOutcome();
+                outcome = stop != null ? stop : Outcome.UNSATISFIABLE;
+            }
+            if (METRICS) {
+                searchNanos = System.nanoTime() - searchStart;
+                for (CSPGraphColoring worker : search.workers) {
+                    nodes += worker.nodes;
+                    backtracks += worker.backtracks;
+                    reviseCalls += worker.reviseCalls;
+                    prunedValues += worker.prunedValues;
+                    wipeouts += worker.wipeouts;
+                    backjumps += worker.backjumps;
+                }
+                reportMetrics(result != null);
+            }
+            return result;
+        } finally {
+            limits.finish();
         }
-        if (!ac3(initialQueue)) {
-            System.out.println("failure");
+    }
+
+    // Worker of a parallel search, with its own state at the root the problem has checked
+    static CSPGraphColoring worker(ParallelSearch search) {
+        CSPGraphColoring solver = new CSPGraphColoring(search.problem, Strategy.DEFAULT, search.stop);
+        solver.initState();
+        solver.propagateInitial();
+        solver.parallel = search;
+        return solver;
+    }
+
+    /**
+     * Task of a parallel search: replays the path from the root and searches the subtree below,
+     * adding the tasks it forks to children. Leaves the solver at the root again.
+     * @return The coloring found, or null
+     */
+    Map<Integer, Integer> searchSubtree(int[] vars, int[] values, List<ParallelSearch.SubtreeTask> children) {
+        forked = children;
+        taskRoot = vars.length;
+        // The first value a task tries already checks for idle workers
+        splitCheck = ParallelSearch.SPLIT_INTERVAL - 1;
+        Map<Integer, Integer> found = replay(vars, values) && backtrack() ? solution() : null;
+        while (depth > 0) pop();
+        return found;
+    }
+
+    /**
+     * Hands the untried values of the shallowest open level of this task to new tasks when
+     * workers are idle; called before every value tried in a parallel search
+     */
+    private void maybeSplit() {
+        if (++splitCheck < ParallelSearch.SPLIT_INTERVAL) return;
+        splitCheck = 0;
+        if (!parallel.workersIdle()) return;
+        for (int level = taskRoot; level <= depth; level++) {
+            int next = levelNext[level];
+            int end = levelEnd[level];
+            if (next >= end) continue;
+            for (int i = next; i < end; i++) {
+                int[] vars = Arrays.copyOf(decisionVar, level + 1);
+                int[] values = Arrays.copyOf(decisionValue, level + 1);
+                vars[level] = levelVar[level];
+                values[level] = valueStack[levelStart[level] + i];
+                forked.add(parallel.fork(vars, values));
+            }
+            levelEnd[level] = next;
             return;
         }
+    }
+
+    // Re-applies a task's path; false when propagation shows the subtree is empty
+    private boolean replay(int[] vars, int[] values) {
+        for (int i = 0; i < vars.length; i++) {
+            push(vars[i], values[i]);
+            if (!ac3(0, 1)) return false;
+        }
+        return true;
+    }
+
+    // Learned nogoods still stored after the last solve on this solver
+    int storedNogoods() {
+        return nogoods == null ? 0 : nogoods.size();
+    }
+
+    private Map<Integer, Integer> solution() {
+        Map<Integer, Integer> result = new HashMap<>();
+        for (int var = 0; var < n; var++) {
+            result.put(ids[var], assignment[var]);
+        }
+        return result;
+    }
+
+    /**
+     * Stops later solves after about this many nodes (values tried), counted over all solvers
+     * and threads of a solve; 0 means no limit. Such a solve returns null and getOutcome() is
+     * LIMIT_REACHED.
+     */
+    public void setNodeLimit(long nodes) {
+        if (nodes < 0) throw new IllegalArgumentException("Node limit must not be negative");
+        limits.maxNodes = nodes;
+    }
 
-        Map<Integer, Integer> result = backtrack(new HashMap<>());
+    /**
+     * Stops later solves once this much time has passed since they started; 0 means no limit
+     */
+    public void setTimeLimit(long millis) {
+        if (millis < 0) throw new IllegalArgumentException("Time limit must not be negative");
+        limits.maxNanos = TimeUnit.MILLISECONDS.toNanos(millis);
+    }
 
-        if (result == null) {
+    /**
+     * Asks the running solve to stop; may be called from any thread. Every solver notices it
+     * before its next node and unwinds, and the solve returns null with getOutcome() CANCELLED.
+     * A cancel made while no solve is running stops the next one; each solve uses up the
+     * cancel it received when it ends.
+     */
+    public void cancel() {
+        limits.cancelled = true;
+    }
+
+    /**
+     * How the last solve ended, null before the first one
+     */
+    public Outcome getOutcome() {
+        return outcome;
+    }
+
+    public void solve() {
+        solve(1);
+    }
+
+    /**
+     * Solves and prints the result; more than one thread runs a portfolio of solvers
+     */
+    public void solve(int threads) {
+        print(findSolutionPortfolio(threads));
+    }
+
+    // "unknown" when the solve was stopped before it could tell whether a coloring exists
+    private void print(Map<Integer, Integer> result) {
+        if (result == null && (outcome == Outcome.CANCELLED || outcome == Outcome.LIMIT_REACHED)) {
+            System.out.println("unknown");
+        } else if (result == null) {
             System.out.println("failure");
         } else {
             String solution = result.entrySet().stream()
@@ -216,15 +1722,78 @@ public class CSPGraphColoring {
         }
     }
 
+    /**
+     * Emits the JFR event of this solve and prints the counters as one JSON line on stderr,
+     * so the solution output on stdout stays unchanged
+     */
+    private void reportMetrics(boolean solved) {
+        SolveEvent event = new SolveEvent();
+        if (event.shouldCommit()) {
+            event.variables = n;
+            event.solved = solved;
+            event.nodes = nodes;
+            event.backtracks = backtracks;
+            event.reviseCalls = reviseCalls;
+            event.prunedValues = prunedValues;
+            event.backjumps = backjumps;
+            event.learnedNogoods = learnedNogoods;
+            event.restarts = restartCount;
+            event.strategy = strategy.toString();
+            event.peeledVertices = peeledVertices;
+            event.blocks = blockCount;
+            event.cliqueSize = cliqueSize;
+            event.initTime = initNanos;
+            event.searchTime = searchNanos;
+            event.commit();
+        }
+        System.err.printf(Locale.ROOT,
+                "METRICS: {\"variables\":%d,\"colors\":%d,\"solved\":%b,\"strategy\":\"%s\",\"nodes\":%d,\"backtracks\":%d,"
+                        + "\"peeled\":%d,\"blocks\":%d,\"clique\":%d,\"backjumps\":%d,\"learnedNogoods\":%d,\"nogoodPrunes\":%d,\"restarts\":%d,"
+                        + "\"reviseCalls\":%d,\"prunedValues\":%d,\"wipeouts\":%d,\"init_s\":%.9f,\"search_s\":%.9f}%n",
+                n, numColors, solved, strategy, nodes, backtracks, peeledVertices, blockCount, cliqueSize, backjumps, learnedNogoods,
+                nogoodPrunes, restartCount, reviseCalls, prunedValues, wipeouts, initNanos / 1e9, searchNanos / 1e9);
+    }
+
     public static void main(String[] args) {
-        if (args.length != 1) {
-            System.out.println("Usage: java CSPGraphColoring <filename>");
+        String usage = "Usage: java CSPGraphColoring <filename> [--portfolio <threads> | --parallel <threads>]"
+                + " [--node-limit <nodes>] [--time-limit <seconds>]";
+        if (args.length < 1 || args.length % 2 != 1) {
+            System.out.println(usage);
+            return;
+        }
+        String mode = null;
+        int threads = 1;
+        long nodeLimit = 0;
+        long timeLimit = 0;
+        try {
+            for (int i = 1; i < args.length; i += 2) {
+                switch (args[i]) {
+                    case "--portfolio":
+                    case "--parallel":
+                        if (mode != null) throw new IllegalArgumentException("Choose --portfolio or --parallel once");
+                        mode = args[i];
+                        threads = Integer.parseInt(args[i + 1]);
+                        break;
+                    case "--node-limit": nodeLimit = Long.parseLong(args[i + 1]); break;
+                    case "--time-limit": timeLimit = Math.round(Double.parseDouble(args[i + 1]) * 1000); break;
+                    default: throw new IllegalArgumentException("Unknown option: " + args[i]);
+                }
+            }
+        } catch (IllegalArgumentException e) {
+            System.err.println(e.getMessage());
+            System.out.println(usage);
             return;
         }
 
         try {
             CSPGraphColoring csp = new CSPGraphColoring(args[0]);
-            csp.solve();
+            csp.setNodeLimit(nodeLimit);
+            csp.setTimeLimit(timeLimit);
+            if ("--parallel".equals(mode)) {
+                csp.print(csp.findSolutionParallel(threads));
+            } else {
+                csp.solve(threads);
+            }
         } catch (IOException e) {
             System.err.println("Error reading file: " + e.getMessage());
         } catch (Exception e) {
@@ -0,0 +1,232 @@
+import java.util.*;
+
+/**
+ * Preprocessing for coloring a graph with k colors: k-core peeling and biconnected blocks
+ * A vertex with fewer than k neighbors always has a free color once its neighbors are colored,
+ * so such vertices are peeled off repeatedly (each removal lowers the degrees around it) and
+ * colored greedily at the end, in reverse order of peeling. What is left (the k-core) splits
+ * into biconnected blocks, which share at most one vertex, an articulation point, with each
+ * other. The blocks are colored independently; since colors can be renamed within a block,
+ * the block colorings are joined by swapping two colors so the shared vertices agree.
+ */
+final class Decomposition {
+
+    // Peeled vertices in peeling order
+    final int[] peeled;
+    final int peeledCount;
+    // Vertices of each block, and its adjacency over the positions in that vertex list
+    final List<int[]> blocks = new ArrayList<>();
+    final List<int[][]> blockNeighbors = new ArrayList<>();
+
+    private final int[][] neighbors;
+    private final int numColors;
+
+    /**
+     * @param neighbors Adjacency of the graph over dense vertex ids, without self-loops
+     */
+    Decomposition(int[][] neighbors, int numColors) {
+        this.neighbors = neighbors;
+        this.numColors = numColors;
+        int n = neighbors.length;
+
+        // 1. Peel vertices of degree below k until none is left
+        int[] degree = new int[n];
+        boolean[] removed = new boolean[n];
+        peeled = new int[n];
+        int count = 0;
+        for (int v = 0; v < n; v++) {
+            degree[v] = neighbors[v].length;
+            if (degree[v] < numColors) {
+                removed[v] = true;
+                peeled[count++] = v;
+            }
+        }
+        for (int i = 0; i < count; i++) {
+            for (int u : neighbors[peeled[i]]) {
+                if (!removed[u] && --degree[u] < numColors) {
+                    removed[u] = true;
+                    peeled[count++] = u;
+                }
+            }
+        }
+        peeledCount = count;
+
+        // 2. Biconnected blocks of the rest
+        findBlocks(removed);
+    }
+
+    /**
+     * Hopcroft-Tarjan with explicit stacks: edges are stacked as the depth-first search meets
+     * them, and a block is popped when a child cannot reach above its parent (low >= disc)
+     */
+    private void findBlocks(boolean[] removed) {
+        int n = neighbors.length;
+        int[] disc = new int[n];
+        int[] low = new int[n];
+        int[] parent = new int[n];
+        int[] next = new int[n];
+        int[] vertexStack = new int[n];
+        int[] edgeStack = new int[64];
+        int edges = 0;
+        int[] local = new int[n];
+        Arrays.fill(local, -1);
+        int time = 0;
+
+        for (int root = 0; root < n; root++) {
+            if (removed[root] || disc[root] != 0) continue;
+            disc[root] = low[root] = ++time;
+            parent[root] = -1;
+            int top = 0;
+            vertexStack[top++] = root;
+            while (top > 0) {
+                int u = vertexStack[top - 1];
+                if (next[u] < neighbors[u].length) {
+                    int w = neighbors[u][next[u]++];
+                    if (removed[w]) continue;
+                    boolean tree = disc[w] == 0;
+                    // Back edges are stacked from the descendant only, so each edge once
+                    if (!tree && (w == parent[u] || disc[w] > disc[u])) continue;
+                    if (edges + 2 > edgeStack.length) edgeStack = Arrays.copyOf(edgeStack, edgeStack.length * 2);
+                    edgeStack[edges++] = u;
+                    edgeStack[edges++] = w;
+                    if (tree) {
+                        parent[w] = u;
+                        disc[w] = low[w] = ++time;
+                        vertexStack[top++] = w;
+                    } else {
+                        low[u] = Math.min(low[u], disc[w]);
+                    }
+                } else {
+                    top--;
+                    int p = parent[u];
+                    if (p < 0) continue;
+                    low[p] = Math.min(low[p], low[u]);
+                    if (low[u] >= disc[p]) {
+                        // Edges above (p, u) on the stack, and (p, u) itself, form a block
+                        int start = edges;
+                        do {
+                            start -= 2;
+                        } while (edgeStack[start] != p || edgeStack[start + 1] != u);
+                        addBlock(edgeStack, start, edges, local);
+                        edges = start;
+                    }
+                }
+            }
+            if (time == disc[root]) {
+                // No neighbor left in the core (only possible without colors): a block of its own
+                blocks.add(new int[]{root});
+                blockNeighbors.add(new int[][]{new int[0]});
+            }
+        }
+    }
+
+    // Stores the block made of the edges edgeStack[from..to) (pairs of vertices)
+    private void addBlock(int[] edgeStack, int from, int to, int[] local) {
+        int size = 0;
+        int[] vertices = new int[to - from];
+        for (int i = from; i < to; i++) {
+            int v = edgeStack[i];
+            if (local[v] < 0) {
+                local[v] = size;
+                vertices[size++] = v;
+            }
+        }
+        int[] degree = new int[size];
+        for (int i = from; i < to; i += 2) {
+            degree[local[edgeStack[i]]]++;
+            degree[local[edgeStack[i + 1]]]++;
+        }
+        int[][] adjacency = new int[size][];
+        for (int v = 0; v < size; v++) adjacency[v] = new int[degree[v]];
+        Arrays.fill(degree, 0);
+        for (int i = from; i < to; i += 2) {
+            int a = local[edgeStack[i]];
+            int b = local[edgeStack[i + 1]];
+            adjacency[a][degree[a]++] = b;
+            adjacency[b][degree[b]++] = a;
+        }
+        vertices = Arrays.copyOf(vertices, size);
+        // Articulation points belong to several blocks, so the local numbering is reset
+        for (int v : vertices) local[v] = -1;
+        blocks.add(vertices);
+        blockNeighbors.add(adjacency);
+    }
+
+    /**
+     * Joins the block colorings into one coloring of the core
+     * Blocks are visited through the articulation points; a block reached through vertex v has
+     * no other vertex colored yet, so swapping its color of v with the color v already has
+     * makes it agree with everything joined so far.
+     * @param blockColors blockColors[b][i] is the color of blocks.get(b)[i]
+     * @return Color of every vertex, 0 for the peeled ones
+     */
+    int[] join(int[][] blockColors) {
+        int n = neighbors.length;
+        int[] color = new int[n];
+
+        // Blocks of each vertex
+        int[] start = new int[n + 1];
+        for (int[] block : blocks) for (int v : block) start[v + 1]++;
+        for (int v = 0; v < n; v++) start[v + 1] += start[v];
+        int[] blocksOf = new int[start[n]];
+        int[] fill = Arrays.copyOf(start, n);
+        for (int b = 0; b < blocks.size(); b++) for (int v : blocks.get(b)) blocksOf[fill[v]++] = b;
+
+        boolean[] joined = new boolean[blocks.size()];
+        int[] queue = new int[blocks.size()];
+        int tail = 0;
+        for (int first = 0; first < blocks.size(); first++) {
+            if (joined[first]) continue;
+            joined[first] = true;
+            copyColors(first, -1, blockColors[first], color);
+            queue[tail++] = first;
+            for (int head = tail - 1; head < tail; head++) {
+                for (int v : blocks.get(queue[head])) {
+                    for (int i = start[v]; i < start[v + 1]; i++) {
+                        int b = blocksOf[i];
+                        if (joined[b]) continue;
+                        joined[b] = true;
+                        copyColors(b, v, blockColors[b], color);
+                        queue[tail++] = b;
+                    }
+                }
+            }
+        }
+        return color;
+    }
+
+    // Colors the vertices of block b, renaming its colors so shared (if not -1) keeps its color
+    private void copyColors(int b, int shared, int[] colors, int[] color) {
+        int[] vertices = blocks.get(b);
+        int from = 0;
+        int to = 0;
+        for (int i = 0; i < vertices.length && shared >= 0; i++) {
+            if (vertices[i] == shared) {
+                from = colors[i];
+                to = color[shared];
+            }
+        }
+        for (int i = 0; i < vertices.length; i++) {
+            int c = colors[i];
+            color[vertices[i]] = c == from ? to : c == to ? from : c;
+        }
+    }
+
+    /**
+     * Colors the peeled vertices, last peeled first, each with the lowest color not used around it
+     * When a vertex was peeled fewer than k of its neighbors were left, and only those are
+     * colored before it, so a color is always free.
+     */
+    void colorPeeled(int[] color) {
+        int[] usedBy = new int[numColors + 1];
+        for (int i = peeledCount - 1; i >= 0; i--) {
+            int v = peeled[i];
+            for (int u : neighbors[v]) {
+                if (color[u] != 0) usedBy[color[u]] = i + 1;
+            }
+            int c = 1;
+            while (usedBy[c] == i + 1) c++;
+            color[v] = c;
+        }
+    }
+}
@@ -0,0 +1,256 @@
+import java.io.*;
+import java.util.*;
+
+/**
+ * Seeded graph coloring instances for benchmarks; the same arguments always give the same edges
+ * The random and flat generators hide a k-coloring with classes of equal size, shuffled over
+ * the vertex ids, so every instance is k-colorable.
+ * For k = 3 the hard region is around average degree 4.6; fewer edges make instances easy,
+ * more edges make the hidden coloring easy to find through propagation.
+ * Mycielski graphs are the opposite: they need k colors, and proving that k - 1 do not suffice
+ * takes a search that grows quickly with k.
+ */
+public final class InstanceGenerator {
+
+    private InstanceGenerator() {}
+
+    /**
+     * Random k-colorable graph: edges drawn uniformly among vertex pairs of different hidden classes
+     * @param n Number of vertices, numbered 1..n
+     * @param averageDegree Target average degree; the edge count is round(n * averageDegree / 2)
+     */
+    public static List<int[]> random(int n, int k, double averageDegree, long seed) {
+        checkArguments(n, k, averageDegree);
+        Random random = new Random(seed);
+        int[] hidden = hiddenClasses(n, k, random);
+        int edgeCount = (int) Math.round(n * averageDegree / 2);
+        Set<Long> seen = new HashSet<>();
+        List<int[]> edges = new ArrayList<>(edgeCount);
+        while (edges.size() < edgeCount) {
+            int u = 1 + random.nextInt(n);
+            int v = 1 + random.nextInt(n);
+            if (hidden[u] == hidden[v]) continue;
+            if (seen.add(key(u, v))) edges.add(new int[]{u, v});
+        }
+        return edges;
+    }
+
+    /**
+     * Flat k-colorable graph (Culberson): equal hidden classes, the same number of edges between
+     * every pair of classes, and every edge joins two vertices of currently lowest degree, so the
+     * degrees are as even as possible. Leaves no low-degree vertices for a solver to exploit.
+     */
+    public static List<int[]> flat(int n, int k, double averageDegree, long seed) {
+        checkArguments(n, k, averageDegree);
+        if (k < 2) throw new IllegalArgumentException("Flat graphs need at least two classes");
+        Random random = new Random(seed);
+        int edgeCount = (int) Math.round(n * averageDegree / 2);
+        int pairs = k * (k - 1) / 2;
+
+        int[] hidden = hiddenClasses(n, k, random);
+        List<List<Integer>> classes = new ArrayList<>();
+        for (int c = 0; c < k; c++) classes.add(new ArrayList<>());
+        for (int v = 1; v <= n; v++) classes.get(hidden[v]).add(v);
+
+        int[] degree = new int[n + 1];
+        int[] slot = new int[n + 1];
+        DegreeBuckets[] buckets = new DegreeBuckets[k];
+        for (int c = 0; c < k; c++) buckets[c] = new DegreeBuckets(classes.get(c), degree, slot);
+        Set<Long> seen = new HashSet<>();
+        List<int[]> edges = new ArrayList<>(edgeCount);
+        int pair = 0;
+        for (int a = 0; a < k; a++) {
+            for (int b = a + 1; b < k; b++, pair++) {
+                // Spread the remainder over the first pairs
+                int wanted = edgeCount / pairs + (pair < edgeCount % pairs ? 1 : 0);
+                long limit = (long) classes.get(a).size() * classes.get(b).size();
+                for (int e = 0; e < Math.min(wanted, limit); e++) {
+                    int u = buckets[a].lowest(random, -1, seen);
+                    int v = buckets[b].lowest(random, u, seen);
+                    if (v < 0) {
+                        // Every vertex of b is already joined to u: fall back to any free pair
+                        int[] free = anyFreePair(classes.get(a), classes.get(b), seen, random);
+                        u = free[0];
+                        v = free[1];
+                    }
+                    seen.add(key(u, v));
+                    buckets[a].raise(u);
+                    buckets[b].raise(v);
+                    edges.add(new int[]{u, v});
+                }
+            }
+        }
+        Collections.shuffle(edges, random);
+        return edges;
+    }
+
+    // hidden[v] = class of vertex v, sizes differ by at most one
+    private static int[] hiddenClasses(int n, int k, Random random) {
+        List<Integer> order = new ArrayList<>();
+        for (int v = 1; v <= n; v++) order.add(v);
+        Collections.shuffle(order, random);
+        int[] hidden = new int[n + 1];
+        for (int i = 0; i < n; i++) hidden[order.get(i)] = i % k;
+        return hidden;
+    }
+
+    private static int[] anyFreePair(List<Integer> a, List<Integer> b, Set<Long> seen, Random random) {
+        while (true) {
+            int u = a.get(random.nextInt(a.size()));
+            int v = b.get(random.nextInt(b.size()));
+            if (!seen.contains(key(u, v))) return new int[]{u, v};
+        }
+    }
+
+    /**
+     * Mycielski graph M_k on vertices 1..n: no triangles, yet it needs exactly k colors
+     * M_2 is a single edge; M_{i+1} adds a copy u' of every vertex u, joined to the neighbors of
+     * u, and an apex joined to every copy. M_4 is the Groetzsch graph on 11 vertices, M_6 has 47.
+     */
+    public static List<int[]> mycielski(int k) {
+        if (k < 2) throw new IllegalArgumentException("Mycielski graphs start at k = 2");
+        List<int[]> edges = new ArrayList<>();
+        edges.add(new int[]{1, 2});
+        int n = 2;
+        for (int i = 2; i < k; i++) {
+            List<int[]> next = new ArrayList<>(edges);
+            for (int[] edge : edges) {
+                next.add(new int[]{edge[0], n + edge[1]});
+                next.add(new int[]{edge[1], n + edge[0]});
+            }
+            for (int v = 1; v <= n; v++) next.add(new int[]{n + v, 2 * n + 1});
+            edges = next;
+            n = 2 * n + 1;
+        }
+        return edges;
+    }
+
+    /**
+     * Vertices of one hidden class grouped by degree, so that a random vertex of lowest degree
+     * is found without scanning the class
+     */
+    private static final class DegreeBuckets {
+        // Members of each degree in any order; slot[v] is the place of v in its list
+        private final List<List<Integer>> byDegree = new ArrayList<>();
+        private final int[] degree;
+        private final int[] slot;
+        private int lowest;
+
+        DegreeBuckets(List<Integer> members, int[] degree, int[] slot) {
+            this.degree = degree;
+            this.slot = slot;
+            byDegree.add(new ArrayList<>(members));
+            for (int i = 0; i < members.size(); i++) slot[members.get(i)] = i;
+        }
+
+        /**
+         * Random vertex of lowest degree; with a partner, only among vertices not yet joined to it
+         * @return The vertex, or -1 if every member is joined to the partner
+         */
+        int lowest(Random random, int partner, Set<Long> seen) {
+            for (int d = lowest; d < byDegree.size(); d++) {
+                List<Integer> bucket = byDegree.get(d);
+                if (bucket.isEmpty()) continue;
+                if (partner < 0) return bucket.get(random.nextInt(bucket.size()));
+                // The partner has few edges, so a random pick is rarely one of its neighbors
+                for (int attempt = 0; attempt < 8; attempt++) {
+                    int v = bucket.get(random.nextInt(bucket.size()));
+                    if (!seen.contains(key(partner, v))) return v;
+                }
+                List<Integer> free = new ArrayList<>();
+                for (int v : bucket) {
+                    if (!seen.contains(key(partner, v))) free.add(v);
+                }
+                if (!free.isEmpty()) return free.get(random.nextInt(free.size()));
+            }
+            return -1;
+        }
+
+        // Moves a member one degree up after it got an edge
+        void raise(int v) {
+            List<Integer> from = byDegree.get(degree[v]++);
+            int last = from.remove(from.size() - 1);
+            if (last != v) {
+                from.set(slot[v], last);
+                slot[last] = slot[v];
+            }
+            if (byDegree.size() == degree[v]) byDegree.add(new ArrayList<>());
+            List<Integer> to = byDegree.get(degree[v]);
+            slot[v] = to.size();
+            to.add(v);
+            while (byDegree.get(lowest).isEmpty() && lowest + 1 < byDegree.size()) lowest++;
+        }
+    }
+
+    private static long key(int u, int v) {
+        return u < v ? ((long) u << 32) | v : ((long) v << 32) | u;
+    }
+
+    private static void checkArguments(int n, int k, double averageDegree) {
+        if (n < 2 || k < 1) throw new IllegalArgumentException("Need at least two vertices and one color");
+        // Beyond this many edges the hidden classes run out of distinct pairs
+        double maxDegree = (double) (n - (n + k - 1) / k);
+        if (averageDegree < 0 || averageDegree > maxDegree) {
+            throw new IllegalArgumentException("Average degree must be between 0 and " + maxDegree);
+        }
+    }
+
+    /**
+     * Writes an instance in the input format of CSPGraphColoring
+     */
+    public static void write(int k, List<int[]> edges, String filename) throws IOException {
+        try (BufferedWriter out = new BufferedWriter(new FileWriter(filename))) {
+            out.write("colors=" + k);
+            out.newLine();
+            for (int[] edge : edges) {
+                out.write(edge[0] + "," + edge[1]);
+                out.newLine();
+            }
+        }
+    }
+
+    /**
+     * java InstanceGenerator random|flat <vertices> <colors> <average degree> <seed> <output file>
+     * java InstanceGenerator mycielski <k> <colors> <output file>
+     */
+    public static void main(String[] args) {
+        if (args.length == 4 && args[0].equals("mycielski")) {
+            try {
+                List<int[]> edges = mycielski(Integer.parseInt(args[1]));
+                write(Integer.parseInt(args[2]), edges, args[3]);
+                System.out.println("Wrote " + edges.size() + " edges to " + args[3]);
+            } catch (IllegalArgumentException e) {
+                System.err.println(e.getMessage());
+            } catch (IOException e) {
+                System.err.println("Failed to write instance: " + e.getMessage());
+            }
+            return;
+        }
+        if (args.length != 6) {
+            System.out.println("Usage: java InstanceGenerator random|flat <vertices> <colors> <average degree> <seed> <output file>");
+            System.out.println("       java InstanceGenerator mycielski <k> <colors> <output file>");
+            return;
+        }
+        try {
+            int n = Integer.parseInt(args[1]);
+            int k = Integer.parseInt(args[2]);
+            double degree = Double.parseDouble(args[3]);
+            long seed = Long.parseLong(args[4]);
+            List<int[]> edges;
+            if (args[0].equals("random")) {
+                edges = random(n, k, degree, seed);
+            } else if (args[0].equals("flat")) {
+                edges = flat(n, k, degree, seed);
+            } else {
+                System.err.println("Unknown instance kind: " + args[0]);
+                return;
+            }
+            write(k, edges, args[5]);
+            System.out.println("Wrote " + edges.size() + " edges to " + args[5]);
+        } catch (IllegalArgumentException e) {
+            System.err.println(e.getMessage());
+        } catch (IOException e) {
+            System.err.println("Failed to write instance: " + e.getMessage());
+        }
+    }
+}
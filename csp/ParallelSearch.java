@@ -0,0 +1,95 @@
+import java.util.*;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * Parallel search of one problem: splits the search tree into independent subtrees solved on a
+ * work-stealing ForkJoinPool
+ * Every worker thread keeps its own solver state. A task replays the decisions of its path from
+ * the root and searches the subtree below; while idle workers are waiting, it hands the untried
+ * values of its shallowest open level to new tasks, so heavy subtrees keep being split. The
+ * first solution stops all tasks; when every task has finished without one, there is no
+ * solution.
+ */
+final class ParallelSearch {
+    // Split only while fewer tasks than this are queued beyond what idle workers can take
+    private static final int SURPLUS = 2;
+    // Nodes between two checks for idle workers
+    static final int SPLIT_INTERVAL = 32;
+
+    final CSPGraphColoring problem;
+    final AtomicBoolean stop = new AtomicBoolean();
+    final AtomicReference<Map<Integer, Integer>> solution = new AtomicReference<>();
+    final Queue<CSPGraphColoring> workers = new ConcurrentLinkedQueue<>();
+    private final ThreadLocal<CSPGraphColoring> solvers;
+
+    /**
+     * @param problem Solver whose root has passed propagateInitial()
+     */
+    ParallelSearch(CSPGraphColoring problem) {
+        this.problem = problem;
+        this.solvers = ThreadLocal.withInitial(() -> {
+            CSPGraphColoring solver = CSPGraphColoring.worker(this);
+            workers.add(solver);
+            return solver;
+        });
+    }
+
+    /**
+     * Searches the whole tree on a pool of the given parallelism
+     * @return The coloring found, or null when there is none or the search was stopped
+     */
+    Map<Integer, Integer> run(int threads) {
+        ForkJoinPool pool = new ForkJoinPool(threads);
+        try {
+            pool.invoke(new SubtreeTask(this, new int[0], new int[0]));
+        } finally {
+            pool.shutdown();
+        }
+        return solution.get();
+    }
+
+    // Whether idle workers are short of queued tasks
+    boolean workersIdle() {
+        return ForkJoinTask.getSurplusQueuedTaskCount() < SURPLUS;
+    }
+
+    // Starts the subtree below a path of decisions as a new task
+    SubtreeTask fork(int[] vars, int[] values) {
+        SubtreeTask task = new SubtreeTask(this, vars, values);
+        task.fork();
+        return task;
+    }
+
+    /**
+     * The subtree below a path of decisions from the root
+     */
+    static final class SubtreeTask extends RecursiveAction {
+        private static final long serialVersionUID = 1L;
+
+        private final ParallelSearch search;
+        private final int[] vars;
+        private final int[] values;
+
+        SubtreeTask(ParallelSearch search, int[] vars, int[] values) {
+            this.search = search;
+            this.vars = vars;
+            this.values = values;
+        }
+
+        @Override
+        protected void compute() {
+            if (search.stop.get() || search.problem.stopOutcome() != null) return;
+            CSPGraphColoring solver = search.solvers.get();
+            List<SubtreeTask> children = new ArrayList<>();
+            Map<Integer, Integer> found = solver.searchSubtree(vars, values, children);
+            if (found != null) {
+                search.solution.compareAndSet(null, found);
+                search.stop.set(true);
+            }
+            // Joining may run other tasks on this thread; they find the solver back at the root
+            for (SubtreeTask child : children) child.join();
+        }
+    }
+}
@@ -0,0 +1,59 @@
+import java.util.*;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * Portfolio of differently configured solvers for one problem, each on its own thread and on the
+ * whole graph: the first one to finish (with a solution or a proof that there is none) wins and
+ * the others are cancelled
+ * The solvers share the problem's limits, so the node limit counts their nodes together.
+ */
+final class Portfolio {
+
+    private final CSPGraphColoring problem;
+    private final List<CSPGraphColoring.Strategy> strategies;
+
+    Portfolio(CSPGraphColoring problem, List<CSPGraphColoring.Strategy> strategies) {
+        if (strategies.isEmpty()) throw new IllegalArgumentException("Portfolio needs at least one solver");
+        this.problem = problem;
+        this.strategies = strategies;
+    }
+
+    /**
+     * Races the solvers; the ones still running are cancelled when this returns
+     * @return The solver that finished first, or null when a cancel by the user stopped them all
+     */
+    CSPGraphColoring run() {
+        int threads = strategies.size();
+        AtomicBoolean done = new AtomicBoolean();
+        ExecutorService pool = Executors.newFixedThreadPool(threads, task -> {
+            Thread thread = new Thread(task, "csp-portfolio");
+            thread.setDaemon(true);
+            return thread;
+        });
+        CompletionService<CSPGraphColoring> completion = new ExecutorCompletionService<>(pool);
+        try {
+            for (CSPGraphColoring.Strategy strategy : strategies) {
+                CSPGraphColoring solver = new CSPGraphColoring(problem, strategy, done);
+                completion.submit(() -> {
+                    solver.outcome = solver.run();
+                    if (solver.outcome != CSPGraphColoring.Outcome.CANCELLED) done.set(true);
+                    return solver;
+                });
+            }
+            for (int i = 0; i < threads; i++) {
+                CSPGraphColoring solver = completion.take().get();
+                if (solver.outcome != CSPGraphColoring.Outcome.CANCELLED) return solver;
+            }
+            return null;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Interrupted while waiting for the portfolio", e);
+        } catch (ExecutionException e) {
+            throw new IllegalStateException("Portfolio solver failed", e.getCause());
+        } finally {
+            done.set(true);
+            pool.shutdown();
+        }
+    }
+}
@@ -0,0 +1,70 @@
+import org.junit.jupiter.api.Test;
+
+import java.util.*;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Solves on one instance, one after the other: each starts from a clean search state
+ */
+class CSPGraphColoringTest {
+
+    @Test
+    void solvesTheSameInstanceTwice() {
+        List<int[]> edges = dense(12, 0.7, 3);
+        CSPGraphColoring csp = new CSPGraphColoring(6, edges);
+        for (int i = 0; i < 3; i++) {
+            assertColoring(csp.findSolution(), 6, edges);
+            assertEquals(CSPGraphColoring.Outcome.SOLVED, csp.getOutcome());
+        }
+    }
+
+    @Test
+    void solvesTheSameInstanceTwiceInParallel() {
+        List<int[]> edges = dense(12, 0.7, 3);
+        CSPGraphColoring csp = new CSPGraphColoring(6, edges);
+        for (int i = 0; i < 3; i++) assertColoring(csp.findSolutionParallel(2), 6, edges);
+    }
+
+    @Test
+    void alternatesSolveModes() {
+        List<int[]> edges = dense(12, 0.7, 3);
+        CSPGraphColoring csp = new CSPGraphColoring(6, edges);
+        assertColoring(csp.findSolution(), 6, edges);
+        assertColoring(csp.findSolutionParallel(2), 6, edges);
+        assertColoring(csp.findSolutionPortfolio(3), 6, edges);
+        assertColoring(csp.findSolution(), 6, edges);
+    }
+
+    @Test
+    void provesUnsatisfiableTwice() {
+        CSPGraphColoring csp = new CSPGraphColoring(3, InstanceGenerator.mycielski(4));
+        for (int i = 0; i < 2; i++) {
+            assertNull(csp.findSolution());
+            assertEquals(CSPGraphColoring.Outcome.UNSATISFIABLE, csp.getOutcome());
+            assertNull(csp.findSolutionParallel(2));
+            assertEquals(CSPGraphColoring.Outcome.UNSATISFIABLE, csp.getOutcome());
+        }
+        assertColoring(new CSPGraphColoring(4, InstanceGenerator.mycielski(4)).findSolution(), 4, InstanceGenerator.mycielski(4));
+    }
+
+    // Edges of a random graph on vertices 1..n, each present with probability p
+    static List<int[]> dense(int n, double p, long seed) {
+        Random random = new Random(seed);
+        List<int[]> edges = new ArrayList<>();
+        for (int u = 1; u <= n; u++) {
+            for (int v = u + 1; v <= n; v++) {
+                if (random.nextDouble() < p) edges.add(new int[]{u, v});
+            }
+        }
+        return edges;
+    }
+
+    static void assertColoring(Map<Integer, Integer> coloring, int colors, List<int[]> edges) {
+        assertNotNull(coloring);
+        for (int[] edge : edges) {
+            assertNotEquals(coloring.get(edge[0]), coloring.get(edge[1]), "edge " + edge[0] + "-" + edge[1]);
+        }
+        for (int color : coloring.values()) assertTrue(color >= 1 && color <= colors);
+    }
+}
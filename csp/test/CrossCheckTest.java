@@ -0,0 +1,117 @@
+import org.junit.jupiter.api.Test;
+
+import java.util.*;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Every search mode against plain brute force on small random graphs: the same verdict, and a
+ * proper coloring when there is one. Backjumping and nogood learning only skip parts of the
+ * tree, so any unsound jump or nogood shows up as a wrong "failure".
+ */
+class CrossCheckTest {
+
+    private static final List<CSPGraphColoring.Strategy> RESTARTING = List.of(
+            new CSPGraphColoring.Strategy(1, true, CSPGraphColoring.Strategy.Restarts.LUBY, 1, 2.0),
+            new CSPGraphColoring.Strategy(2, true, CSPGraphColoring.Strategy.Restarts.GEOMETRIC, 1, 1.3));
+
+    @Test
+    void sequentialSearchMatchesBruteForce() {
+        crossCheck(300, 1, csp -> csp.findSolution());
+    }
+
+    @Test
+    void parallelSearchMatchesBruteForce() {
+        crossCheck(150, 2, csp -> csp.findSolutionParallel(3));
+    }
+
+    @Test
+    void portfolioMatchesBruteForce() {
+        crossCheck(100, 3, csp -> csp.findSolutionPortfolio(3));
+    }
+
+    @Test
+    void restartingSearchesMatchBruteForce() {
+        for (CSPGraphColoring.Strategy strategy : RESTARTING) {
+            crossCheck(150, 4, csp -> csp.findSolutionPortfolio(List.of(strategy)));
+        }
+    }
+
+    @Test
+    void learnsNogoodsWhileRefuting() {
+        // M_5 is not peeled with 4 colors, so the whole graph is searched by this solver
+        CSPGraphColoring csp = new CSPGraphColoring(4, InstanceGenerator.mycielski(5));
+        assertNull(csp.findSolution());
+        assertEquals(CSPGraphColoring.Outcome.UNSATISFIABLE, csp.getOutcome());
+        assertTrue(csp.storedNogoods() > 0);
+    }
+
+    private interface Solve {
+        Map<Integer, Integer> run(CSPGraphColoring csp);
+    }
+
+    // Graphs on 10 to 40 vertices with 3 or 4 colors, their average degree around the point
+    // where colorings stop existing, so the searches backtrack, jump and learn
+    private static void crossCheck(int instances, long seed, Solve solve) {
+        Random random = new Random(seed);
+        int satisfiable = 0;
+        for (int i = 0; i < instances; i++) {
+            int n = 10 + random.nextInt(31);
+            int colors = 3 + random.nextInt(2);
+            double degree = (colors == 3 ? 3.9 : 7.2) + 3.0 * (random.nextDouble() - 0.5);
+            double p = Math.min(1.0, degree / (n - 1));
+            List<int[]> edges = new ArrayList<>();
+            boolean[][] adjacent = new boolean[n][n];
+            for (int u = 0; u < n; u++) {
+                for (int v = u + 1; v < n; v++) {
+                    if (random.nextDouble() >= p) continue;
+                    edges.add(new int[]{u + 1, v + 1});
+                    adjacent[u][v] = adjacent[v][u] = true;
+                }
+            }
+            if (edges.isEmpty()) continue;
+            boolean expected = colorable(adjacent, colors);
+            String name = "instance " + i + ": n=" + n + ", colors=" + colors + ", edges=" + edges.size();
+            CSPGraphColoring csp = new CSPGraphColoring(colors, edges);
+            Map<Integer, Integer> coloring = solve.run(csp);
+            assertEquals(expected, coloring != null, name);
+            if (expected) {
+                satisfiable++;
+                CSPGraphColoringTest.assertColoring(coloring, colors, edges);
+                assertEquals(CSPGraphColoring.Outcome.SOLVED, csp.getOutcome(), name);
+            } else {
+                assertEquals(CSPGraphColoring.Outcome.UNSATISFIABLE, csp.getOutcome(), name);
+            }
+        }
+        // Both verdicts have to be well represented for the check to mean anything
+        assertTrue(satisfiable > instances / 5 && satisfiable < instances * 4 / 5, satisfiable + " satisfiable");
+    }
+
+    // Plain backtracking over the vertices by decreasing degree, checking each color against the
+    // neighbors colored so far
+    private static boolean colorable(boolean[][] adjacent, int colors) {
+        int n = adjacent.length;
+        Integer[] order = new Integer[n];
+        int[] degree = new int[n];
+        for (int v = 0; v < n; v++) {
+            order[v] = v;
+            for (int u = 0; u < n; u++) if (adjacent[v][u]) degree[v]++;
+        }
+        Arrays.sort(order, (a, b) -> degree[b] - degree[a]);
+        return colorable(adjacent, colors, order, new int[n], 0);
+    }
+
+    private static boolean colorable(boolean[][] adjacent, int colors, Integer[] order, int[] color, int index) {
+        if (index == order.length) return true;
+        int vertex = order[index];
+        for (int c = 1; c <= colors; c++) {
+            boolean free = true;
+            for (int i = 0; i < index && free; i++) free = !adjacent[vertex][order[i]] || color[order[i]] != c;
+            if (!free) continue;
+            color[vertex] = c;
+            if (colorable(adjacent, colors, order, color, index + 1)) return true;
+        }
+        color[vertex] = 0;
+        return false;
+    }
+}
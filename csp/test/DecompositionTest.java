@@ -0,0 +1,48 @@
+import org.junit.jupiter.api.Test;
+
+import java.util.*;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Graphs that peeling removes completely leave no blocks to search. Surefire runs this module
+ * with -XX:ActiveProcessorCount=4, so findSolution takes the multi-threaded block path.
+ */
+class DecompositionTest {
+
+    @Test
+    void runsOnSeveralProcessors() {
+        assertTrue(Runtime.getRuntime().availableProcessors() > 1);
+    }
+
+    @Test
+    void colorsFullyPeeledPath() {
+        assertColoring(2, List.of(new int[]{1, 2}, new int[]{2, 3}, new int[]{3, 4}));
+    }
+
+    @Test
+    void colorsFullyPeeledCompleteGraph() {
+        List<int[]> edges = new ArrayList<>();
+        for (int u = 1; u <= 4; u++) {
+            for (int v = u + 1; v <= 4; v++) edges.add(new int[]{u, v});
+        }
+        assertColoring(4, edges);
+    }
+
+    @Test
+    void colorsFullyPeeledRandomGraph() {
+        // Average degree 3 with 3 colors: the 3-core is empty
+        assertColoring(3, InstanceGenerator.random(20000, 3, 3.0, 1));
+    }
+
+    private static void assertColoring(int colors, List<int[]> edges) {
+        Map<Integer, Integer> coloring = new CSPGraphColoring(colors, edges).findSolution();
+        assertNotNull(coloring);
+        for (int[] edge : edges) {
+            int a = coloring.get(edge[0]);
+            int b = coloring.get(edge[1]);
+            assertNotEquals(a, b);
+            assertTrue(a >= 1 && a <= colors && b >= 1 && b <= colors);
+        }
+    }
+}
@@ -0,0 +1,71 @@
+import org.junit.jupiter.api.Test;
+
+import java.util.*;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * The fork/join search against the sequential one on graphs large enough for the tasks to be
+ * split many times: the same verdict, and a proper coloring when there is one
+ */
+class ParallelSearchTest {
+
+    @Test
+    void flatInstancesAreColored() {
+        for (long seed = 1; seed <= 20; seed++) {
+            int n = 150 + (int) (seed * 7);
+            List<int[]> edges = InstanceGenerator.flat(n, 3, 4.6, seed);
+            CSPGraphColoring csp = new CSPGraphColoring(3, edges);
+            CSPGraphColoringTest.assertColoring(csp.findSolution(), 3, edges);
+            CSPGraphColoringTest.assertColoring(csp.findSolutionParallel(4), 3, edges);
+            assertEquals(CSPGraphColoring.Outcome.SOLVED, csp.getOutcome(), "seed " + seed);
+        }
+    }
+
+    @Test
+    void randomGraphsMatchSequentialVerdicts() {
+        Random random = new Random(5);
+        int satisfiable = 0;
+        int unsatisfiable = 0;
+        for (int i = 0; i < 60; i++) {
+            int n = 60 + random.nextInt(61);
+            double degree = 4.0 + random.nextDouble() * 1.5;
+            List<int[]> edges = new ArrayList<>();
+            for (int u = 1; u <= n; u++) {
+                for (int v = u + 1; v <= n; v++) {
+                    if (random.nextDouble() < degree / (n - 1)) edges.add(new int[]{u, v});
+                }
+            }
+            String name = "graph " + i + ": n=" + n + ", edges=" + edges.size();
+            CSPGraphColoring csp = new CSPGraphColoring(3, edges);
+            Map<Integer, Integer> expected = csp.findSolution();
+            CSPGraphColoring.Outcome verdict = csp.getOutcome();
+            for (int threads : new int[]{2, 4}) {
+                Map<Integer, Integer> coloring = csp.findSolutionParallel(threads);
+                assertEquals(verdict, csp.getOutcome(), name + ", " + threads + " threads");
+                if (expected != null) {
+                    CSPGraphColoringTest.assertColoring(coloring, 3, edges);
+                } else {
+                    assertNull(coloring, name);
+                }
+            }
+            if (expected != null) satisfiable++;
+            else unsatisfiable++;
+        }
+        // Both verdicts are exercised
+        assertTrue(satisfiable >= 10 && unsatisfiable >= 10, satisfiable + " satisfiable, " + unsatisfiable + " not");
+    }
+
+    @Test
+    void refutesMycielskiGraphs() {
+        for (int threads : new int[]{1, 2, 4, 8}) {
+            CSPGraphColoring csp = new CSPGraphColoring(4, InstanceGenerator.mycielski(5));
+            assertNull(csp.findSolutionParallel(threads));
+            assertEquals(CSPGraphColoring.Outcome.UNSATISFIABLE, csp.getOutcome(), threads + " threads");
+        }
+        // About 60 000 nodes, split among the workers many times over
+        CSPGraphColoring csp = new CSPGraphColoring(5, InstanceGenerator.mycielski(6));
+        assertNull(csp.findSolutionParallel(4));
+        assertEquals(CSPGraphColoring.Outcome.UNSATISFIABLE, csp.getOutcome());
+    }
+}
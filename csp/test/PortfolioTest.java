@@ -0,0 +1,81 @@
+import org.junit.jupiter.api.Test;
+
+import java.util.*;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Restart strategies and the portfolio: restarting searches keep their verdicts, and the first
+ * solver to finish stops the others
+ */
+class PortfolioTest {
+
+    @Test
+    void lubySequence() {
+        long[] expected = {1, 1, 2, 1, 1, 2, 4, 1, 1, 2, 1, 1, 2, 4, 8};
+        for (int i = 1; i <= expected.length; i++) {
+            assertEquals(expected[i - 1], CSPGraphColoring.Strategy.luby(i), "luby(" + i + ")");
+        }
+    }
+
+    @Test
+    void restartLimits() {
+        CSPGraphColoring.Strategy luby = new CSPGraphColoring.Strategy(1, true, CSPGraphColoring.Strategy.Restarts.LUBY, 100, 2.0);
+        assertEquals(100, luby.limit(0));
+        assertEquals(200, luby.limit(2));
+        assertEquals(400, luby.limit(6));
+        CSPGraphColoring.Strategy geometric = new CSPGraphColoring.Strategy(1, true, CSPGraphColoring.Strategy.Restarts.GEOMETRIC, 100, 1.5);
+        assertEquals(100, geometric.limit(0));
+        assertEquals(225, geometric.limit(2));
+        assertTrue(geometric.limit(10_000) >= Long.MAX_VALUE / 2);
+        assertEquals(Long.MAX_VALUE, CSPGraphColoring.Strategy.DEFAULT.limit(5));
+        assertThrows(IllegalArgumentException.class,
+                () -> new CSPGraphColoring.Strategy(1, true, CSPGraphColoring.Strategy.Restarts.LUBY, 0, 2.0));
+    }
+
+    @Test
+    void restartingStrategiesKeepTheirVerdicts() {
+        List<CSPGraphColoring.Strategy> strategies = List.of(
+                new CSPGraphColoring.Strategy(3, true, CSPGraphColoring.Strategy.Restarts.LUBY, 1, 2.0),
+                new CSPGraphColoring.Strategy(4, true, CSPGraphColoring.Strategy.Restarts.GEOMETRIC, 1, 1.5),
+                new CSPGraphColoring.Strategy(5, false, CSPGraphColoring.Strategy.Restarts.GEOMETRIC, 2, 1.1));
+        List<int[]> satisfiable = CSPGraphColoringTest.dense(12, 0.7, 3);
+        for (CSPGraphColoring.Strategy strategy : strategies) {
+            CSPGraphColoringTest.assertColoring(new CSPGraphColoring(6, satisfiable).findSolutionPortfolio(List.of(strategy)), 6, satisfiable);
+            CSPGraphColoring unsatisfiable = new CSPGraphColoring(4, InstanceGenerator.mycielski(5));
+            assertNull(unsatisfiable.findSolutionPortfolio(List.of(strategy)));
+            assertEquals(CSPGraphColoring.Outcome.UNSATISFIABLE, unsatisfiable.getOutcome(), strategy.toString());
+        }
+    }
+
+    @Test
+    void portfolioVerdicts() {
+        List<int[]> satisfiable = CSPGraphColoringTest.dense(12, 0.7, 3);
+        CSPGraphColoringTest.assertColoring(new CSPGraphColoring(6, satisfiable).findSolutionPortfolio(4), 6, satisfiable);
+        CSPGraphColoring unsatisfiable = new CSPGraphColoring(5, InstanceGenerator.mycielski(6));
+        assertNull(unsatisfiable.findSolutionPortfolio(4));
+        assertEquals(CSPGraphColoring.Outcome.UNSATISFIABLE, unsatisfiable.getOutcome());
+    }
+
+    @Test
+    void firstFinisherCancelsTheRest() throws InterruptedException {
+        // Restarting after nearly every failure, this member needs about 20 times as long as the
+        // default search to refute M_6 with 5 colors; it must stop as soon as the default is done
+        CSPGraphColoring.Strategy crawler = new CSPGraphColoring.Strategy(1, true, CSPGraphColoring.Strategy.Restarts.GEOMETRIC, 1, 1.0001);
+        CSPGraphColoring csp = new CSPGraphColoring(5, InstanceGenerator.mycielski(6));
+        assertNull(csp.findSolutionPortfolio(List.of(CSPGraphColoring.Strategy.DEFAULT, crawler)));
+        assertEquals(CSPGraphColoring.Outcome.UNSATISFIABLE, csp.getOutcome());
+
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+        while (portfolioThreadsAlive() && System.nanoTime() < deadline) Thread.sleep(20);
+        assertFalse(portfolioThreadsAlive(), "a portfolio solver kept running after the winner finished");
+    }
+
+    private static boolean portfolioThreadsAlive() {
+        for (Thread thread : Thread.getAllStackTraces().keySet()) {
+            if (thread.getName().equals("csp-portfolio") && thread.isAlive()) return true;
+        }
+        return false;
+    }
+}
@@ -0,0 +1,106 @@
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayOutputStream;
+import java.io.PrintStream;
+import java.nio.charset.StandardCharsets;
+import java.util.*;
+import java.util.concurrent.*;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Node and time limits and cancellation: each stop leaves its own outcome, and a stopped solve
+ * does not affect the next one. Mycielski graphs with one color too few keep the search busy:
+ * M_6 for about 60k nodes, M_7 for far longer than any test runs.
+ */
+class SolveLimitsTest {
+
+    @Test
+    void nodeLimitStopsTheSearch() {
+        CSPGraphColoring csp = new CSPGraphColoring(5, InstanceGenerator.mycielski(6));
+        csp.setNodeLimit(1000);
+        assertNull(csp.findSolution());
+        assertEquals(CSPGraphColoring.Outcome.LIMIT_REACHED, csp.getOutcome());
+
+        csp.setNodeLimit(0);
+        assertNull(csp.findSolution());
+        assertEquals(CSPGraphColoring.Outcome.UNSATISFIABLE, csp.getOutcome());
+    }
+
+    @Test
+    void nodeLimitCoversEveryEngine() {
+        CSPGraphColoring csp = new CSPGraphColoring(5, InstanceGenerator.mycielski(6));
+        csp.setNodeLimit(1000);
+        assertNull(csp.findSolutionPortfolio(3));
+        assertEquals(CSPGraphColoring.Outcome.LIMIT_REACHED, csp.getOutcome());
+        assertNull(csp.findSolutionParallel(2));
+        assertEquals(CSPGraphColoring.Outcome.LIMIT_REACHED, csp.getOutcome());
+    }
+
+    @Test
+    void timeLimitStopsTheSearch() {
+        CSPGraphColoring csp = new CSPGraphColoring(6, InstanceGenerator.mycielski(7));
+        csp.setTimeLimit(200);
+        long start = System.nanoTime();
+        assertNull(csp.findSolution());
+        assertEquals(CSPGraphColoring.Outcome.LIMIT_REACHED, csp.getOutcome());
+        assertTrue(System.nanoTime() - start < TimeUnit.SECONDS.toNanos(10));
+    }
+
+    @Test
+    void cancelFromAnotherThreadStopsTheSearch() throws Exception {
+        CSPGraphColoring csp = new CSPGraphColoring(6, InstanceGenerator.mycielski(7));
+        // Ends the test as LIMIT_REACHED, not as a hang, should the cancel be lost
+        csp.setTimeLimit(30_000);
+        ExecutorService executor = Executors.newSingleThreadExecutor();
+        try {
+            Future<Map<Integer, Integer>> solve = executor.submit(csp::findSolution);
+            Thread.sleep(100);
+            csp.cancel();
+            assertNull(solve.get());
+            assertEquals(CSPGraphColoring.Outcome.CANCELLED, csp.getOutcome());
+        } finally {
+            executor.shutdown();
+        }
+    }
+
+    @Test
+    void cancelBeforeTheSolveIsKept() {
+        CSPGraphColoring csp = new CSPGraphColoring(5, InstanceGenerator.mycielski(6));
+        csp.cancel();
+        assertNull(csp.findSolution());
+        assertEquals(CSPGraphColoring.Outcome.CANCELLED, csp.getOutcome());
+
+        // The cancel is used up
+        assertNull(csp.findSolution());
+        assertEquals(CSPGraphColoring.Outcome.UNSATISFIABLE, csp.getOutcome());
+
+        csp.cancel();
+        assertNull(csp.findSolutionParallel(2));
+        assertEquals(CSPGraphColoring.Outcome.CANCELLED, csp.getOutcome());
+        csp.cancel();
+        assertNull(csp.findSolutionPortfolio(3));
+        assertEquals(CSPGraphColoring.Outcome.CANCELLED, csp.getOutcome());
+    }
+
+    @Test
+    void printsUnknownWhenStopped() {
+        CSPGraphColoring csp = new CSPGraphColoring(5, InstanceGenerator.mycielski(6));
+        csp.setNodeLimit(1000);
+        assertEquals("unknown", printed(csp));
+        csp.setNodeLimit(0);
+        assertEquals("failure", printed(csp));
+    }
+
+    private static String printed(CSPGraphColoring csp) {
+        PrintStream out = System.out;
+        ByteArrayOutputStream buffer = new ByteArrayOutputStream();
+        System.setOut(new PrintStream(buffer, true, StandardCharsets.UTF_8));
+        try {
+            csp.solve();
+        } finally {
+            System.setOut(out);
+        }
+        return buffer.toString(StandardCharsets.UTF_8).trim();
+    }
+}